@@ -0,0 +1,223 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.physicalstats.benchmark;
+
+import org.terasology.engine.context.Context;
+import org.terasology.engine.context.internal.ContextImpl;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.entitySystem.prefab.Prefab;
+import org.terasology.engine.network.NetworkMode;
+import org.terasology.engine.network.NetworkSystem;
+import org.terasology.engine.registry.InjectionHelper;
+import org.terasology.gestalt.entitysystem.component.Component;
+import org.terasology.gestalt.entitysystem.event.Event;
+import org.terasology.physicalstats.event.OnPhysicalStatsModifierAddedEvent;
+import org.terasology.physicalstats.event.OnPhysicalStatsModifierRemovedEvent;
+import org.terasology.physicalstats.system.PhysicalStatsModifierRegistry;
+import org.terasology.physicalstats.system.PhysicalStatsModifierSystem;
+import org.terasology.physicalstats.system.PhysicalStatsSystem;
+
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A minimal stand-in for the entity manager, so that the benchmarks run the real applyMod, removeMod and stat refresh
+ * code without starting the engine. Each entity keeps its components in a map, and the modifier events sent to it are
+ * passed straight to the handlers of PhysicalStatsSystem and PhysicalStatsModifierSystem, like the event system would.
+ * Other events and the component lifecycle events aren't dispatched.
+ *
+ * The systems are injected from a context that acts as the server, and only hold what these handlers need: the
+ * modifier registry and modifier system, but no prefabs, archetypes or ColumnarStatSystem.
+ */
+final class BenchmarkEntities {
+    private final Context context = new ContextImpl();
+    private final PhysicalStatsSystem physicalStatsSystem = new PhysicalStatsSystem();
+    private final PhysicalStatsModifierSystem modifierSystem = new PhysicalStatsModifierSystem();
+    private long nextId = 1;
+
+    BenchmarkEntities() {
+        NetworkSystem networkSystem = (NetworkSystem) Proxy.newProxyInstance(NetworkSystem.class.getClassLoader(),
+                new Class<?>[]{NetworkSystem.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("getMode")) {
+                        return NetworkMode.NONE;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        context.put(NetworkSystem.class, networkSystem);
+        context.put(PhysicalStatsModifierRegistry.class, new PhysicalStatsModifierRegistry());
+        context.put(PhysicalStatsModifierSystem.class, modifierSystem);
+        context.put(PhysicalStatsSystem.class, physicalStatsSystem);
+        InjectionHelper.inject(physicalStatsSystem, context);
+        InjectionHelper.inject(modifierSystem, context);
+    }
+
+    /**
+     * Get the context holding the systems, for creating a PhysicalStatsModifyEffect.
+     *
+     * @return  The context.
+     */
+    Context getContext() {
+        return context;
+    }
+
+    /**
+     * Get the PhysicalStatsSystem that handles the events of the entities.
+     *
+     * @return  The system.
+     */
+    PhysicalStatsSystem getPhysicalStatsSystem() {
+        return physicalStatsSystem;
+    }
+
+    /**
+     * Create an entity with the given components.
+     *
+     * @param components    The components of the entity.
+     * @return              The new entity.
+     */
+    EntityRef create(Component... components) {
+        BenchmarkEntity entity = new BenchmarkEntity(nextId++);
+        for (Component component : components) {
+            entity.addComponent(component);
+        }
+        return entity;
+    }
+
+    /**
+     * An entity whose components are held in a map.
+     */
+    private final class BenchmarkEntity extends EntityRef {
+        private final long id;
+        private final Map<Class<?>, Component> components = new HashMap<>();
+
+        private BenchmarkEntity(long id) {
+            this.id = id;
+        }
+
+        @Override
+        public EntityRef copy() {
+            return this;
+        }
+
+        @Override
+        public boolean exists() {
+            return true;
+        }
+
+        @Override
+        public boolean isActive() {
+            return true;
+        }
+
+        @Override
+        public void destroy() {
+            components.clear();
+        }
+
+        @Override
+        public <T extends Event> T send(T event) {
+            if (event instanceof OnPhysicalStatsModifierAddedEvent) {
+                physicalStatsSystem.onModifierAdded((OnPhysicalStatsModifierAddedEvent) event, this);
+            } else if (event instanceof OnPhysicalStatsModifierRemovedEvent) {
+                modifierSystem.onModifierRemoved((OnPhysicalStatsModifierRemovedEvent) event, this);
+                physicalStatsSystem.onModifierRemoved((OnPhysicalStatsModifierRemovedEvent) event, this);
+            }
+            return event;
+        }
+
+        @Override
+        public long getId() {
+            return id;
+        }
+
+        @Override
+        public boolean isPersistent() {
+            return false;
+        }
+
+        @Override
+        public void setPersistent(boolean persistent) {
+        }
+
+        @Override
+        public boolean isAlwaysRelevant() {
+            return false;
+        }
+
+        @Override
+        public void setAlwaysRelevant(boolean alwaysRelevant) {
+        }
+
+        @Override
+        public EntityRef getOwner() {
+            return EntityRef.NULL;
+        }
+
+        @Override
+        public void setOwner(EntityRef owner) {
+        }
+
+        @Override
+        public Prefab getParentPrefab() {
+            return null;
+        }
+
+        @Override
+        public String toFullDescription() {
+            return "BenchmarkEntity{" + id + ", " + components.keySet() + "}";
+        }
+
+        @Override
+        public <T extends Component> T getComponent(Class<T> componentClass) {
+            return componentClass.cast(components.get(componentClass));
+        }
+
+        @Override
+        public boolean hasComponent(Class<? extends Component> component) {
+            return components.containsKey(component);
+        }
+
+        @Override
+        public boolean hasAnyComponents(List<Class<? extends Component>> filterComponents) {
+            for (Class<? extends Component> component : filterComponents) {
+                if (components.containsKey(component)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public boolean hasAllComponents(List<Class<? extends Component>> filterComponents) {
+            for (Class<? extends Component> component : filterComponents) {
+                if (!components.containsKey(component)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public Iterable<Component> iterateComponents() {
+            return components.values();
+        }
+
+        @Override
+        public <T extends Component> T addComponent(T component) {
+            components.put(component.getClass(), component);
+            return component;
+        }
+
+        @Override
+        public void saveComponent(Component component) {
+            components.put(component.getClass(), component);
+        }
+
+        @Override
+        public void removeComponent(Class<? extends Component> componentClass) {
+            components.remove(componentClass);
+        }
+    }
+}
@@ -0,0 +1,281 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.physicalstats.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.terasology.physicalstats.columnar.ColumnarStatStore;
+import org.terasology.physicalstats.component.EffectivePhysicalStatsComponent;
+import org.terasology.physicalstats.component.PhysicalStat;
+import org.terasology.physicalstats.component.PhysicalStatArrays;
+import org.terasology.physicalstats.component.PhysicalStatsComponent;
+import org.terasology.physicalstats.component.PhysicalStatsModifiersListComponent;
+import org.terasology.physicalstats.formula.StatFormula;
+import org.terasology.physicalstats.formula.StatFormulaSet;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.IntBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simulates a server tick over a large NPC population, comparing stats kept in components with stats kept in the
+ * ColumnarStatStore. Every invocation despawns and respawns a share of the NPCs, buffs some of the new ones, and then
+ * evaluates the speed formula for every NPC.
+ *
+ * The component path is a simulation, not the engine's entity manager, which can't run outside the engine. It keeps
+ * the base stats, effective stats and modifiers of each NPC as heap objects in HashMaps keyed by boxed entity IDs. That
+ * reproduces the per-entity component objects and lookup entries that the columnar store avoids, but none of the
+ * entity manager's other costs, like lifecycle events, so the real difference is likely larger than measured here.
+ *
+ * Each path keeps its population in its own state, so a benchmark only holds the heap of the path it measures, and the
+ * other path's objects don't show up in its garbage collections.
+ *
+ * The {@code gcPauseMillis} and {@code gcCount} counters report the time spent in, and number of, garbage collections
+ * during each iteration. Run with {@code -prof gc} for the allocation rates as well.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class ColumnarStoreBenchmark {
+    private static final StatFormula SPEED = StatFormulaSet.DEFAULT.getMaxSpeed();
+
+    /**
+     * The parameters and spawning shared by both populations.
+     */
+    public abstract static class Population {
+        @Param({"100000", "400000"})
+        public int npcCount;
+
+        @Param({"0.01"})
+        public double churnPerTick;
+
+        protected final int[] scratch = PhysicalStatArrays.create();
+        private SplittableRandom random;
+        private long nextEntityId;
+
+        /** The entity ID of each NPC. */
+        protected long[] ids;
+
+        protected void populate() {
+            random = new SplittableRandom(42);
+            nextEntityId = 1;
+            ids = new long[npcCount];
+            for (int i = 0; i < npcCount; i++) {
+                ids[i] = spawn(nextEntityId++, i);
+            }
+        }
+
+        /**
+         * Despawn and respawn this tick's share of the NPCs.
+         */
+        protected void churn() {
+            int churn = (int) (npcCount * churnPerTick);
+            for (int n = 0; n < churn; n++) {
+                int i = random.nextInt(npcCount);
+                despawn(ids[i]);
+                ids[i] = spawn(nextEntityId++, i);
+            }
+        }
+
+        protected abstract long spawn(long id, int seed);
+
+        protected abstract void despawn(long id);
+
+        /**
+         * Buff one in ten NPCs with a couple of modifiers.
+         */
+        protected PhysicalStatsModifiersListComponent buff() {
+            return random.nextInt(10) == 0 ? StatFixtures.modifierList(2) : null;
+        }
+    }
+
+    /**
+     * NPCs whose stats are kept in simulated components.
+     */
+    @State(Scope.Thread)
+    public static class ComponentPopulation extends Population {
+        private Map<Long, PhysicalStatsComponent> baseComponents;
+        private Map<Long, EffectivePhysicalStatsComponent> effectiveComponents;
+        private Map<Long, PhysicalStatsModifiersListComponent> modifierComponents;
+
+        @Setup
+        public void setup() {
+            baseComponents = new HashMap<>();
+            effectiveComponents = new HashMap<>();
+            modifierComponents = new HashMap<>();
+            populate();
+        }
+
+        @Override
+        protected long spawn(long id, int seed) {
+            PhysicalStatsComponent phy = StatFixtures.baseStats(seed);
+            EffectivePhysicalStatsComponent effective = new EffectivePhysicalStatsComponent();
+            PhysicalStatArrays.read(phy, effective.values);
+            baseComponents.put(id, phy);
+            PhysicalStatsModifiersListComponent mods = buff();
+            if (mods != null) {
+                modifierComponents.put(id, mods);
+                mods.getAggregates().apply(effective.values);
+            }
+            effectiveComponents.put(id, effective);
+            return id;
+        }
+
+        @Override
+        protected void despawn(long id) {
+            baseComponents.remove(id);
+            effectiveComponents.remove(id);
+            modifierComponents.remove(id);
+        }
+    }
+
+    /**
+     * NPCs whose stats are kept in the columnar store.
+     */
+    @State(Scope.Thread)
+    public static class ColumnarPopulation extends Population {
+        private ColumnarStatStore store;
+        private Map<Long, PhysicalStatsModifiersListComponent> modifierComponents;
+
+        @Setup
+        public void setup() {
+            store = new ColumnarStatStore(npcCount);
+            modifierComponents = new HashMap<>();
+            populate();
+        }
+
+        @Override
+        protected long spawn(long id, int seed) {
+            int slot = store.add(id);
+            // Columnar NPCs take their base stats from a shared stat archetype, so nothing per NPC holds them.
+            int[] values = PhysicalStatArrays.read(StatFixtures.baseStats(seed), scratch);
+            PhysicalStatsModifiersListComponent mods = buff();
+            if (mods != null) {
+                modifierComponents.put(id, mods);
+                mods.getAggregates().apply(values);
+            }
+            store.writeEffective(slot, values);
+            return id;
+        }
+
+        @Override
+        protected void despawn(long id) {
+            store.remove(id);
+            modifierComponents.remove(id);
+        }
+    }
+
+    /**
+     * Garbage collection during an iteration, as reported by the JVM.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class GcActivity {
+        public long gcPauseMillis;
+        public long gcCount;
+
+        private long baseTime;
+        private long baseCount;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            baseTime = totalTime();
+            baseCount = totalCount();
+            gcPauseMillis = 0;
+            gcCount = 0;
+        }
+
+        void update() {
+            gcPauseMillis = totalTime() - baseTime;
+            gcCount = totalCount() - baseCount;
+        }
+
+        private static long totalTime() {
+            long total = 0;
+            for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+                total += Math.max(0, bean.getCollectionTime());
+            }
+            return total;
+        }
+
+        private static long totalCount() {
+            long total = 0;
+            for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+                total += Math.max(0, bean.getCollectionCount());
+            }
+            return total;
+        }
+    }
+
+    /**
+     * A tick with the stats kept in simulated components.
+     */
+    @Benchmark
+    public float componentTick(ComponentPopulation npcs, GcActivity gc) {
+        npcs.churn();
+        float total = 0;
+        for (long id : npcs.ids) {
+            total += SPEED.evaluate(npcs.effectiveComponents.get(id).values);
+        }
+        gc.update();
+        return total;
+    }
+
+    /**
+     * A tick with the stats kept in the columnar store, looking up each NPC's slot by entity ID.
+     */
+    @Benchmark
+    public float columnarTick(ColumnarPopulation npcs, GcActivity gc) {
+        npcs.churn();
+        ColumnarStatStore store = npcs.store;
+        float total = 0;
+        for (long id : npcs.ids) {
+            total += SPEED.evaluate(store.readEffective(store.getSlot(id), npcs.scratch));
+        }
+        gc.update();
+        return total;
+    }
+
+    /**
+     * Evaluates the speed formula by walking the effective stat columns slot by slot, which is what a bulk system over
+     * columnar NPCs would do instead of looking each one up. Every stat is read, so this holds for any speed formula.
+     */
+    @Benchmark
+    public float columnarScan(ColumnarPopulation npcs, GcActivity gc) {
+        ColumnarStatStore store = npcs.store;
+        IntBuffer[] columns = new IntBuffer[PhysicalStat.COUNT];
+        for (int i = 0; i < PhysicalStat.COUNT; i++) {
+            columns[i] = store.getEffectiveColumn(PhysicalStat.byIndex(i));
+        }
+
+        float total = 0;
+        int[] values = npcs.scratch;
+        for (int slot = 0; slot < store.getSlotCount(); slot++) {
+            if (store.getEntityId(slot) != 0) {
+                for (int i = 0; i < PhysicalStat.COUNT; i++) {
+                    values[i] = columns[i].get(slot);
+                }
+                total += SPEED.evaluate(values);
+            }
+        }
+        gc.update();
+        return total;
+    }
+}
@@ -0,0 +1,67 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.physicalstats.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.terasology.physicalstats.component.PhysicalStat;
+import org.terasology.physicalstats.component.PhysicalStatArrays;
+import org.terasology.physicalstats.formula.StatFormula;
+import org.terasology.physicalstats.formula.StatFormulaSet;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the compiled default formulas against the same arithmetic written inline, which is how the handlers
+ * computed damage and speed before the formulas could be declared in a prefab.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FormulaBenchmark {
+    private static final int ENTITY_COUNT = 1024;
+
+    private int[][] stats;
+    private StatFormula damage;
+    private StatFormula speed;
+
+    @Setup
+    public void setup() {
+        stats = new int[ENTITY_COUNT][];
+        for (int i = 0; i < ENTITY_COUNT; i++) {
+            stats[i] = PhysicalStatArrays.read(StatFixtures.baseStats(i), PhysicalStatArrays.create());
+        }
+        damage = StatFormulaSet.DEFAULT.getPhysicalDamage();
+        speed = StatFormulaSet.DEFAULT.getMaxSpeed();
+    }
+
+    @Benchmark
+    public void inlineArithmetic(Blackhole blackhole) {
+        int strength = PhysicalStat.STRENGTH.index();
+        int agility = PhysicalStat.AGILITY.index();
+        for (int[] s : stats) {
+            blackhole.consume(s[strength] / 2f);
+            blackhole.consume(Math.max(-1, (s[agility] - 10) / 10f));
+        }
+    }
+
+    @Benchmark
+    public void compiledFormulas(Blackhole blackhole) {
+        for (int[] s : stats) {
+            blackhole.consume(damage.evaluate(s));
+            blackhole.consume(speed.evaluate(s));
+        }
+    }
+}
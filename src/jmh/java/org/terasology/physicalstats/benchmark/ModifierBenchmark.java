@@ -0,0 +1,102 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.physicalstats.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.physicalstats.component.PhysicalStatsModifierComponent;
+import org.terasology.physicalstats.component.PhysicalStatsModifyEffect;
+import org.terasology.physicalstats.system.ModifierExpiryQueue;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures applyMod and removeMod, and the expiry queue behind timed modifiers. The entities live in a
+ * BenchmarkEntities store, so applying and removing a modifier runs the real code: updating the modifiers list, saving
+ * it, and refreshing the effective stats in the event handlers. Only the engine's own component storage and event
+ * dispatch are left out.
+ *
+ * Run with the gc profiler ({@code -prof gc}) to also report the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ModifierBenchmark {
+    @Param({"10", "1000", "100000"})
+    public int entityCount;
+
+    @Param({"0", "16", "256"})
+    public int modifiersPerEntity;
+
+    private EntityRef[] entities;
+    private PhysicalStatsModifyEffect effect;
+    private PhysicalStatsModifierComponent buff;
+    private ModifierExpiryQueue<Integer> expiryQueue;
+    private Integer[] targets;
+    private long now;
+
+    @Setup
+    public void setup() {
+        BenchmarkEntities store = new BenchmarkEntities();
+        effect = new PhysicalStatsModifyEffect(store.getContext());
+        entities = new EntityRef[entityCount];
+        targets = new Integer[entityCount];
+        expiryQueue = new ModifierExpiryQueue<>();
+        for (int i = 0; i < entityCount; i++) {
+            entities[i] = store.create(StatFixtures.baseStats(i), StatFixtures.modifierList(modifiersPerEntity));
+            store.getPhysicalStatsSystem().refreshEffectiveStats(entities[i]);
+            targets[i] = i;
+            for (int j = 0; j < modifiersPerEntity; j++) {
+                expiryQueue.schedule(targets[i], "mod" + j, 1000L + (i * 31L + j * 17L) % 5000L);
+            }
+        }
+        buff = StatFixtures.modifier("benchmarkBuff", 5);
+    }
+
+    /**
+     * Apply a permanent modifier to every entity and remove it again, each of which also recomputes the entity's
+     * effective stats.
+     */
+    @Benchmark
+    public void applyAndRemoveMod() {
+        for (int i = 0; i < entityCount; i++) {
+            effect.applyMod(EntityRef.NULL, entities[i], buff);
+            PhysicalStatsModifyEffect.removeMod(EntityRef.NULL, entities[i], buff.id);
+        }
+    }
+
+    /**
+     * Refresh an existing timed modifier on every entity, which moves its deadline in the expiry queue.
+     */
+    @Benchmark
+    public void refreshTimedModifier() {
+        now += 50;
+        for (int i = 0; i < entityCount; i++) {
+            expiryQueue.schedule(targets[i], "benchmarkBuff", now + 1000L + i % 97);
+        }
+    }
+
+    /**
+     * Schedule a timed modifier on every entity and let all of them expire in a single pass.
+     */
+    @Benchmark
+    public int scheduleAndExpire() {
+        for (int i = 0; i < entityCount; i++) {
+            expiryQueue.schedule(targets[i], "shortBuff", -1L - i % 13);
+        }
+        return expiryQueue.pollDue(0L, (target, id) -> { });
+    }
+}
@@ -0,0 +1,187 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.physicalstats.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.terasology.physicalstats.component.ModifierStacking;
+import org.terasology.physicalstats.component.PhysicalStatsModifierComponent;
+import org.terasology.physicalstats.component.PhysicalStatsModifierMap;
+import org.terasology.physicalstats.persistence.ModifierMapCodec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures saving and loading the modifiers of a world full of buffed entities. The binary record is compared with a
+ * name-keyed layout that writes every field of every modifier with its name. That layout is an approximation of what
+ * the engine's generic component serializer stores for a map of components, written with a DataOutputStream rather
+ * than through the serializer itself, so it shows the cost of naming every field but not the serializer's overhead.
+ * The save benchmarks report the bytes of one saved world in the {@code worldBytes} counter, which shows how much the
+ * front-coded keys of the binary record save over writing every key in full.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersistenceBenchmark {
+    private static final String[] STAT_FIELDS =
+            {"strength", "dexterity", "constitution", "agility", "endurance", "charisma", "luck"};
+
+    @Param({"50000"})
+    public int entityCount;
+
+    @Param({"1", "4", "16"})
+    public int modifiersPerEntity;
+
+    private PhysicalStatsModifierMap[] worlds;
+    private byte[][] binaryRecords;
+    private byte[][] namedRecords;
+
+    /**
+     * The size of one saved world, set by every save.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class WorldSize {
+        public long worldBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            worldBytes = 0;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        worlds = new PhysicalStatsModifierMap[entityCount];
+        binaryRecords = new byte[entityCount][];
+        namedRecords = new byte[entityCount][];
+        for (int i = 0; i < entityCount; i++) {
+            PhysicalStatsModifierMap modifiers = new PhysicalStatsModifierMap();
+            for (int m = 0; m < modifiersPerEntity; m++) {
+                // Modifiers declared by prefabs are keyed by the prefab name, which includes the module.
+                String id = "PhysicalStats:buff" + m;
+                modifiers.put(id, StatFixtures.modifier(id, 1 + m % 3));
+                modifiers.setInstigatorId(id, 1000 + i);
+                if (m % 2 == 0) {
+                    modifiers.setExpiryTime(id, 3_600_000L + i);
+                }
+            }
+            worlds[i] = modifiers;
+            binaryRecords[i] = ModifierMapCodec.encode(modifiers);
+            namedRecords[i] = encodeNamed(modifiers);
+        }
+    }
+
+    @Benchmark
+    public void saveBinary(Blackhole blackhole, WorldSize size) {
+        long bytes = 0;
+        for (PhysicalStatsModifierMap modifiers : worlds) {
+            byte[] record = ModifierMapCodec.encode(modifiers);
+            bytes += record.length;
+            blackhole.consume(record);
+        }
+        size.worldBytes = bytes;
+    }
+
+    @Benchmark
+    public void loadBinary(Blackhole blackhole) {
+        for (byte[] record : binaryRecords) {
+            blackhole.consume(ModifierMapCodec.decode(record));
+        }
+    }
+
+    @Benchmark
+    public void saveNameKeyed(Blackhole blackhole, WorldSize size) {
+        long bytes = 0;
+        for (PhysicalStatsModifierMap modifiers : worlds) {
+            byte[] record = encodeNamed(modifiers);
+            bytes += record.length;
+            blackhole.consume(record);
+        }
+        size.worldBytes = bytes;
+    }
+
+    @Benchmark
+    public void loadNameKeyed(Blackhole blackhole) {
+        for (byte[] record : namedRecords) {
+            blackhole.consume(decodeNamed(record));
+        }
+    }
+
+    private static byte[] encodeNamed(PhysicalStatsModifierMap modifiers) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(modifiers.size());
+            for (Map.Entry<String, PhysicalStatsModifierComponent> entry : modifiers.entrySet()) {
+                PhysicalStatsModifierComponent modifier = entry.getValue();
+                out.writeUTF(entry.getKey());
+                out.writeUTF("id");
+                out.writeUTF(modifier.id);
+                out.writeUTF("stacking");
+                out.writeUTF(modifier.stacking.name());
+                int[] values = {modifier.strength, modifier.dexterity, modifier.constitution, modifier.agility,
+                        modifier.endurance, modifier.charisma, modifier.luck};
+                for (int i = 0; i < STAT_FIELDS.length; i++) {
+                    out.writeUTF(STAT_FIELDS[i]);
+                    out.writeInt(values[i]);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static PhysicalStatsModifierMap decodeNamed(byte[] record) {
+        PhysicalStatsModifierMap modifiers = new PhysicalStatsModifierMap();
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(record))) {
+            int count = in.readInt();
+            for (int n = 0; n < count; n++) {
+                String key = in.readUTF();
+                PhysicalStatsModifierComponent modifier = new PhysicalStatsModifierComponent();
+                in.readUTF();
+                modifier.id = in.readUTF();
+                in.readUTF();
+                modifier.stacking = ModifierStacking.valueOf(in.readUTF());
+                int[] values = new int[STAT_FIELDS.length];
+                for (int i = 0; i < STAT_FIELDS.length; i++) {
+                    in.readUTF();
+                    values[i] = in.readInt();
+                }
+                modifier.strength = values[0];
+                modifier.dexterity = values[1];
+                modifier.constitution = values[2];
+                modifier.agility = values[3];
+                modifier.endurance = values[4];
+                modifier.charisma = values[5];
+                modifier.luck = values[6];
+                modifiers.put(key, modifier);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return modifiers;
+    }
+}
@@ -0,0 +1,146 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.physicalstats.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.terasology.physicalstats.component.PhysicalStat;
+import org.terasology.physicalstats.component.PhysicalStatArrays;
+import org.terasology.physicalstats.network.EffectiveStatsCodec;
+import org.terasology.physicalstats.network.EffectiveStatsReplicationSystem;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simulates buff churn on a server and measures the bandwidth of replicating effective stats. Every invocation is one
+ * network tick in which a share of the players gain or lose a buff that changes one to three stats. Each player's stats
+ * stay within a realistic range around their base stats, as buffs and debuffs wear off rather than piling up forever.
+ *
+ * The traffic doesn't depend on how fast the machine runs the ticks, so every iteration simulates a fixed number of
+ * ticks instead of running for a fixed time. The {@code encodedBytesPerTick} counter reports the average size of the
+ * compact updates sent in a tick, and {@code fullBytesPerTick} what sending all seven stats as plain ints for every
+ * changed entity would have cost. The per second counters derive from these and the replication interval of
+ * {@link EffectiveStatsReplicationSystem#REPLICATION_INTERVAL_MS}. JMH adds up these counters over all measurement
+ * iterations, so there is only one; raise {@link #TICKS_PER_ITERATION} for a longer sample instead.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, batchSize = ReplicationBenchmark.TICKS_PER_ITERATION)
+@Measurement(iterations = 1, batchSize = ReplicationBenchmark.TICKS_PER_ITERATION)
+@Fork(1)
+public class ReplicationBenchmark {
+    /** The number of ticks simulated per iteration, one minute of play. */
+    static final int TICKS_PER_ITERATION = 1200;
+
+    /** The number of network ticks per second. */
+    private static final double TICKS_PER_SECOND = 1000.0 / EffectiveStatsReplicationSystem.REPLICATION_INTERVAL_MS;
+
+    /** How far above its base value a stat may be buffed. */
+    private static final int MAX_BUFF = 30;
+
+    /** How far below its base value a stat may be debuffed. */
+    private static final int MAX_DEBUFF = 10;
+
+    @Param({"64", "256"})
+    public int playerCount;
+
+    @Param({"0.1", "0.5"})
+    public double churnPerTick;
+
+    private int[][] base;
+    private int[][] current;
+    private int[][] sent;
+    private SplittableRandom random;
+
+    /**
+     * The bytes sent, averaged over the ticks of an iteration.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Bandwidth {
+        public double encodedBytesPerTick;
+        public double fullBytesPerTick;
+        public double encodedBytesPerSecond;
+        public double fullBytesPerSecond;
+
+        private long ticks;
+        private long encodedBytes;
+        private long fullBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            ticks = 0;
+            encodedBytes = 0;
+            fullBytes = 0;
+        }
+
+        private void record(long tickEncodedBytes, long tickFullBytes) {
+            ticks++;
+            encodedBytes += tickEncodedBytes;
+            fullBytes += tickFullBytes;
+            encodedBytesPerTick = (double) encodedBytes / ticks;
+            fullBytesPerTick = (double) fullBytes / ticks;
+            encodedBytesPerSecond = encodedBytesPerTick * TICKS_PER_SECOND;
+            fullBytesPerSecond = fullBytesPerTick * TICKS_PER_SECOND;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        random = new SplittableRandom(42);
+        base = new int[playerCount][];
+        current = new int[playerCount][];
+        sent = new int[playerCount][];
+        for (int i = 0; i < playerCount; i++) {
+            base[i] = PhysicalStatArrays.read(StatFixtures.baseStats(i), PhysicalStatArrays.create());
+            current[i] = base[i].clone();
+            sent[i] = base[i].clone();
+        }
+    }
+
+    @Benchmark
+    public void networkTick(Bandwidth bandwidth) {
+        int changed = (int) (playerCount * churnPerTick);
+        for (int n = 0; n < changed; n++) {
+            int player = random.nextInt(playerCount);
+            int[] stats = current[player];
+            int statCount = 1 + random.nextInt(3);
+            int sign = random.nextBoolean() ? 1 : -1;
+            for (int s = 0; s < statCount; s++) {
+                int stat = random.nextInt(PhysicalStat.COUNT);
+                int amount = sign * (1 + random.nextInt(10));
+                // A buff that would leave the range is a buff wearing off instead, so the stat moves back.
+                int offset = stats[stat] + amount - base[player][stat];
+                if (offset > MAX_BUFF || offset < -MAX_DEBUFF) {
+                    amount = -amount;
+                }
+                stats[stat] += amount;
+            }
+        }
+
+        long encodedBytes = 0;
+        long fullBytes = 0;
+        for (int i = 0; i < playerCount; i++) {
+            byte[] data = EffectiveStatsCodec.encode(sent[i], current[i]);
+            if (data != null) {
+                System.arraycopy(current[i], 0, sent[i], 0, PhysicalStat.COUNT);
+                encodedBytes += data.length;
+                fullBytes += PhysicalStat.COUNT * Integer.BYTES;
+            }
+        }
+        bandwidth.record(encodedBytes, fullBytes);
+    }
+}
@@ -0,0 +1,63 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.physicalstats.benchmark;
+
+import org.terasology.physicalstats.component.PhysicalStatsComponent;
+import org.terasology.physicalstats.component.PhysicalStatsModifierComponent;
+import org.terasology.physicalstats.component.PhysicalStatsModifiersListComponent;
+
+/**
+ * Builds the stat components used by the benchmarks.
+ */
+final class StatFixtures {
+    private StatFixtures() {
+    }
+
+    /**
+     * Create base stats similar to the player prefab, varied slightly per entity.
+     *
+     * @param seed  Number used to vary the stats.
+     * @return      The base stats.
+     */
+    static PhysicalStatsComponent baseStats(int seed) {
+        PhysicalStatsComponent phy = new PhysicalStatsComponent();
+        phy.strength = 10 + seed % 5;
+        phy.dexterity = 10;
+        phy.constitution = 12;
+        phy.agility = 10 + seed % 3;
+        phy.endurance = 10;
+        phy.charisma = 10;
+        phy.luck = 10;
+        return phy;
+    }
+
+    /**
+     * Create a modifier with the given ID that changes a few stats.
+     *
+     * @param id        ID of the modifier.
+     * @param amount    Amount added to strength, agility and constitution.
+     * @return          The modifier.
+     */
+    static PhysicalStatsModifierComponent modifier(String id, int amount) {
+        PhysicalStatsModifierComponent mod = new PhysicalStatsModifierComponent();
+        mod.id = id;
+        mod.strength = amount;
+        mod.constitution = amount;
+        mod.agility = amount;
+        return mod;
+    }
+
+    /**
+     * Create a modifiers list holding the given number of modifiers.
+     *
+     * @param count     Number of modifiers in the list.
+     * @return          The modifiers list.
+     */
+    static PhysicalStatsModifiersListComponent modifierList(int count) {
+        PhysicalStatsModifiersListComponent list = new PhysicalStatsModifiersListComponent();
+        for (int i = 0; i < count; i++) {
+            list.put(modifier("mod" + i, 1 + i % 3));
+        }
+        return list;
+    }
+}
@@ -0,0 +1,143 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.physicalstats.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.logic.characters.GetMaxSpeedEvent;
+import org.terasology.engine.logic.characters.MovementMode;
+import org.terasology.module.health.components.HealthComponent;
+import org.terasology.physicalstats.component.EffectivePhysicalStatsComponent;
+import org.terasology.physicalstats.component.PhysicalStatsComponent;
+import org.terasology.physicalstats.component.PhysicalStatsModifierComponent;
+import org.terasology.physicalstats.component.PhysicalStatsModifiersListComponent;
+import org.terasology.physicalstats.formula.StatFormula;
+import org.terasology.physicalstats.system.PhysicalStatsSystem;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the per-entity cost of the stat handlers in PhysicalStatsSystem. The entities live in a BenchmarkEntities
+ * store, and their components are also kept in plain arrays indexed by entity, so that the handlers that are given
+ * their components skip the lookup and only the stat work itself is measured.
+ *
+ * Run with the gc profiler ({@code -prof gc}) to also report the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StatHandlerBenchmark {
+    @Param({"10", "1000", "100000"})
+    public int entityCount;
+
+    @Param({"0", "16", "256"})
+    public int modifiersPerEntity;
+
+    private PhysicalStatsSystem system;
+    private EntityRef[] entities;
+    private PhysicalStatsComponent[] baseStats;
+    private PhysicalStatsModifiersListComponent[] modifierLists;
+    private EffectivePhysicalStatsComponent[] effectiveStats;
+    private HealthComponent[] health;
+
+    @Setup
+    public void setup() {
+        BenchmarkEntities store = new BenchmarkEntities();
+        system = store.getPhysicalStatsSystem();
+        entities = new EntityRef[entityCount];
+        baseStats = new PhysicalStatsComponent[entityCount];
+        modifierLists = new PhysicalStatsModifiersListComponent[entityCount];
+        effectiveStats = new EffectivePhysicalStatsComponent[entityCount];
+        health = new HealthComponent[entityCount];
+
+        for (int i = 0; i < entityCount; i++) {
+            baseStats[i] = StatFixtures.baseStats(i);
+            modifierLists[i] = StatFixtures.modifierList(modifiersPerEntity);
+            health[i] = new HealthComponent();
+            health[i].maxHealth = baseStats[i].constitution * PhysicalStatsSystem.CONSTITUTION_MULTIPLIER;
+            health[i].currentHealth = health[i].maxHealth;
+
+            entities[i] = store.create(baseStats[i], modifierLists[i], health[i]);
+            system.refreshEffectiveStats(entities[i]);
+            effectiveStats[i] = entities[i].getComponent(EffectivePhysicalStatsComponent.class);
+        }
+    }
+
+    /**
+     * The GetMaxSpeedEvent handler as it runs today, reading the cached effective agility.
+     */
+    @Benchmark
+    public void impactOnSpeed(Blackhole blackhole) {
+        for (int i = 0; i < entityCount; i++) {
+            GetMaxSpeedEvent event = new GetMaxSpeedEvent(1f, MovementMode.WALKING);
+            system.impactOnSpeed(event, entities[i], effectiveStats[i]);
+            blackhole.consume(event.getResultValue());
+        }
+    }
+
+    /**
+     * The damage formula evaluated on the cached effective stats, which is the work done by the BeforeDamagedEvent
+     * handler once it has looked up the instigator's stats. The lookup and the event itself aren't included.
+     */
+    @Benchmark
+    public void physicalDamageFormula(Blackhole blackhole) {
+        StatFormula damage = system.getFormulas().getPhysicalDamage();
+        for (int i = 0; i < entityCount; i++) {
+            blackhole.consume(damage.evaluate(effectiveStats[i].values));
+        }
+    }
+
+    /**
+     * The pre-cache way of computing the speed bonus, summing every modifier per call. Kept as a reference point.
+     */
+    @Benchmark
+    public void speedBySummingModifiers(Blackhole blackhole) {
+        for (int i = 0; i < entityCount; i++) {
+            int totalAgility = baseStats[i].agility;
+            for (PhysicalStatsModifierComponent mod : modifierLists[i].modifiers.values()) {
+                totalAgility += mod.agility;
+            }
+            blackhole.consume(Math.max(-1, (totalAgility - 10) / 10f));
+        }
+    }
+
+    /**
+     * Recomputing the effective stats, as done whenever the base stats or the modifiers change.
+     */
+    @Benchmark
+    public void refreshEffectiveStats(Blackhole blackhole) {
+        for (int i = 0; i < entityCount; i++) {
+            system.computeEffectiveStats(baseStats[i], modifierLists[i], effectiveStats[i].mutableValues());
+        }
+        blackhole.consume(effectiveStats);
+    }
+
+    /**
+     * Updating the maximum health after a change in constitution, the way the change handler does it: the effective
+     * stats are refreshed and saved, and the health component is rewritten from them. CON alternates every call so
+     * that the health component is actually rewritten.
+     */
+    @Benchmark
+    public void updateHealth(Blackhole blackhole) {
+        for (int i = 0; i < entityCount; i++) {
+            PhysicalStatsComponent phy = baseStats[i];
+            phy.constitution = phy.constitution == 10 ? 12 : 10;
+            system.refreshEffectiveStats(entities[i]);
+            blackhole.consume(health[i].maxHealth);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.physicalstats.archetype;
+
+import org.terasology.physicalstats.component.PhysicalStat;
+import org.terasology.physicalstats.component.PhysicalStatArrays;
+import org.terasology.physicalstats.component.PhysicalStatsComponent;
+import org.terasology.physicalstats.formula.StatFormulaSet;
+
+import java.util.Arrays;
+
+/**
+ * The immutable base stats of a stat archetype, shared by every entity that uses the archetype unchanged. The values
+ * derived from the stats, like max health, are computed once per archetype.
+ */
+public final class StatArchetype {
+    private final String name;
+    private final int[] baseStats;
+    private final int maxHealth;
+
+    /**
+     * Create an archetype from the given base stats.
+     *
+     * @param name      The name of the prefab that declares the archetype.
+     * @param stats     The base stats. These are copied.
+     * @param formulas  The formulas for the derived values.
+     */
+    public StatArchetype(String name, PhysicalStatsComponent stats, StatFormulaSet formulas) {
+        this(name, PhysicalStatArrays.read(stats, PhysicalStatArrays.create()), formulas);
+    }
+
+    /**
+     * Create an archetype from the given stat vector.
+     *
+     * @param name      The name of the prefab that declares the archetype.
+     * @param baseStats The base stats as a stat vector. These are copied.
+     * @param formulas  The formulas for the derived values.
+     */
+    public StatArchetype(String name, int[] baseStats, StatFormulaSet formulas) {
+        this.name = name;
+        this.baseStats = Arrays.copyOf(baseStats, PhysicalStat.COUNT);
+        this.maxHealth = (int) formulas.getMaxHealth().evaluate(this.baseStats);
+    }
+
+    /**
+     * Get the name of the prefab that declares this archetype.
+     *
+     * @return  The prefab name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get the base value of a stat.
+     *
+     * @param stat  The stat.
+     * @return      The base value.
+     */
+    public int get(PhysicalStat stat) {
+        return baseStats[stat.index()];
+    }
+
+    /**
+     * Copy the base stats into the given array.
+     *
+     * @param out   The array to copy into.
+     * @return      The given array.
+     */
+    public int[] copyBaseStats(int[] out) {
+        System.arraycopy(baseStats, 0, out, 0, PhysicalStat.COUNT);
+        return out;
+    }
+
+    /**
+     * Get the shared stat vector of this archetype, for entities without modifiers whose effective stats are equal to
+     * the archetype's base stats. This must never be changed.
+     *
+     * @return  The shared stats.
+     */
+    public int[] getSharedValues() {
+        return baseStats;
+    }
+
+    /**
+     * Get the max health of an entity with the archetype's stats and no modifiers.
+     *
+     * @return  The max health.
+     */
+    public int getMaxHealth() {
+        return maxHealth;
+    }
+
+    /**
+     * Create a private copy of the archetype's base stats for an entity.
+     *
+     * @return  A new physical stats component.
+     */
+    public PhysicalStatsComponent createStats() {
+        PhysicalStatsComponent stats = new PhysicalStatsComponent();
+        PhysicalStatArrays.write(baseStats, stats);
+        return stats;
+    }
+}
@@ -0,0 +1,205 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.physicalstats.archetype;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.entitySystem.entity.lifecycleEvents.OnActivatedComponent;
+import org.terasology.engine.entitySystem.prefab.Prefab;
+import org.terasology.engine.entitySystem.prefab.PrefabManager;
+import org.terasology.engine.entitySystem.systems.BaseComponentSystem;
+import org.terasology.engine.entitySystem.systems.RegisterSystem;
+import org.terasology.engine.network.NetworkSystem;
+import org.terasology.engine.registry.In;
+import org.terasology.engine.registry.Share;
+import org.terasology.gestalt.entitysystem.event.ReceiveEvent;
+import org.terasology.module.health.components.HealthComponent;
+import org.terasology.physicalstats.component.ColumnarStatsComponent;
+import org.terasology.physicalstats.component.EffectivePhysicalStatsComponent;
+import org.terasology.physicalstats.component.PhysicalStatArrays;
+import org.terasology.physicalstats.component.PhysicalStatsComponent;
+import org.terasology.physicalstats.component.PhysicalStatsModifiersListComponent;
+import org.terasology.physicalstats.component.StatArchetypeComponent;
+import org.terasology.physicalstats.system.PhysicalStatsSystem;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * This system resolves stat archetypes and sets up the entities that use them. An entity with a StatArchetypeComponent
+ * and no PhysicalStatsComponent gets an EffectivePhysicalStatsComponent that shares the archetype's stat vector, so
+ * every other system sees its stats as usual, and its max health is set from the value computed once per archetype.
+ * Applying a modifier gives the entity private effective stats; changing its base stats needs {@link #materialize}.
+ * Changing the base stats of every entity that uses an archetype, like a rebalance does, replaces the archetype itself
+ * through {@link #rebalance}.
+ */
+@RegisterSystem
+@Share(StatArchetypeSystem.class)
+public class StatArchetypeSystem extends BaseComponentSystem {
+    private static final Logger logger = LoggerFactory.getLogger(StatArchetypeSystem.class);
+
+    @In
+    private PrefabManager prefabManager;
+
+    @In
+    private NetworkSystem networkSystem;
+
+    @In
+    private PhysicalStatsSystem physicalStatsSystem;
+
+    /** The archetypes resolved so far, keyed by lower case prefab name. Missing archetypes are cached as empty. */
+    private final Map<String, Optional<StatArchetype>> archetypes = new HashMap<>();
+
+    /**
+     * The base stats of the archetypes that were rebalanced during this session, keyed by lower case prefab name. These
+     * take precedence over the prefabs, and are kept when the cache is cleared.
+     */
+    private final Map<String, int[]> rebalanced = new HashMap<>();
+
+    /**
+     * Get the archetype declared by the prefab with the given name.
+     *
+     * @param name  The name of the prefab.
+     * @return      The archetype, or null if there is no such prefab with physical stats.
+     */
+    public StatArchetype getArchetype(String name) {
+        if (name == null) {
+            return null;
+        }
+        return archetypes.computeIfAbsent(name.toLowerCase(Locale.ROOT), key -> {
+            int[] rebalancedStats = rebalanced.get(key);
+            if (rebalancedStats != null) {
+                return Optional.of(new StatArchetype(name, rebalancedStats, physicalStatsSystem.getFormulas()));
+            }
+            Prefab prefab = prefabManager.getPrefab(name);
+            PhysicalStatsComponent stats = prefab != null ? prefab.getComponent(PhysicalStatsComponent.class) : null;
+            if (stats == null) {
+                logger.warn("No physical stats found in the stat archetype {}", name);
+                return Optional.empty();
+            }
+            return Optional.of(new StatArchetype(name, stats, physicalStatsSystem.getFormulas()));
+        }).orElse(null);
+    }
+
+    /**
+     * Get the archetype that the entity uses for its base stats.
+     *
+     * @param entity    The entity.
+     * @return          The archetype, or null if the entity has none or it can't be found.
+     */
+    public StatArchetype getArchetype(EntityRef entity) {
+        StatArchetypeComponent archetypeComp = entity.getComponent(StatArchetypeComponent.class);
+        return archetypeComp != null ? getArchetype(archetypeComp.archetype) : null;
+    }
+
+    /**
+     * Get the entity's own base stats for changing them, creating a private copy of its archetype's stats first if it
+     * doesn't have its own yet. Save the returned component after changing it.
+     *
+     * @param entity    The entity.
+     * @return          The entity's physical stats, or null if it has neither its own stats nor an archetype.
+     */
+    public PhysicalStatsComponent materialize(EntityRef entity) {
+        PhysicalStatsComponent stats = entity.getComponent(PhysicalStatsComponent.class);
+        if (stats != null) {
+            return stats;
+        }
+        StatArchetype archetype = getArchetype(entity);
+        if (archetype == null) {
+            return null;
+        }
+        return entity.addComponent(archetype.createStats());
+    }
+
+    /**
+     * Give the entity its own base stats with the given values. Entities that already have their own stats have them
+     * replaced, and entities using an archetype get a PhysicalStatsComponent with the values right away, rather than a
+     * copy of the archetype's stats that is changed afterwards.
+     *
+     * @param entity    The entity.
+     * @param baseStats The new base stats.
+     * @return          False if the entity has neither its own stats nor an archetype.
+     */
+    public boolean materialize(EntityRef entity, int[] baseStats) {
+        PhysicalStatsComponent stats = entity.getComponent(PhysicalStatsComponent.class);
+        if (stats != null) {
+            PhysicalStatArrays.write(baseStats, stats);
+            entity.saveComponent(stats);
+            return true;
+        }
+        if (getArchetype(entity) == null) {
+            return false;
+        }
+        stats = new PhysicalStatsComponent();
+        PhysicalStatArrays.write(baseStats, stats);
+        entity.addComponent(stats);
+        return true;
+    }
+
+    /**
+     * Replace the base stats of an archetype for the rest of the session. The entities that share the archetype's stats
+     * keep the old ones until their effective stats are refreshed, and entities that are loaded later get the new ones
+     * right away. The change isn't saved with the world, so a lasting change belongs in the archetype's prefab.
+     *
+     * @param archetype The archetype to replace.
+     * @param baseStats The new base stats.
+     * @return          The archetype with the new base stats.
+     */
+    public StatArchetype rebalance(StatArchetype archetype, int[] baseStats) {
+        String key = archetype.getName().toLowerCase(Locale.ROOT);
+        StatArchetype replacement =
+                new StatArchetype(archetype.getName(), baseStats, physicalStatsSystem.getFormulas());
+        rebalanced.put(key, replacement.copyBaseStats(PhysicalStatArrays.create()));
+        archetypes.put(key, Optional.of(replacement));
+        return replacement;
+    }
+
+    /**
+     * Forget all resolved archetypes, so that they are resolved again with the current prefabs and formulas. Rebalanced
+     * archetypes keep their rebalanced stats.
+     */
+    public void clearCache() {
+        archetypes.clear();
+    }
+
+    /**
+     * When an entity with an archetype is spawned or loaded, give it the archetype's effective stats and max health.
+     *
+     * @param event     Event indicating the archetype has been activated.
+     * @param entity    Reference to the entity that was activated.
+     */
+    @ReceiveEvent(components = StatArchetypeComponent.class)
+    public void onArchetypeActivated(OnActivatedComponent event, EntityRef entity) {
+        // Entities with their own stats are handled like any other, and clients receive the effective stats. Columnar
+        // entities are set up by the ColumnarStatSystem.
+        if (!networkSystem.getMode().isAuthority() || entity.hasComponent(PhysicalStatsComponent.class)
+                || entity.hasComponent(ColumnarStatsComponent.class)) {
+            return;
+        }
+        StatArchetype archetype = getArchetype(entity);
+        if (archetype == null) {
+            return;
+        }
+
+        if (entity.hasComponent(EffectivePhysicalStatsComponent.class)) {
+            // Loaded entities may have modifiers, so their effective stats are recomputed.
+            physicalStatsSystem.refreshEffectiveStats(entity);
+        } else {
+            EffectivePhysicalStatsComponent effective = new EffectivePhysicalStatsComponent();
+            effective.share(archetype.getSharedValues());
+            entity.addComponent(effective);
+        }
+
+        HealthComponent health = entity.getComponent(HealthComponent.class);
+        if (health != null && health.maxHealth != archetype.getMaxHealth()
+                && !entity.hasComponent(PhysicalStatsModifiersListComponent.class)) {
+            float healthPercentage = health.maxHealth > 0 ? (float) health.currentHealth / health.maxHealth : 1;
+            health.maxHealth = archetype.getMaxHealth();
+            health.currentHealth = (int) Math.floor(health.maxHealth * healthPercentage);
+            entity.saveComponent(health);
+        }
+    }
+}
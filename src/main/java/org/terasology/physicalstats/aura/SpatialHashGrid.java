@@ -0,0 +1,134 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.physicalstats.aura;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * A uniform grid that buckets objects by the cell that their position falls into. Moving an object within its cell is
+ * O(1), moving it to another cell is O(1) on average, and a range query only looks at the cells that overlap the range.
+ *
+ * @param <T> The type of the objects in the grid.
+ */
+public class SpatialHashGrid<T> {
+    /** The edge length of a cell. */
+    private final float cellSize;
+
+    /** The objects in each non-empty cell, keyed by the packed cell coordinates. */
+    private final Map<Long, Set<T>> cells = new HashMap<>();
+
+    /** The packed coordinates of the cell that each object is in. */
+    private final Map<T, Long> cellOf = new HashMap<>();
+
+    /**
+     * Create an empty grid.
+     *
+     * @param cellSize  The edge length of a cell. This should be about the size of a typical query range.
+     */
+    public SpatialHashGrid(float cellSize) {
+        if (cellSize <= 0) {
+            throw new IllegalArgumentException("The cell size must be greater than 0, but was " + cellSize);
+        }
+        this.cellSize = cellSize;
+    }
+
+    /**
+     * Insert an object or update its position.
+     *
+     * @param object    The object.
+     * @param x         The x coordinate of the object.
+     * @param y         The y coordinate of the object.
+     * @param z         The z coordinate of the object.
+     * @return          True if the object changed cells or is new, false if it stayed in its cell.
+     */
+    public boolean update(T object, float x, float y, float z) {
+        long cell = pack(cellCoord(x), cellCoord(y), cellCoord(z));
+        Long oldCell = cellOf.put(object, cell);
+        if (oldCell != null) {
+            if (oldCell == cell) {
+                return false;
+            }
+            removeFromCell(object, oldCell);
+        }
+        cells.computeIfAbsent(cell, key -> new HashSet<>()).add(object);
+        return true;
+    }
+
+    /**
+     * Remove an object from the grid.
+     *
+     * @param object    The object to remove.
+     * @return          True if the object was in the grid.
+     */
+    public boolean remove(T object) {
+        Long cell = cellOf.remove(object);
+        if (cell == null) {
+            return false;
+        }
+        removeFromCell(object, cell);
+        return true;
+    }
+
+    /**
+     * Pass every object in the cells that overlap the axis aligned box around the given point to the consumer. The
+     * objects may lie outside of the range, so callers should check the exact distance.
+     *
+     * @param x         The x coordinate of the center of the range.
+     * @param y         The y coordinate of the center of the range.
+     * @param z         The z coordinate of the center of the range.
+     * @param range     The half edge length of the box.
+     * @param consumer  Called once for every object in an overlapping cell.
+     */
+    public void forEachNear(float x, float y, float z, float range, Consumer<T> consumer) {
+        int minX = cellCoord(x - range);
+        int maxX = cellCoord(x + range);
+        int minY = cellCoord(y - range);
+        int maxY = cellCoord(y + range);
+        int minZ = cellCoord(z - range);
+        int maxZ = cellCoord(z + range);
+        for (int cx = minX; cx <= maxX; cx++) {
+            for (int cy = minY; cy <= maxY; cy++) {
+                for (int cz = minZ; cz <= maxZ; cz++) {
+                    Set<T> objects = cells.get(pack(cx, cy, cz));
+                    if (objects != null) {
+                        objects.forEach(consumer);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the number of objects in the grid.
+     *
+     * @return  The number of objects.
+     */
+    public int size() {
+        return cellOf.size();
+    }
+
+    private void removeFromCell(T object, long cell) {
+        Set<T> objects = cells.get(cell);
+        if (objects != null) {
+            objects.remove(object);
+            if (objects.isEmpty()) {
+                cells.remove(cell);
+            }
+        }
+    }
+
+    private int cellCoord(float value) {
+        return (int) Math.floor(value / cellSize);
+    }
+
+    /**
+     * Pack the cell coordinates into a single long, using 21 bits per axis.
+     */
+    private static long pack(int x, int y, int z) {
+        return ((long) (x & 0x1FFFFF) << 42) | ((long) (y & 0x1FFFFF) << 21) | (z & 0x1FFFFF);
+    }
+}
@@ -0,0 +1,428 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.physicalstats.aura;
+
+import org.joml.Vector3f;
+import org.terasology.engine.context.Context;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.entitySystem.entity.lifecycleEvents.BeforeDeactivateComponent;
+import org.terasology.engine.entitySystem.entity.lifecycleEvents.OnActivatedComponent;
+import org.terasology.engine.entitySystem.entity.lifecycleEvents.OnChangedComponent;
+import org.terasology.engine.entitySystem.systems.BaseComponentSystem;
+import org.terasology.engine.entitySystem.systems.RegisterMode;
+import org.terasology.engine.entitySystem.systems.RegisterSystem;
+import org.terasology.engine.entitySystem.systems.UpdateSubscriberSystem;
+import org.terasology.engine.logic.location.LocationComponent;
+import org.terasology.engine.registry.In;
+import org.terasology.gestalt.entitysystem.event.ReceiveEvent;
+import org.terasology.physicalstats.component.ColumnarStatsComponent;
+import org.terasology.physicalstats.component.EffectivePhysicalStatsComponent;
+import org.terasology.physicalstats.component.PhysicalStatsModifierComponent;
+import org.terasology.physicalstats.component.PhysicalStatsModifiersListComponent;
+import org.terasology.physicalstats.component.PhysicalStatsModifyEffect;
+import org.terasology.physicalstats.component.StatAuraComponent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * This system applies the modifiers of stat auras to the entities within their radius. Entities with effective physical
+ * stats (including those using a stat archetype or the ColumnarStatStore) and auras are kept in uniform grids, and only
+ * entities and auras that moved during a tick are checked again, so the cost of a tick scales with movement instead of
+ * with the number of auras times the number of entities. Modifiers are only applied or removed when an entity actually
+ * crosses the boundary of an aura.
+ */
+@RegisterSystem(RegisterMode.AUTHORITY)
+public class StatAuraSystem extends BaseComponentSystem implements UpdateSubscriberSystem {
+    /** The prefix of the IDs of all modifiers applied by auras. */
+    public static final String AURA_MODIFIER_PREFIX = "aura:";
+
+    /** The edge length of a grid cell in blocks. */
+    private static final float CELL_SIZE = 16;
+
+    @In
+    private Context context;
+
+    /** Used for applying aura modifiers to entities. */
+    private PhysicalStatsModifyEffect modifyEffect;
+
+    /** The entities with physical stats, bucketed by position. */
+    private final SpatialHashGrid<EntityRef> targetGrid = new SpatialHashGrid<>(CELL_SIZE);
+
+    /** The last known position of each entity with physical stats. */
+    private final Map<EntityRef, Vector3f> targetPositions = new HashMap<>();
+
+    /** The auras, bucketed by the position of their center. */
+    private final SpatialHashGrid<Aura> auraGrid = new SpatialHashGrid<>(CELL_SIZE);
+
+    /** All active auras, keyed by the emitting entity. */
+    private final Map<EntityRef, Aura> auras = new HashMap<>();
+
+    /** The auras that each entity with physical stats is currently within. */
+    private final Map<EntityRef, Set<Aura>> memberships = new HashMap<>();
+
+    /** The entities with physical stats that moved since the last tick. */
+    private final Set<EntityRef> movedTargets = new LinkedHashSet<>();
+
+    /** The auras that moved or changed since the last tick. */
+    private final Set<Aura> movedAuras = new LinkedHashSet<>();
+
+    /** The largest radius of all active auras, which bounds the search for auras around an entity. */
+    private float maxRadius;
+
+    @Override
+    public void initialise() {
+        modifyEffect = new PhysicalStatsModifyEffect(context);
+    }
+
+    @Override
+    public void update(float delta) {
+        if (!movedAuras.isEmpty()) {
+            for (Aura aura : movedAuras) {
+                refreshAura(aura);
+            }
+            movedAuras.clear();
+        }
+        if (!movedTargets.isEmpty()) {
+            for (EntityRef target : movedTargets) {
+                refreshTarget(target);
+            }
+            movedTargets.clear();
+        }
+    }
+
+    /**
+     * When an entity with physical stats is loaded or placed, start tracking its position. Aura modifiers that were
+     * saved with the entity are stale, so they are removed before the entity is checked against the current auras.
+     *
+     * @param event     Event indicating the entity has been activated.
+     * @param entity    Reference to the activated entity.
+     * @param location  The location of the entity.
+     */
+    @ReceiveEvent(components = EffectivePhysicalStatsComponent.class)
+    public void onTargetActivated(OnActivatedComponent event, EntityRef entity, LocationComponent location) {
+        startTracking(entity, location);
+    }
+
+    /**
+     * When an entity whose stats are kept in the ColumnarStatStore is loaded or placed, start tracking its position
+     * like any other entity with physical stats.
+     *
+     * @param event     Event indicating the entity has been activated.
+     * @param entity    Reference to the activated entity.
+     * @param location  The location of the entity.
+     */
+    @ReceiveEvent(components = ColumnarStatsComponent.class)
+    public void onColumnarTargetActivated(OnActivatedComponent event, EntityRef entity, LocationComponent location) {
+        startTracking(entity, location);
+    }
+
+    /**
+     * When a tracked entity with physical stats moves, update its grid cell and check it against the auras next tick.
+     * This only filters on the location, since a filter on the stats would also run it whenever the stats change.
+     *
+     * @param event     Event indicating the location has changed.
+     * @param entity    Reference to the entity that moved.
+     * @param location  The location of the entity.
+     */
+    @ReceiveEvent
+    public void onTargetMoved(OnChangedComponent event, EntityRef entity, LocationComponent location) {
+        if (targetPositions.containsKey(entity)) {
+            moveTarget(entity, location);
+        }
+    }
+
+    /**
+     * When an entity with physical stats is unloaded or destroyed, stop tracking it. Its aura modifiers are left as
+     * they are, and get cleaned up when it is loaded again.
+     *
+     * @param event     Event indicating the entity is about to be deactivated.
+     * @param entity    Reference to the entity that is being deactivated.
+     */
+    @ReceiveEvent(components = {EffectivePhysicalStatsComponent.class, LocationComponent.class})
+    public void onTargetDeactivated(BeforeDeactivateComponent event, EntityRef entity) {
+        stopTracking(entity);
+    }
+
+    /**
+     * When an entity whose stats are kept in the ColumnarStatStore is unloaded or destroyed, stop tracking it.
+     *
+     * @param event     Event indicating the entity is about to be deactivated.
+     * @param entity    Reference to the entity that is being deactivated.
+     */
+    @ReceiveEvent(components = {ColumnarStatsComponent.class, LocationComponent.class})
+    public void onColumnarTargetDeactivated(BeforeDeactivateComponent event, EntityRef entity) {
+        stopTracking(entity);
+    }
+
+    /**
+     * Start tracking the position of an entity with physical stats, removing the stale aura modifiers saved with it.
+     */
+    private void startTracking(EntityRef entity, LocationComponent location) {
+        PhysicalStatsModifiersListComponent modifiersList =
+                entity.getComponent(PhysicalStatsModifiersListComponent.class);
+        if (modifiersList != null) {
+            List<String> stale = new ArrayList<>();
+            for (String id : modifiersList.modifiers.keySet()) {
+                if (id != null && id.startsWith(AURA_MODIFIER_PREFIX)) {
+                    stale.add(id);
+                }
+            }
+            if (!stale.isEmpty()) {
+                PhysicalStatsModifyEffect.removeMods(entity, entity, stale);
+            }
+        }
+        moveTarget(entity, location);
+    }
+
+    /**
+     * Stop tracking an entity with physical stats. Its aura modifiers are left as they are, and get cleaned up when it
+     * is loaded again.
+     */
+    private void stopTracking(EntityRef entity) {
+        targetGrid.remove(entity);
+        targetPositions.remove(entity);
+        movedTargets.remove(entity);
+        Set<Aura> within = memberships.remove(entity);
+        if (within != null) {
+            for (Aura aura : within) {
+                aura.members.remove(entity);
+            }
+        }
+    }
+
+    /**
+     * When an aura is loaded or placed, start tracking it.
+     *
+     * @param event     Event indicating the aura has been activated.
+     * @param entity    Reference to the emitting entity.
+     * @param auraComp  The aura of the entity.
+     * @param location  The location of the entity.
+     */
+    @ReceiveEvent
+    public void onAuraActivated(OnActivatedComponent event, EntityRef entity, StatAuraComponent auraComp,
+                                LocationComponent location) {
+        Aura aura = new Aura(entity);
+        auras.put(entity, aura);
+        configureAura(aura, auraComp);
+        moveAura(aura, location);
+    }
+
+    /**
+     * When an aura moves or its settings change, update it and check it against the nearby entities next tick.
+     *
+     * @param event     Event indicating the aura or the location has changed.
+     * @param entity    Reference to the emitting entity.
+     * @param auraComp  The aura of the entity.
+     * @param location  The location of the entity.
+     */
+    @ReceiveEvent
+    public void onAuraChanged(OnChangedComponent event, EntityRef entity, StatAuraComponent auraComp,
+                              LocationComponent location) {
+        Aura aura = auras.get(entity);
+        if (aura == null) {
+            return;
+        }
+
+        // Entities within the aura are updated right away if its modifier changed, as they won't cross its boundary.
+        PhysicalStatsModifierComponent oldModifier = aura.modifier;
+        float oldRadius = aura.radius;
+        configureAura(aura, auraComp);
+        if (aura.radius < oldRadius && oldRadius >= maxRadius) {
+            updateMaxRadius();
+        }
+        if (!aura.members.isEmpty() && !sameValues(oldModifier, aura.modifier)) {
+            modifyEffect.applyMods(entity, new ArrayList<>(aura.members),
+                    Collections.singletonList(aura.modifier), 0);
+        }
+        moveAura(aura, location);
+    }
+
+    /**
+     * When an aura is unloaded, destroyed or removed, take its modifier away from every entity within it.
+     *
+     * @param event     Event indicating the aura is about to be deactivated.
+     * @param entity    Reference to the emitting entity.
+     */
+    @ReceiveEvent(components = {StatAuraComponent.class, LocationComponent.class})
+    public void onAuraDeactivated(BeforeDeactivateComponent event, EntityRef entity) {
+        Aura aura = auras.remove(entity);
+        if (aura == null) {
+            return;
+        }
+        auraGrid.remove(aura);
+        movedAuras.remove(aura);
+        for (EntityRef member : aura.members) {
+            Set<Aura> within = memberships.get(member);
+            if (within != null) {
+                within.remove(aura);
+            }
+            if (member.exists()) {
+                PhysicalStatsModifyEffect.removeMod(entity, member, aura.modifier.id);
+            }
+        }
+        aura.members.clear();
+
+        if (aura.radius >= maxRadius) {
+            updateMaxRadius();
+        }
+    }
+
+    /**
+     * Recompute the largest radius of all active auras, after the aura with the largest radius shrank or was removed.
+     */
+    private void updateMaxRadius() {
+        maxRadius = 0;
+        for (Aura other : auras.values()) {
+            maxRadius = Math.max(maxRadius, other.radius);
+        }
+    }
+
+    private void moveTarget(EntityRef entity, LocationComponent location) {
+        Vector3f position = targetPositions.computeIfAbsent(entity, key -> new Vector3f());
+        location.getWorldPosition(position);
+        if (!position.isFinite()) {
+            return;
+        }
+        targetGrid.update(entity, position.x, position.y, position.z);
+        movedTargets.add(entity);
+    }
+
+    private void moveAura(Aura aura, LocationComponent location) {
+        location.getWorldPosition(aura.center);
+        if (!aura.center.isFinite()) {
+            return;
+        }
+        auraGrid.update(aura, aura.center.x, aura.center.y, aura.center.z);
+        movedAuras.add(aura);
+    }
+
+    private void configureAura(Aura aura, StatAuraComponent auraComp) {
+        aura.radius = Math.max(0, auraComp.radius);
+        aura.affectsSelf = auraComp.affectsSelf;
+        aura.modifier = new PhysicalStatsModifierComponent();
+        if (auraComp.modifier != null) {
+            aura.modifier.copyFrom(auraComp.modifier);
+        }
+        aura.modifier.id = AURA_MODIFIER_PREFIX + aura.entity.getId();
+        maxRadius = Math.max(maxRadius, aura.radius);
+    }
+
+    /**
+     * Apply or remove the modifier of a moved aura for every entity that entered or left it.
+     */
+    private void refreshAura(Aura aura) {
+        List<EntityRef> entering = new ArrayList<>();
+        Vector3f center = aura.center;
+        targetGrid.forEachNear(center.x, center.y, center.z, aura.radius, target -> {
+            if (!aura.members.contains(target) && aura.contains(target, targetPositions.get(target))) {
+                entering.add(target);
+            }
+        });
+        List<EntityRef> leaving = new ArrayList<>();
+        for (EntityRef member : aura.members) {
+            if (!aura.contains(member, targetPositions.get(member))) {
+                leaving.add(member);
+            }
+        }
+
+        for (EntityRef target : leaving) {
+            leave(aura, target);
+        }
+        if (!entering.isEmpty()) {
+            for (EntityRef target : entering) {
+                aura.members.add(target);
+                memberships.computeIfAbsent(target, key -> new HashSet<>()).add(aura);
+            }
+            modifyEffect.applyMods(aura.entity, entering, Collections.singletonList(aura.modifier), 0);
+        }
+    }
+
+    /**
+     * Apply or remove the modifiers of every aura that a moved entity entered or left.
+     */
+    private void refreshTarget(EntityRef target) {
+        Vector3f position = targetPositions.get(target);
+        if (position == null || !position.isFinite()) {
+            return;
+        }
+        Set<Aura> within = memberships.getOrDefault(target, Collections.emptySet());
+
+        List<Aura> entered = new ArrayList<>();
+        auraGrid.forEachNear(position.x, position.y, position.z, maxRadius, aura -> {
+            if (!within.contains(aura) && aura.contains(target, position)) {
+                entered.add(aura);
+            }
+        });
+        List<Aura> left = new ArrayList<>();
+        for (Aura aura : within) {
+            if (!aura.contains(target, position)) {
+                left.add(aura);
+            }
+        }
+
+        for (Aura aura : left) {
+            leave(aura, target);
+        }
+        for (Aura aura : entered) {
+            aura.members.add(target);
+            memberships.computeIfAbsent(target, key -> new HashSet<>()).add(aura);
+            modifyEffect.applyMod(aura.entity, target, aura.modifier);
+        }
+    }
+
+    private void leave(Aura aura, EntityRef target) {
+        aura.members.remove(target);
+        Set<Aura> within = memberships.get(target);
+        if (within != null) {
+            within.remove(aura);
+            if (within.isEmpty()) {
+                memberships.remove(target);
+            }
+        }
+        PhysicalStatsModifyEffect.removeMod(aura.entity, target, aura.modifier.id);
+    }
+
+    private static boolean sameValues(PhysicalStatsModifierComponent a, PhysicalStatsModifierComponent b) {
+        return a.stacking == b.stacking && a.strength == b.strength && a.dexterity == b.dexterity
+                && a.constitution == b.constitution && a.agility == b.agility && a.endurance == b.endurance
+                && a.charisma == b.charisma && a.luck == b.luck;
+    }
+
+    /**
+     * The tracked state of a single aura.
+     */
+    private static final class Aura {
+        /** The emitting entity. */
+        private final EntityRef entity;
+
+        /** The position of the emitting entity. */
+        private final Vector3f center = new Vector3f();
+
+        /** The entities that currently have the aura's modifier applied. */
+        private final Set<EntityRef> members = new HashSet<>();
+
+        private float radius;
+        private boolean affectsSelf;
+
+        /** The modifier applied by the aura, with an ID unique to the emitting entity. */
+        private PhysicalStatsModifierComponent modifier;
+
+        private Aura(EntityRef entity) {
+            this.entity = entity;
+        }
+
+        private boolean contains(EntityRef target, Vector3f position) {
+            if (position == null || (!affectsSelf && target.equals(entity))) {
+                return false;
+            }
+            return center.distanceSquared(position) <= radius * radius;
+        }
+    }
+}
@@ -0,0 +1,229 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.physicalstats.columnar;
+
+import org.terasology.physicalstats.component.PhysicalStat;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * Effective stats of many entities, stored off-heap as one contiguous int column per stat. Each entity gets a dense
+ * slot when it's added, and the slots of removed entities are reused, so the columns never have holes for long.
+ * Nothing is allocated per entity; the heap only holds the column buffers, the slot lookup and the free list, which
+ * are all flat arrays. That keeps the store invisible to the garbage collector, no matter how many entities it holds.
+ *
+ * The base stats aren't stored, as they stay in the entity's PhysicalStatsComponent or stat archetype, which is where
+ * every change to them is made.
+ *
+ * This isn't thread-safe. Like the components it replaces, it's only changed and read on the main thread.
+ */
+public class ColumnarStatStore {
+    /** The number of slots to allocate space for when the store is created. */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private static final int NO_SLOT = -1;
+
+    /** The effective stats, one column per stat indexed by slot. */
+    private IntBuffer[] effective = new IntBuffer[PhysicalStat.COUNT];
+
+    /** The entity ID in each slot, or 0 if the slot is free. */
+    private long[] owners;
+
+    /** The slot of each entity ID. */
+    private final LongIntHashMap slots;
+
+    /** Free slots below {@link #highWater}, used as a stack. */
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+
+    /** The number of slots that have ever been used. */
+    private int highWater;
+
+    private int capacity;
+
+    public ColumnarStatStore() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param initialCapacity   The number of slots to allocate space for up front. The store grows as needed.
+     */
+    public ColumnarStatStore(int initialCapacity) {
+        if (initialCapacity <= 0) {
+            throw new IllegalArgumentException("The initial capacity must be greater than 0, but was " + initialCapacity);
+        }
+        capacity = initialCapacity;
+        owners = new long[initialCapacity];
+        slots = new LongIntHashMap(initialCapacity);
+        for (int i = 0; i < PhysicalStat.COUNT; i++) {
+            effective[i] = allocateColumn(initialCapacity);
+        }
+    }
+
+    /**
+     * Add an entity to the store, with all of its stats set to 0. If the entity is already in the store, its existing
+     * slot is returned.
+     *
+     * @param entityId  The ID of the entity. Must not be 0.
+     * @return          The entity's slot.
+     */
+    public int add(long entityId) {
+        int slot = slots.get(entityId, NO_SLOT);
+        if (slot != NO_SLOT) {
+            return slot;
+        }
+        if (freeCount > 0) {
+            slot = freeSlots[--freeCount];
+        } else {
+            if (highWater == capacity) {
+                grow(capacity * 2);
+            }
+            slot = highWater++;
+        }
+        owners[slot] = entityId;
+        slots.put(entityId, slot);
+        for (int i = 0; i < PhysicalStat.COUNT; i++) {
+            effective[i].put(slot, 0);
+        }
+        return slot;
+    }
+
+    /**
+     * Remove an entity from the store, freeing its slot for reuse.
+     *
+     * @param entityId  The ID of the entity.
+     * @return          True if the entity was in the store, false otherwise.
+     */
+    public boolean remove(long entityId) {
+        int slot = slots.remove(entityId, NO_SLOT);
+        if (slot == NO_SLOT) {
+            return false;
+        }
+        owners[slot] = 0;
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        }
+        freeSlots[freeCount++] = slot;
+        return true;
+    }
+
+    /**
+     * Get the slot of an entity.
+     *
+     * @param entityId  The ID of the entity.
+     * @return          The entity's slot, or -1 if it isn't in the store.
+     */
+    public int getSlot(long entityId) {
+        return entityId == 0 ? NO_SLOT : slots.get(entityId, NO_SLOT);
+    }
+
+    /**
+     * Get the entity in a slot.
+     *
+     * @param slot  The slot.
+     * @return      The ID of the entity, or 0 if the slot is free.
+     */
+    public long getEntityId(int slot) {
+        return owners[slot];
+    }
+
+    /**
+     * Get the number of entities in the store.
+     *
+     * @return  The number of entities.
+     */
+    public int size() {
+        return slots.size();
+    }
+
+    /**
+     * Get the number of slots that have ever been used. Every occupied slot is below this, so it bounds loops over
+     * the columns; free slots below it have an entity ID of 0.
+     *
+     * @return  The number of used slots.
+     */
+    public int getSlotCount() {
+        return highWater;
+    }
+
+    /**
+     * Get the number of slots that the columns currently have space for.
+     *
+     * @return  The capacity of the columns.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Get an effective stat in a slot.
+     *
+     * @param slot  The slot.
+     * @param stat  The stat to get.
+     * @return      The base value of the stat plus all modifiers.
+     */
+    public int getEffective(int slot, PhysicalStat stat) {
+        return effective[stat.index()].get(slot);
+    }
+
+    /**
+     * Copy the effective stats in a slot into a stat vector.
+     *
+     * @param slot  The slot.
+     * @param out   The stat vector to write into.
+     * @return      The given stat vector.
+     */
+    public int[] readEffective(int slot, int[] out) {
+        for (int i = 0; i < PhysicalStat.COUNT; i++) {
+            out[i] = effective[i].get(slot);
+        }
+        return out;
+    }
+
+    /**
+     * Set the effective stats in a slot.
+     *
+     * @param slot      The slot.
+     * @param values    The stat vector to copy.
+     */
+    public void writeEffective(int slot, int[] values) {
+        for (int i = 0; i < PhysicalStat.COUNT; i++) {
+            effective[i].put(slot, values[i]);
+        }
+    }
+
+    /**
+     * Get the effective stat column of a stat, for bulk processing. The returned buffer is only valid until the store
+     * next grows, and entries at free slots are meaningless.
+     *
+     * @param stat  The stat.
+     * @return      A read-only view of the column, indexed by slot.
+     */
+    public IntBuffer getEffectiveColumn(PhysicalStat stat) {
+        return effective[stat.index()].asReadOnlyBuffer();
+    }
+
+    private void grow(int newCapacity) {
+        for (int i = 0; i < PhysicalStat.COUNT; i++) {
+            effective[i] = copyColumn(effective[i], newCapacity);
+        }
+        owners = Arrays.copyOf(owners, newCapacity);
+        capacity = newCapacity;
+    }
+
+    private IntBuffer copyColumn(IntBuffer column, int newCapacity) {
+        IntBuffer copy = allocateColumn(newCapacity);
+        IntBuffer source = column.duplicate();
+        source.position(0).limit(highWater);
+        copy.put(source);
+        copy.clear();
+        return copy;
+    }
+
+    private static IntBuffer allocateColumn(int capacity) {
+        return ByteBuffer.allocateDirect(capacity * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer();
+    }
+}
@@ -0,0 +1,104 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.physicalstats.columnar;
+
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.entitySystem.entity.lifecycleEvents.BeforeDeactivateComponent;
+import org.terasology.engine.entitySystem.entity.lifecycleEvents.OnActivatedComponent;
+import org.terasology.engine.entitySystem.event.EventPriority;
+import org.terasology.engine.entitySystem.systems.BaseComponentSystem;
+import org.terasology.engine.entitySystem.systems.RegisterSystem;
+import org.terasology.engine.network.NetworkSystem;
+import org.terasology.engine.registry.In;
+import org.terasology.engine.registry.Share;
+import org.terasology.gestalt.entitysystem.event.ReceiveEvent;
+import org.terasology.physicalstats.component.ColumnarStatsComponent;
+import org.terasology.physicalstats.component.EffectivePhysicalStatsComponent;
+import org.terasology.physicalstats.system.PhysicalStatsSystem;
+
+/**
+ * This system assigns a slot in the ColumnarStatStore to every entity with a ColumnarStatsComponent while it's loaded.
+ * The PhysicalStatsSystem computes the effective stats of these entities into the store instead of a component, and
+ * reads them back from it through {@link PhysicalStatsSystem#getEffectiveStats}, so the damage and speed handlers
+ * treat them like any other entity.
+ *
+ * The store only exists on the authority. Clients keep using components.
+ */
+@RegisterSystem
+@Share(ColumnarStatSystem.class)
+public class ColumnarStatSystem extends BaseComponentSystem {
+    @In
+    private NetworkSystem networkSystem;
+
+    @In
+    private PhysicalStatsSystem physicalStatsSystem;
+
+    private final ColumnarStatStore store = new ColumnarStatStore();
+
+    /**
+     * Get the store that holds the stats of the columnar entities.
+     *
+     * @return  The store.
+     */
+    public ColumnarStatStore getStore() {
+        return store;
+    }
+
+    /**
+     * Get the slot of the given entity in the store, assigning it one if it should have one but doesn't yet. This
+     * happens when its stats are computed before its ColumnarStatsComponent has been activated.
+     *
+     * @param entity    The entity.
+     * @return          The entity's slot, or -1 if it doesn't keep its stats in the store.
+     */
+    public int getOrAddSlot(EntityRef entity) {
+        int slot = store.getSlot(entity.getId());
+        if (slot < 0 && entity.hasComponent(ColumnarStatsComponent.class) && networkSystem.getMode().isAuthority()) {
+            slot = store.add(entity.getId());
+        }
+        return slot;
+    }
+
+    /**
+     * Copy the effective stats of the given entity from the store.
+     *
+     * @param entity    The entity.
+     * @param out       The stat vector to write into.
+     * @return          The given stat vector, or null if the entity isn't in the store.
+     */
+    public int[] readEffectiveStats(EntityRef entity, int[] out) {
+        int slot = store.getSlot(entity.getId());
+        return slot >= 0 ? store.readEffective(slot, out) : null;
+    }
+
+    /**
+     * When a columnar entity is spawned or loaded, give it a slot and compute its stats into it. Any effective stats
+     * component it already has, because it was saved with one or another system got to it first, is dropped. This runs
+     * before the other systems' activation handlers, so that they can already read the entity's stats.
+     *
+     * @param event     Event indicating the columnar stats component has been activated.
+     * @param entity    Reference to the entity that was activated.
+     */
+    @ReceiveEvent(components = ColumnarStatsComponent.class, priority = EventPriority.PRIORITY_HIGH)
+    public void onColumnarStatsActivated(OnActivatedComponent event, EntityRef entity) {
+        if (!networkSystem.getMode().isAuthority()) {
+            return;
+        }
+        if (entity.hasComponent(EffectivePhysicalStatsComponent.class)) {
+            entity.removeComponent(EffectivePhysicalStatsComponent.class);
+        }
+        physicalStatsSystem.refreshEffectiveStats(entity);
+    }
+
+    /**
+     * When a columnar entity is unloaded or destroyed, free its slot. Its stats are derived from its components, so
+     * nothing needs to be written back.
+     *
+     * @param event     Event indicating the columnar stats component is about to be deactivated.
+     * @param entity    Reference to the entity that was affected.
+     */
+    @ReceiveEvent(components = ColumnarStatsComponent.class)
+    public void onColumnarStatsDeactivated(BeforeDeactivateComponent event, EntityRef entity) {
+        store.remove(entity.getId());
+    }
+}
@@ -0,0 +1,136 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.physicalstats.columnar;
+
+/**
+ * An open addressing hash map from non-zero long keys to int values, with linear probing. It doesn't box keys or values
+ * and only allocates when it grows, so it adds no garbage per entry.
+ */
+final class LongIntHashMap {
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+    private int mask;
+
+    LongIntHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Get the value of a key.
+     *
+     * @param key           The key, which must not be 0.
+     * @param missingValue  The value to return if the key isn't in the map.
+     * @return              The value, or the missing value.
+     */
+    int get(long key, int missingValue) {
+        for (int i = indexOf(key); ; i = (i + 1) & mask) {
+            long k = keys[i];
+            if (k == key) {
+                return values[i];
+            }
+            if (k == 0) {
+                return missingValue;
+            }
+        }
+    }
+
+    /**
+     * Set the value of a key.
+     *
+     * @param key   The key, which must not be 0.
+     * @param value The value.
+     */
+    void put(long key, int value) {
+        if (key == 0) {
+            throw new IllegalArgumentException("The key must not be 0");
+        }
+        for (int i = indexOf(key); ; i = (i + 1) & mask) {
+            long k = keys[i];
+            if (k == key) {
+                values[i] = value;
+                return;
+            }
+            if (k == 0) {
+                keys[i] = key;
+                values[i] = value;
+                if (++size > keys.length * LOAD_FACTOR) {
+                    grow();
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Remove a key.
+     *
+     * @param key           The key.
+     * @param missingValue  The value to return if the key isn't in the map.
+     * @return              The value that was removed, or the missing value.
+     */
+    int remove(long key, int missingValue) {
+        for (int i = indexOf(key); ; i = (i + 1) & mask) {
+            long k = keys[i];
+            if (k == 0) {
+                return missingValue;
+            }
+            if (k == key) {
+                int value = values[i];
+                size--;
+                shiftBack(i);
+                return value;
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Close the gap left by a removed entry, moving later entries of the probe sequence back into it.
+     */
+    private void shiftBack(int gap) {
+        int i = gap;
+        while (true) {
+            i = (i + 1) & mask;
+            long k = keys[i];
+            if (k == 0) {
+                break;
+            }
+            int home = indexOf(k);
+            // Move the entry if its home slot isn't cyclically between the gap and its current slot.
+            if (((i - home) & mask) >= ((i - gap) & mask)) {
+                keys[gap] = k;
+                values[gap] = values[i];
+                gap = i;
+            }
+        }
+        keys[gap] = 0;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldKeys.length * 2];
+        mask = keys.length - 1;
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private int indexOf(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
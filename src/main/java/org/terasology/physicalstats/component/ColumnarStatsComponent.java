@@ -0,0 +1,26 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.physicalstats.component;
+
+import org.terasology.gestalt.entitysystem.component.Component;
+
+/**
+ * This component moves an entity's effective stats into the off-heap ColumnarStatStore on the server, instead of an
+ * EffectivePhysicalStatsComponent. The base stats still come from the entity's PhysicalStatsComponent or, better,
+ * its stat archetype, and modifiers are applied as usual.
+ *
+ * Only the effective stats leave the heap, which saves one component and its stat vector per entity. An entity with
+ * its own PhysicalStatsComponent keeps it, and so does any PhysicalStatsModifiersListComponent, so the most is saved
+ * by columnar entities that use a stat archetype and have few modifiers.
+ *
+ * This is meant for large populations of low-detail NPCs that are only simulated on the server. Their stats are read
+ * through PhysicalStatsSystem#getEffectiveStats, so the damage and speed handlers, auras, stamina, encumbrance, item
+ * cooldowns, stat rebalances and the setStats command treat them like any other entity, and changes to their stats are
+ * reported through OnPhysicalStatChangedEvent. They are skipped by the systems that need a component, though: they
+ * aren't replicated to clients, indexed, or published as snapshots.
+ */
+public class ColumnarStatsComponent implements Component<ColumnarStatsComponent> {
+    @Override
+    public void copyFrom(ColumnarStatsComponent other) {
+    }
+}
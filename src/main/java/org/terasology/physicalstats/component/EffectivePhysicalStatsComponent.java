@@ -0,0 +1,71 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.physicalstats.component;
+
+import org.terasology.engine.network.Replicate;
+import org.terasology.gestalt.entitysystem.component.Component;
+
+/**
+ * This component caches an entity's effective physical stats, i.e. its base stats from PhysicalStatsComponent plus all
+ * of the modifiers in its PhysicalStatsModifiersListComponent. It's maintained by the PhysicalStatsSystem and is only
+ * recomputed when the base stats or the modifiers change, so that frequently sent events can read the totals directly.
+ *
+ * Note: This is derived data. Change the base stats or the modifiers instead of editing this component. It's only
+ * computed on the authority, and replicated to the clients.
+ */
+public class EffectivePhysicalStatsComponent implements Component<EffectivePhysicalStatsComponent> {
+    /**
+     * The total value of each stat, indexed by {@link PhysicalStat#index()}. Clients receive this in full only once;
+     * later changes are sent as compact updates by the EffectiveStatsReplicationSystem.
+     *
+     * Never write to this array in place. Entities of the same stat archetype share one array, so a write would change
+     * the stats of all of them. Read single stats with {@link #get}, and use {@link #mutableValues()} to change them.
+     */
+    @Replicate(initialOnly = true)
+    public int[] values = PhysicalStatArrays.create();
+
+    /**
+     * Whether {@link #values} is shared with other entities of the same stat archetype, in which case it must be
+     * replaced rather than changed in place.
+     */
+    private transient boolean shared;
+
+    /**
+     * Get the total value of the given stat.
+     *
+     * @param stat  The stat to get.
+     * @return      The base value of the stat plus all modifiers.
+     */
+    public int get(PhysicalStat stat) {
+        return values[stat.index()];
+    }
+
+    /**
+     * Use the given stat vector, which is shared with other entities, until the stats are next changed.
+     *
+     * @param sharedValues  The shared effective stats. These are never changed through this component.
+     */
+    public void share(int[] sharedValues) {
+        this.values = sharedValues;
+        this.shared = true;
+    }
+
+    /**
+     * Get the stat vector for changing it in place, first making a private copy if it is shared.
+     *
+     * @return  The private stat vector of this component.
+     */
+    public int[] mutableValues() {
+        if (shared) {
+            values = values.clone();
+            shared = false;
+        }
+        return values;
+    }
+
+    @Override
+    public void copyFrom(EffectivePhysicalStatsComponent other) {
+        this.values = other.values.clone();
+        this.shared = false;
+    }
+}
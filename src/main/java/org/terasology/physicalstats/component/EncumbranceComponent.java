@@ -0,0 +1,34 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.physicalstats.component;
+
+import org.terasology.engine.network.Replicate;
+import org.terasology.gestalt.entitysystem.component.Component;
+
+/**
+ * This component makes an entity with physical stats and an inventory slower when it carries more than its endurance
+ * allows. It's maintained by the EncumbranceSystem whenever the contents of the inventory or the endurance change, and
+ * replicated so that clients predict the same movement speed.
+ *
+ * Note: This is derived data. Change the items or the endurance instead of editing this component.
+ */
+public class EncumbranceComponent implements Component<EncumbranceComponent> {
+    /** The total weight of the items in the entity's inventory. */
+    @Replicate
+    public float carriedWeight;
+
+    /** The weight the entity can carry without being slowed down, derived from its effective endurance. */
+    @Replicate
+    public float carryCapacity;
+
+    /** The factor applied to the entity's maximum movement speed, 1 when it isn't encumbered. */
+    @Replicate
+    public float speedMultiplier = 1;
+
+    @Override
+    public void copyFrom(EncumbranceComponent other) {
+        this.carriedWeight = other.carriedWeight;
+        this.carryCapacity = other.carryCapacity;
+        this.speedMultiplier = other.speedMultiplier;
+    }
+}
@@ -4,6 +4,8 @@ package org.terasology.physicalstats.component;
 
 import org.terasology.engine.entitySystem.entity.EntityRef;
 
+import java.util.Collection;
+
 /**
  * Interface for the application of physical stat modifiers over a period of time.
  */
@@ -30,4 +32,40 @@ public interface IPhysicalStatsModifyEffect {
      * @param modifier      The physical stats modifier that's going to be applied to the entity.
      */
     void applyMod(EntityRef instigator, EntityRef entity, PhysicalStatsModifierComponent modifier);
+
+    /**
+     * Apply the PhysicalStatsModifier declared by a prefab on the entity. All entities share the same definition.
+     *
+     * @param instigator    The instigator who is applying this modifier on the entity. It can be another entity, block,
+     *                      item, etc.
+     * @param entity        The entity who the physical stats modifier is being applied on.
+     * @param definition    The name of a prefab with a PhysicalStatsModifierComponent.
+     * @param duration      The duration of the effect in milliseconds. If this is 0, the modifier is permanent unless
+     *                      explicitly removed.
+     */
+    void applyMod(EntityRef instigator, EntityRef entity, String definition, long duration);
+
+    /**
+     * Apply several PhysicalStatsModifiers on several entities at once for the given duration. Each entity's modifiers
+     * list is saved only once, and each entity receives a single OnPhysicalStatsModifierAddedEvent listing all of the
+     * applied modifiers.
+     *
+     * @param instigator    The instigator who is applying these modifiers on the entities. It can be another entity,
+     *                      block, item, etc.
+     * @param entities      The entities who the physical stats modifiers are being applied on.
+     * @param modifiers     The physical stats modifiers that are going to be applied to each entity.
+     * @param duration      The duration of the effects in milliseconds. If this is 0, the modifiers are permanent
+     *                      unless explicitly removed.
+     */
+    void applyMods(EntityRef instigator, Collection<EntityRef> entities,
+                   Collection<PhysicalStatsModifierComponent> modifiers, long duration);
+
+    /**
+     * Remove every PhysicalStatsModifier that the instigator applied, from every entity it applied them to. This takes
+     * time proportional to the number of modifiers the instigator applied, so it is suitable for cleaning up after a
+     * caster dies or an item is unequipped.
+     *
+     * @param instigator    The instigator whose modifiers are being removed.
+     */
+    void removeAllFrom(EntityRef instigator);
 }
@@ -0,0 +1,31 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.physicalstats.component;
+
+import org.terasology.engine.network.Replicate;
+import org.terasology.gestalt.entitysystem.component.Component;
+
+/**
+ * This component puts the user of an item on cooldown after using it, scaled by the user's effective dexterity. Items
+ * of the same cooldown class share one cooldown, so using one makes all of them unavailable until it's over. All items
+ * of a class should declare the same base cooldown; the first one seen defines it.
+ */
+public class ItemCooldownComponent implements Component<ItemCooldownComponent> {
+    /** The name of the cooldown class that this item belongs to. */
+    @Replicate
+    public String cooldownClass = "default";
+
+    /** The cooldown in milliseconds for a user with {@code CooldownTable.BASE_DEXTERITY}. */
+    @Replicate
+    public long cooldown = 1000;
+
+    /** The index of the cooldown class in the cooldown table, or -1 if it hasn't been looked up yet. */
+    public transient int classIndex = -1;
+
+    @Override
+    public void copyFrom(ItemCooldownComponent other) {
+        this.cooldownClass = other.cooldownClass;
+        this.cooldown = other.cooldown;
+        this.classIndex = -1;
+    }
+}
@@ -0,0 +1,21 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.physicalstats.component;
+
+import org.terasology.engine.network.Replicate;
+import org.terasology.gestalt.entitysystem.component.Component;
+
+/**
+ * This component gives an item a weight, which counts towards the carried weight of the inventory holding it. Items
+ * without it weigh nothing.
+ */
+public class ItemWeightComponent implements Component<ItemWeightComponent> {
+    /** The weight of a single item of the stack. */
+    @Replicate
+    public float weight = 1;
+
+    @Override
+    public void copyFrom(ItemWeightComponent other) {
+        this.weight = other.weight;
+    }
+}
@@ -0,0 +1,21 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.physicalstats.component;
+
+/**
+ * Defines how the values of a physical stats modifier combine with the entity's base stats and other modifiers. The
+ * effective value of a stat is {@code min(CAP, round((base + ADDITIVE + HIGHEST) * MULTIPLICATIVE))}.
+ */
+public enum ModifierStacking {
+    /** The modifier's values are added to the stats. This is the default. */
+    ADDITIVE,
+
+    /** The modifier's values are percentages, e.g. 20 multiplies the stat by 1.2. Several of these multiply together. */
+    MULTIPLICATIVE,
+
+    /** Only the highest value among all modifiers of this kind is added to each stat, e.g. for overlapping auras. */
+    HIGHEST,
+
+    /** The modifier's values are upper limits of the stats. The lowest cap applies. A value of 0 means no cap. */
+    CAP
+}
@@ -0,0 +1,76 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.physicalstats.component;
+
+import java.util.Locale;
+
+/**
+ * The seven physical stats or attributes. The ordinal of each stat is its index into stat vectors, i.e. the int arrays
+ * handled by {@link PhysicalStatArrays}.
+ */
+public enum PhysicalStat {
+    STRENGTH("STR"),
+    DEXTERITY("DEX"),
+    CONSTITUTION("CON"),
+    AGILITY("AGI"),
+    ENDURANCE("END"),
+    CHARISMA("CHA"),
+    LUCK("LUK");
+
+    /** The number of physical stats, and therefore the length of every stat vector. */
+    public static final int COUNT = 7;
+
+    /** Cached copy of {@link #values()} so that lookups by index don't allocate a new array every time. */
+    private static final PhysicalStat[] VALUES = values();
+
+    /** The three letter abbreviation of this stat, e.g. STR. */
+    private final String abbreviation;
+
+    PhysicalStat(String abbreviation) {
+        this.abbreviation = abbreviation;
+    }
+
+    /**
+     * Get the three letter abbreviation of this stat.
+     *
+     * @return  The abbreviation, e.g. STR.
+     */
+    public String getAbbreviation() {
+        return abbreviation;
+    }
+
+    /**
+     * Get the index of this stat in a stat vector.
+     *
+     * @return  The index of this stat.
+     */
+    public int index() {
+        return ordinal();
+    }
+
+    /**
+     * Get the stat at the given stat vector index.
+     *
+     * @param index     Index of the stat, between 0 and {@link #COUNT} (exclusive).
+     * @return          The stat at that index.
+     */
+    public static PhysicalStat byIndex(int index) {
+        return VALUES[index];
+    }
+
+    /**
+     * Look up a stat by either its abbreviation (STR) or its full name (strength), ignoring case.
+     *
+     * @param name  The abbreviation or name of the stat.
+     * @return      The matching stat, or null if there is none.
+     */
+    public static PhysicalStat find(String name) {
+        String upper = name.trim().toUpperCase(Locale.ROOT);
+        for (PhysicalStat stat : VALUES) {
+            if (stat.abbreviation.equals(upper) || stat.name().equals(upper)) {
+                return stat;
+            }
+        }
+        return null;
+    }
+}
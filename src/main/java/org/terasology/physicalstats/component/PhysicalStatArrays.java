@@ -0,0 +1,135 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.physicalstats.component;
+
+/**
+ * Helper methods for stat vectors, i.e. int arrays of length {@link PhysicalStat#COUNT} indexed by
+ * {@link PhysicalStat#index()}. These are the only place where the named stat fields of the components are mapped to
+ * and from vector indices; everything else works on whole vectors.
+ */
+public final class PhysicalStatArrays {
+    private PhysicalStatArrays() {
+    }
+
+    /**
+     * Create a new stat vector with every stat set to 0.
+     *
+     * @return  The new stat vector.
+     */
+    public static int[] create() {
+        return new int[PhysicalStat.COUNT];
+    }
+
+    /**
+     * Copy the base stats of the given component into the given stat vector.
+     *
+     * @param phy   The base physical stats to read.
+     * @param out   The stat vector to write into.
+     * @return      The given stat vector.
+     */
+    public static int[] read(PhysicalStatsComponent phy, int[] out) {
+        out[0] = phy.strength;
+        out[1] = phy.dexterity;
+        out[2] = phy.constitution;
+        out[3] = phy.agility;
+        out[4] = phy.endurance;
+        out[5] = phy.charisma;
+        out[6] = phy.luck;
+        return out;
+    }
+
+    /**
+     * Copy the stat values of the given modifier into the given stat vector.
+     *
+     * @param modifier  The physical stats modifier to read.
+     * @param out       The stat vector to write into.
+     * @return          The given stat vector.
+     */
+    public static int[] read(PhysicalStatsModifierComponent modifier, int[] out) {
+        out[0] = modifier.strength;
+        out[1] = modifier.dexterity;
+        out[2] = modifier.constitution;
+        out[3] = modifier.agility;
+        out[4] = modifier.endurance;
+        out[5] = modifier.charisma;
+        out[6] = modifier.luck;
+        return out;
+    }
+
+    /**
+     * Copy the given stat vector into the base stats of the given component.
+     *
+     * @param values    The stat vector to read.
+     * @param phy       The base physical stats to write into.
+     */
+    public static void write(int[] values, PhysicalStatsComponent phy) {
+        phy.strength = values[0];
+        phy.dexterity = values[1];
+        phy.constitution = values[2];
+        phy.agility = values[3];
+        phy.endurance = values[4];
+        phy.charisma = values[5];
+        phy.luck = values[6];
+    }
+
+    /**
+     * Add the stat values of the given modifier to the given stat vector.
+     *
+     * @param target    The stat vector to add to.
+     * @param modifier  The modifier whose values are added.
+     */
+    public static void add(int[] target, PhysicalStatsModifierComponent modifier) {
+        target[0] += modifier.strength;
+        target[1] += modifier.dexterity;
+        target[2] += modifier.constitution;
+        target[3] += modifier.agility;
+        target[4] += modifier.endurance;
+        target[5] += modifier.charisma;
+        target[6] += modifier.luck;
+    }
+
+    /**
+     * Subtract the stat values of the given modifier from the given stat vector.
+     *
+     * @param target    The stat vector to subtract from.
+     * @param modifier  The modifier whose values are subtracted.
+     */
+    public static void subtract(int[] target, PhysicalStatsModifierComponent modifier) {
+        target[0] -= modifier.strength;
+        target[1] -= modifier.dexterity;
+        target[2] -= modifier.constitution;
+        target[3] -= modifier.agility;
+        target[4] -= modifier.endurance;
+        target[5] -= modifier.charisma;
+        target[6] -= modifier.luck;
+    }
+
+    /**
+     * Add one stat vector to another.
+     *
+     * @param target    The stat vector to add to.
+     * @param values    The stat vector that is added.
+     */
+    public static void add(int[] target, int[] values) {
+        for (int i = 0; i < PhysicalStat.COUNT; i++) {
+            target[i] += values[i];
+        }
+    }
+
+    /**
+     * Compare two stat vectors.
+     *
+     * @param a     The first stat vector.
+     * @param b     The second stat vector.
+     * @return      A bitmask with bit {@code 1 << stat.index()} set for every stat that differs.
+     */
+    public static int diff(int[] a, int[] b) {
+        int mask = 0;
+        for (int i = 0; i < PhysicalStat.COUNT; i++) {
+            if (a[i] != b[i]) {
+                mask |= 1 << i;
+            }
+        }
+        return mask;
+    }
+}
@@ -14,7 +14,7 @@ public class PhysicalStatsComponent implements Component<PhysicalStatsComponent>
     @Replicate
     public int strength;
 
-    /** The dexterity stat will affect weapon accuracy and item use speed in the future. */
+    /** The dexterity stat affects item use cooldowns, and will affect weapon accuracy in the future. */
     @Replicate
     public int dexterity;
 
@@ -26,7 +26,7 @@ public class PhysicalStatsComponent implements Component<PhysicalStatsComponent>
     @Replicate
     public int agility;
 
-    /** The endurance stat will affect something in the future. */
+    /** The endurance stat affects an entity's stamina and carrying capacity. */
     @Replicate
     public int endurance;
 
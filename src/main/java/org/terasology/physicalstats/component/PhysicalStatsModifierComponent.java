@@ -23,11 +23,17 @@ public class PhysicalStatsModifierComponent implements Component<PhysicalStatsMo
     @Replicate
     public String id;
 
+    /**
+     * How the values of this modifier combine with the base stats and other modifiers. Additive by default.
+     */
+    @Replicate
+    public ModifierStacking stacking = ModifierStacking.ADDITIVE;
+
     /** The strength stat affects how much physical damage an entity does upon striking a target. */
     @Replicate
     public int strength;
 
-    /** The dexterity stat will affect weapon accuracy and item use speed in the future. */
+    /** The dexterity stat affects item use cooldowns, and will affect weapon accuracy in the future. */
     @Replicate
     public int dexterity;
 
@@ -39,7 +45,7 @@ public class PhysicalStatsModifierComponent implements Component<PhysicalStatsMo
     @Replicate
     public int agility;
 
-    /** The endurance stat will affect something in the future. */
+    /** The endurance stat affects an entity's stamina and carrying capacity. */
     @Replicate
     public int endurance;
 
@@ -54,6 +60,7 @@ public class PhysicalStatsModifierComponent implements Component<PhysicalStatsMo
     @Override
     public void copyFrom(PhysicalStatsModifierComponent other) {
         this.id = other.id;
+        this.stacking = other.stacking;
         this.strength = other.strength;
         this.dexterity = other.dexterity;
         this.constitution = other.constitution;
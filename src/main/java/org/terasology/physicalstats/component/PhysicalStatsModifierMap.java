@@ -0,0 +1,202 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.physicalstats.component;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The map of modifiers on an entity, keyed by modifier ID, together with the per-entity state of each modifier: the
+ * entity that applied it, and the game time at which it expires. Removing a modifier from the map in any way, including
+ * through its views and their iterators, also removes its state, and a modifier added under a new ID starts without
+ * any. This has its own type handler, so that the whole map is saved as one compact binary record.
+ */
+public class PhysicalStatsModifierMap extends AbstractMap<String, PhysicalStatsModifierComponent> {
+    /** The modifiers, keyed by modifier ID. */
+    private final Map<String, PhysicalStatsModifierComponent> modifiers = new HashMap<>();
+
+    /** A view of the modifiers that removes the state of every modifier removed through it. */
+    private final Set<Entry<String, PhysicalStatsModifierComponent>> entrySet = new EntrySet();
+
+    /** The ID of the entity that applied each modifier, keyed by modifier ID. */
+    private final Map<String, Long> instigatorIds = new HashMap<>();
+
+    /** The game time in milliseconds at which each temporary modifier expires, keyed by modifier ID. */
+    private final Map<String, Long> expiryTimes = new HashMap<>();
+
+    /**
+     * Create an empty map.
+     */
+    public PhysicalStatsModifierMap() {
+    }
+
+    /**
+     * Create a copy of the given map, including the state of its modifiers. The modifiers themselves are shared.
+     *
+     * @param other The map to copy.
+     */
+    public PhysicalStatsModifierMap(PhysicalStatsModifierMap other) {
+        modifiers.putAll(other.modifiers);
+        instigatorIds.putAll(other.instigatorIds);
+        expiryTimes.putAll(other.expiryTimes);
+    }
+
+    /**
+     * Get the ID of the entity that applied the modifier.
+     *
+     * @param id    The ID of the modifier.
+     * @return      The ID of the instigator, or 0 if it isn't known.
+     */
+    public long getInstigatorId(String id) {
+        return instigatorIds.getOrDefault(id, 0L);
+    }
+
+    /**
+     * Set the ID of the entity that applied the modifier. This is ignored if the modifier isn't in the map.
+     *
+     * @param id            The ID of the modifier.
+     * @param instigatorId  The ID of the instigator, or 0 if it isn't known.
+     */
+    public void setInstigatorId(String id, long instigatorId) {
+        if (instigatorId == 0) {
+            instigatorIds.remove(id);
+        } else if (modifiers.containsKey(id)) {
+            instigatorIds.put(id, instigatorId);
+        }
+    }
+
+    /**
+     * Get the IDs of the entities that applied the modifiers.
+     *
+     * @return  A read-only view of the instigator IDs, keyed by modifier ID.
+     */
+    public Map<String, Long> getInstigatorIds() {
+        return Collections.unmodifiableMap(instigatorIds);
+    }
+
+    /**
+     * Get the game time at which the modifier expires.
+     *
+     * @param id    The ID of the modifier.
+     * @return      The expiry time in milliseconds, or 0 if the modifier is permanent.
+     */
+    public long getExpiryTime(String id) {
+        return expiryTimes.getOrDefault(id, 0L);
+    }
+
+    /**
+     * Set the game time at which the modifier expires. This is ignored if the modifier isn't in the map.
+     *
+     * @param id            The ID of the modifier.
+     * @param expiryTime    The expiry time in milliseconds, or 0 if the modifier is permanent.
+     */
+    public void setExpiryTime(String id, long expiryTime) {
+        if (expiryTime <= 0) {
+            expiryTimes.remove(id);
+        } else if (modifiers.containsKey(id)) {
+            expiryTimes.put(id, expiryTime);
+        }
+    }
+
+    /**
+     * Get the game times at which the temporary modifiers expire.
+     *
+     * @return  A read-only view of the expiry times, keyed by modifier ID.
+     */
+    public Map<String, Long> getExpiryTimes() {
+        return Collections.unmodifiableMap(expiryTimes);
+    }
+
+    @Override
+    public int size() {
+        return modifiers.size();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return modifiers.containsKey(key);
+    }
+
+    @Override
+    public PhysicalStatsModifierComponent get(Object key) {
+        return modifiers.get(key);
+    }
+
+    @Override
+    public PhysicalStatsModifierComponent put(String key, PhysicalStatsModifierComponent value) {
+        PhysicalStatsModifierComponent previous = modifiers.put(key, value);
+        if (previous == null) {
+            forgetState(key);
+        }
+        return previous;
+    }
+
+    @Override
+    public PhysicalStatsModifierComponent remove(Object key) {
+        forgetState(key);
+        return modifiers.remove(key);
+    }
+
+    @Override
+    public void clear() {
+        instigatorIds.clear();
+        expiryTimes.clear();
+        modifiers.clear();
+    }
+
+    @Override
+    public Set<Entry<String, PhysicalStatsModifierComponent>> entrySet() {
+        return entrySet;
+    }
+
+    private void forgetState(Object key) {
+        instigatorIds.remove(key);
+        expiryTimes.remove(key);
+    }
+
+    /**
+     * The entries of the map. Every other view and bulk operation of AbstractMap goes through this, so removing the
+     * state here covers all of them.
+     */
+    private final class EntrySet extends AbstractSet<Entry<String, PhysicalStatsModifierComponent>> {
+        @Override
+        public Iterator<Entry<String, PhysicalStatsModifierComponent>> iterator() {
+            Iterator<Entry<String, PhysicalStatsModifierComponent>> iterator = modifiers.entrySet().iterator();
+            return new Iterator<Entry<String, PhysicalStatsModifierComponent>>() {
+                private Entry<String, PhysicalStatsModifierComponent> current;
+
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public Entry<String, PhysicalStatsModifierComponent> next() {
+                    current = iterator.next();
+                    return current;
+                }
+
+                @Override
+                public void remove() {
+                    iterator.remove();
+                    forgetState(current.getKey());
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return modifiers.size();
+        }
+
+        @Override
+        public void clear() {
+            PhysicalStatsModifierMap.this.clear();
+        }
+    }
+}
@@ -2,27 +2,92 @@
 // SPDX-License-Identifier: Apache-2.0
 package org.terasology.physicalstats.component;
 
-import com.google.common.collect.Maps;
+import org.terasology.engine.entitySystem.entity.EntityRef;
 import org.terasology.gestalt.entitysystem.component.Component;
 
-import java.util.HashMap;
-import java.util.Map;
-
 /**
  * This component is used for storing a mapped list of physical stats modifiers that are applied to the entity that
  * this component's attached to. Each map entry is a reference to an item's or effect's physical stat modifiers. This is
  * intended to be attached to entities, not items. Use PhysicalStatsModifierComponent for items.
  *
- * Note: Make sure that the entity you are attaching this to has a PhysicalStatsComponent.
+ * Note: Make sure that the entity you are attaching this to has a PhysicalStatsComponent. Use {@link #put} and
+ * {@link #remove} rather than changing the map directly, so that the running aggregates stay up to date. Modifiers
+ * applied through PhysicalStatsModifyEffect are shared definitions from the PhysicalStatsModifierRegistry, so they must
+ * not be changed in place; the per-entity state of a modifier is kept alongside it in the {@link PhysicalStatsModifierMap}.
  */
 public class PhysicalStatsModifiersListComponent implements Component<PhysicalStatsModifiersListComponent> {
     /**
-     * A map of physical stats modifiers being applied to an entity.
+     * A map of physical stats modifiers being applied to an entity, along with the instigator and expiry time of each.
+     */
+    public PhysicalStatsModifierMap modifiers = new PhysicalStatsModifierMap();
+
+    /**
+     * The running aggregates of all modifiers in the map. These aren't persisted, and are rebuilt from the map when
+     * they're first needed.
+     */
+    private transient StatAggregates aggregates;
+
+    /**
+     * Add a modifier to the map, replacing any modifier with the same ID, and update the running aggregates.
+     *
+     * @param modifier  The modifier to add.
+     * @return          The modifier that was replaced, or null if there was none.
+     */
+    public PhysicalStatsModifierComponent put(PhysicalStatsModifierComponent modifier) {
+        StatAggregates current = getAggregates();
+        PhysicalStatsModifierComponent replaced = modifiers.put(modifier.id, modifier);
+        if (replaced != null) {
+            current.remove(replaced);
+        }
+        current.add(modifier);
+        return replaced;
+    }
+
+    /**
+     * Add a modifier to the map as {@link #put(PhysicalStatsModifierComponent)} does, and remember its instigator.
+     *
+     * @param modifier      The modifier to add.
+     * @param instigator    The entity that applied the modifier.
+     * @return              The modifier that was replaced, or null if there was none.
+     */
+    public PhysicalStatsModifierComponent put(PhysicalStatsModifierComponent modifier, EntityRef instigator) {
+        PhysicalStatsModifierComponent replaced = put(modifier);
+        modifiers.setInstigatorId(modifier.id, instigator == null || !instigator.exists() ? 0 : instigator.getId());
+        return replaced;
+    }
+
+    /**
+     * Remove the modifier with the given ID from the map, and update the running aggregates.
+     *
+     * @param id    ID of the modifier to remove.
+     * @return      The modifier that was removed, or null if there was none.
      */
-    public Map<String, PhysicalStatsModifierComponent> modifiers = new HashMap<String, PhysicalStatsModifierComponent>();
+    public PhysicalStatsModifierComponent remove(String id) {
+        PhysicalStatsModifierComponent removed = modifiers.remove(id);
+        if (removed != null && aggregates != null) {
+            aggregates.remove(removed);
+        }
+        return removed;
+    }
+
+    /**
+     * Get the running aggregates of all modifiers on this entity.
+     *
+     * @return  The aggregates, which can be applied to the base stats to get the effective stats.
+     */
+    public StatAggregates getAggregates() {
+        if (aggregates == null) {
+            aggregates = new StatAggregates();
+            for (PhysicalStatsModifierComponent mod : modifiers.values()) {
+                aggregates.add(mod);
+            }
+        }
+        return aggregates;
+    }
 
     @Override
     public void copyFrom(PhysicalStatsModifiersListComponent other) {
-        other.modifiers = Maps.newHashMap(other.modifiers);
+        this.modifiers = new PhysicalStatsModifierMap(other.modifiers);
+        this.aggregates = null;
     }
 }
@@ -4,9 +4,17 @@ package org.terasology.physicalstats.component;
 
 import org.terasology.engine.context.Context;
 import org.terasology.engine.entitySystem.entity.EntityRef;
-import org.terasology.engine.logic.delay.DelayManager;
 import org.terasology.physicalstats.event.OnPhysicalStatsModifierAddedEvent;
 import org.terasology.physicalstats.event.OnPhysicalStatsModifierRemovedEvent;
+import org.terasology.physicalstats.metrics.PhysicalStatsMetrics;
+import org.terasology.physicalstats.metrics.StatHandler;
+import org.terasology.physicalstats.system.PhysicalStatsModifierRegistry;
+import org.terasology.physicalstats.system.PhysicalStatsModifierSystem;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * Class that handles the application and removal of permanent or temporary physical stats modifiers to/from an entity.
@@ -14,87 +22,115 @@ import org.terasology.physicalstats.event.OnPhysicalStatsModifierRemovedEvent;
 public class PhysicalStatsModifyEffect implements IPhysicalStatsModifyEffect {
 
     /**
-     * Reference to the delay manager for adding temporary modifiers.
+     * Reference to the modifier system for scheduling the expiry of temporary modifiers. This is only available on the
+     * authority.
+     */
+    private final PhysicalStatsModifierSystem modifierSystem;
+
+    /**
+     * Reference to the registry of shared modifier definitions.
      */
-    private final DelayManager delayManager;
+    private final PhysicalStatsModifierRegistry registry;
 
     /**
-     * Create an instance of this class using the passed in Context to get the Time and DelayManager instances.
+     * Create an instance of this class using the passed in Context to get the PhysicalStatsModifierSystem and
+     * PhysicalStatsModifierRegistry instances.
      *
      * @param context Reference to the current context that this object is running in.
      */
     public PhysicalStatsModifyEffect(Context context) {
-        this.delayManager = context.get(DelayManager.class);
+        this.modifierSystem = context.get(PhysicalStatsModifierSystem.class);
+        this.registry = context.get(PhysicalStatsModifierRegistry.class);
+    }
+
+    @Override
+    public void applyMod(EntityRef instigator, EntityRef entity, String definition, long duration) {
+        PhysicalStatsModifierComponent modifier = registry == null ? null : registry.getDefinition(definition);
+        if (modifier == null) {
+            throw new IllegalArgumentException("There is no physical stats modifier prefab named " + definition);
+        }
+        applyMods(instigator, Collections.singletonList(entity), Collections.singletonList(modifier), duration);
     }
 
     @Override
     public void applyMod(EntityRef instigator, EntityRef entity, PhysicalStatsModifierComponent modifier, long duration) {
-        // If the duration is less than or equal to 0, throw an exception as this is an invalid value for duration.
+        applyMods(instigator, Collections.singletonList(entity), Collections.singletonList(modifier), duration);
+    }
+
+    @Override
+    public void applyMod(EntityRef instigator, EntityRef entity, PhysicalStatsModifierComponent modifier) {
+        applyMods(instigator, Collections.singletonList(entity), Collections.singletonList(modifier), 0);
+    }
+
+    @Override
+    public void applyMods(EntityRef instigator, Collection<EntityRef> entities,
+                          Collection<PhysicalStatsModifierComponent> modifiers, long duration) {
+        // If the duration is less than 0, throw an exception as this is an invalid value for duration.
         if (duration < 0) {
             throw (new IllegalArgumentException("The inputted duration of " + duration + " falls outside the permitted boundaries."));
         }
-
-        // Get the list of physical stats modifiers on this entity.
-        PhysicalStatsModifiersListComponent modifiersList =
-                entity.getComponent(PhysicalStatsModifiersListComponent.class);
-
-        // If the list is null, create a new list and add the list to the entity.
-        if (modifiersList == null) {
-            modifiersList = new PhysicalStatsModifiersListComponent();
-            entity.addComponent(modifiersList);
+        if (modifiers.isEmpty()) {
+            return;
         }
+        long start = PhysicalStatsMetrics.start();
 
-        // If a modifier with this ID doesn't already exist in the list, add the modifier to the list. oOtherwise,
-        // replace the old modifier with this new one.
-        if (modifiersList.modifiers.get(modifier.id) == null) {
-            modifiersList.modifiers.put(modifier.id, modifier);
-        } else {
-            modifiersList.modifiers.replace(modifier.id, modifier);
+        // All affected entities are told about the same batch of modifiers, so the list can be shared by their events.
+        // The entities share the interned definitions rather than holding a copy each.
+        List<PhysicalStatsModifierComponent> applied = new ArrayList<>(modifiers.size());
+        for (PhysicalStatsModifierComponent modifier : modifiers) {
+            applied.add(registry == null ? modifier : registry.intern(modifier));
         }
 
-        //TODO: figure out whether it is correct to treat a duration of 0 as permanent.
-
-        // If the duration is greater than 0, add this to the DelayManager. This indicates that the effect
-        // is temporary. Otherwise, the effect will be treated as permanent unless another entity manually removes the
-        // effect.
-        if (duration > 0) {
-            delayManager.addDelayedAction(entity, "" + modifier.id, duration);
+        for (EntityRef entity : entities) {
+            // Get the list of physical stats modifiers on this entity, or create a new one if there is none yet.
+            PhysicalStatsModifiersListComponent modifiersList =
+                    entity.getComponent(PhysicalStatsModifiersListComponent.class);
+            boolean isNewList = modifiersList == null;
+            if (isNewList) {
+                modifiersList = new PhysicalStatsModifiersListComponent();
+            }
+
+            for (PhysicalStatsModifierComponent modifier : applied) {
+                // Add the modifier to the list, replacing any old modifier with the same ID.
+                modifiersList.put(modifier, instigator);
+
+                //TODO: figure out whether it is correct to treat a duration of 0 as permanent.
+
+                // If the duration is greater than 0, schedule the modifier's expiry. This indicates that the effect is
+                // temporary, and re-applying it moves its deadline. Otherwise, the effect will be treated as permanent
+                // unless another entity manually removes the effect, so any pending expiry of an older modifier with
+                // this ID is cancelled.
+                if (modifierSystem != null) {
+                    modifierSystem.recordInstigator(instigator, entity, modifier.id);
+                    if (duration > 0) {
+                        modifiersList.modifiers.setExpiryTime(modifier.id,
+                                modifierSystem.scheduleExpiry(entity, modifier.id, duration));
+                    } else {
+                        modifierSystem.cancelExpiry(entity, modifier.id);
+                        modifiersList.modifiers.setExpiryTime(modifier.id, 0);
+                    }
+                }
+            }
+
+            // Write the modifiers list back to the entity once for the whole batch.
+            if (isNewList) {
+                entity.addComponent(modifiersList);
+            } else {
+                entity.saveComponent(modifiersList);
+            }
+
+            // Send an event to the affected entity alerting that physical stats modifiers have been added to it.
+            entity.send(new OnPhysicalStatsModifierAddedEvent(instigator, entity, applied));
+            PhysicalStatsMetrics.recordModifierCount(modifiersList.modifiers.size());
         }
-
-        // Add/save the modifiers list
-        entity.addOrSaveComponent(modifiersList);
-        entity.saveComponent(modifiersList);
-
-        // Send an event to the affected entity alerting that a physical stats modifier has been added to it.
-        entity.send(new OnPhysicalStatsModifierAddedEvent(instigator, entity, modifier));
+        PhysicalStatsMetrics.stop(StatHandler.APPLY_MOD, start);
     }
 
     @Override
-    public void applyMod(EntityRef instigator, EntityRef entity, PhysicalStatsModifierComponent modifier) {
-        // Get the list of physical stats modifiers on this entity.
-        PhysicalStatsModifiersListComponent modifiersList =
-                entity.getComponent(PhysicalStatsModifiersListComponent.class);
-
-        // If the list is null, create a new list and add the list to the entity.
-        if (modifiersList == null) {
-            modifiersList = new PhysicalStatsModifiersListComponent();
-            entity.addComponent(modifiersList);
-        }
-
-        // If a modifier with this ID doesn't already exist in the list, add the modifier to the list. oOtherwise,
-        // replace the old modifier with this new one.
-        if (modifiersList.modifiers.get(modifier.id) == null) {
-            modifiersList.modifiers.put(modifier.id, modifier);
-        } else {
-            modifiersList.modifiers.replace(modifier.id, modifier);
+    public void removeAllFrom(EntityRef instigator) {
+        if (modifierSystem != null) {
+            modifierSystem.removeAllFrom(instigator);
         }
-
-        // Add/save the modifiers list
-        entity.addOrSaveComponent(modifiersList);
-        entity.saveComponent(modifiersList);
-
-        // Send an event to the affected entity alerting that a physical stats modifier has been added to it.
-        entity.send(new OnPhysicalStatsModifierAddedEvent(instigator, entity, modifier));
     }
 
     /**
@@ -105,20 +141,43 @@ public class PhysicalStatsModifyEffect implements IPhysicalStatsModifyEffect {
      * @param id ID of the entity to be removed.
      */
     public static void removeMod(EntityRef instigator, EntityRef entity, String id) {
+        removeMods(instigator, entity, Collections.singletonList(id));
+    }
+
+    /**
+     * Remove several PhysicalStatsModifiers from the entity at once, saving its modifiers list only once. IDs that don't
+     * exist on the entity are ignored.
+     *
+     * @param instigator Entity that is removing these modifiers.
+     * @param entity Entity that the modifiers are being removed from.
+     * @param ids IDs of the modifiers to be removed.
+     */
+    public static void removeMods(EntityRef instigator, EntityRef entity, Collection<String> ids) {
         // Get the list of physical stats modifiers on this entity.
         PhysicalStatsModifiersListComponent modifiersList =
                 entity.getComponent(PhysicalStatsModifiersListComponent.class);
 
-        // If there's no modifier on this entity, or the provided modifier ID doesn't exist, return.
-        if (modifiersList == null || modifiersList.modifiers.get(id) == null) {
+        // If there's no modifier on this entity, return.
+        if (modifiersList == null) {
             return;
         }
 
-        // Get the modifier from the list, and then remove it from the list.
-        PhysicalStatsModifierComponent temp = modifiersList.modifiers.get(id);
-        modifiersList.modifiers.remove(id);
+        // Remove the modifiers from the list, skipping IDs that don't exist.
+        List<PhysicalStatsModifierComponent> removed = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            PhysicalStatsModifierComponent temp = modifiersList.remove(id);
+            if (temp != null) {
+                removed.add(temp);
+            }
+        }
+        if (removed.isEmpty()) {
+            return;
+        }
+        entity.saveComponent(modifiersList);
 
         // Send an event to the affected entity alerting that a physical stats modifier has been removed from it.
-        entity.send(new OnPhysicalStatsModifierRemovedEvent(instigator, entity, temp));
+        for (PhysicalStatsModifierComponent temp : removed) {
+            entity.send(new OnPhysicalStatsModifierRemovedEvent(instigator, entity, temp));
+        }
     }
 }
@@ -0,0 +1,32 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.physicalstats.component;
+
+import org.terasology.engine.network.Replicate;
+import org.terasology.gestalt.entitysystem.component.Component;
+
+/**
+ * This component gives an entity with physical stats a stamina pool, which drains while it sprints and regenerates
+ * otherwise. Both the size of the pool and the speed of regeneration are derived from its effective endurance by the
+ * StaminaSystem, which keeps the exact value itself and only writes whole points back to this component.
+ */
+public class StaminaComponent implements Component<StaminaComponent> {
+    /** The current stamina, in whole points. */
+    @Replicate
+    public int currentStamina;
+
+    /** The maximum stamina, derived from endurance. 0 until the entity's stamina has been set up. */
+    @Replicate
+    public int maxStamina;
+
+    /** The stamina used per second of sprinting. */
+    @Replicate
+    public float sprintCost = 20;
+
+    @Override
+    public void copyFrom(StaminaComponent other) {
+        this.currentStamina = other.currentStamina;
+        this.maxStamina = other.maxStamina;
+        this.sprintCost = other.sprintCost;
+    }
+}
@@ -0,0 +1,151 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.physicalstats.component;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Running aggregates of a set of physical stats modifiers, with one aggregate per stacking category and stat: sums for
+ * additive modifiers, and sorted multisets for the multiplicative factors and the highest and cap values. Adding or
+ * removing a modifier is O(log n), plus recomputing the product of the distinct factors for a multiplicative one, and
+ * applying the aggregates to a stat vector is O(1) per stat.
+ *
+ * Note: A modifier's values must not change while it's part of the aggregates, or removing it will give wrong totals.
+ */
+public class StatAggregates {
+    /** The summed values of the additive modifiers. */
+    private final int[] sums = PhysicalStatArrays.create();
+
+    /**
+     * The percentages of the multiplicative modifiers per stat, like {@link #highest}. The product is recomputed from
+     * these on every change rather than divided by a removed factor, which would let rounding errors build up.
+     */
+    private TreeMap<Integer, Integer>[] factors;
+
+    /** The product of the factors of the multiplicative modifiers per stat. */
+    private final double[] products = new double[PhysicalStat.COUNT];
+
+    /**
+     * The values of the highest-wins modifiers per stat, each mapped to the number of modifiers with that value. Created
+     * when first needed, since most entities never have one.
+     */
+    private TreeMap<Integer, Integer>[] highest;
+
+    /** The values of the cap modifiers per stat, like {@link #highest}. */
+    private TreeMap<Integer, Integer>[] caps;
+
+    /** The current highest value per stat, or 0 if there is no highest-wins modifier for it. */
+    private final int[] highestValues = PhysicalStatArrays.create();
+
+    /** The current lowest cap per stat, or Integer.MAX_VALUE if there is no cap for it. */
+    private final int[] capValues = PhysicalStatArrays.create();
+
+    /** Scratch vector for reading the values of a modifier. */
+    private final int[] scratch = PhysicalStatArrays.create();
+
+    public StatAggregates() {
+        Arrays.fill(products, 1.0);
+        Arrays.fill(capValues, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Add a modifier to the aggregates.
+     *
+     * @param modifier  The modifier to add.
+     */
+    public void add(PhysicalStatsModifierComponent modifier) {
+        update(modifier, 1);
+    }
+
+    /**
+     * Remove a modifier that was previously added from the aggregates.
+     *
+     * @param modifier  The modifier to remove.
+     */
+    public void remove(PhysicalStatsModifierComponent modifier) {
+        update(modifier, -1);
+    }
+
+    /**
+     * Apply the aggregated modifiers to the given stat vector, which holds the base stats.
+     *
+     * @param stats     The base stats, which are replaced by the effective stats.
+     */
+    public void apply(int[] stats) {
+        for (int i = 0; i < PhysicalStat.COUNT; i++) {
+            int value = stats[i] + sums[i] + highestValues[i];
+            if (products[i] != 1.0) {
+                value = (int) Math.round(value * products[i]);
+            }
+            stats[i] = Math.min(value, capValues[i]);
+        }
+    }
+
+    private void update(PhysicalStatsModifierComponent modifier, int sign) {
+        int[] values = PhysicalStatArrays.read(modifier, scratch);
+        ModifierStacking stacking = modifier.stacking != null ? modifier.stacking : ModifierStacking.ADDITIVE;
+        switch (stacking) {
+            case MULTIPLICATIVE:
+                if (factors == null) {
+                    factors = newMultisets();
+                }
+                for (int i = 0; i < PhysicalStat.COUNT; i++) {
+                    if (values[i] != 0) {
+                        updateMultiset(factors[i], values[i], sign);
+                        products[i] = product(factors[i]);
+                    }
+                }
+                break;
+            case HIGHEST:
+                if (highest == null) {
+                    highest = newMultisets();
+                }
+                for (int i = 0; i < PhysicalStat.COUNT; i++) {
+                    if (values[i] != 0) {
+                        updateMultiset(highest[i], values[i], sign);
+                        highestValues[i] = highest[i].isEmpty() ? 0 : highest[i].lastKey();
+                    }
+                }
+                break;
+            case CAP:
+                if (caps == null) {
+                    caps = newMultisets();
+                }
+                for (int i = 0; i < PhysicalStat.COUNT; i++) {
+                    if (values[i] != 0) {
+                        updateMultiset(caps[i], values[i], sign);
+                        capValues[i] = caps[i].isEmpty() ? Integer.MAX_VALUE : caps[i].firstKey();
+                    }
+                }
+                break;
+            default:
+                for (int i = 0; i < PhysicalStat.COUNT; i++) {
+                    sums[i] += sign * values[i];
+                }
+                break;
+        }
+    }
+
+    private static double product(Map<Integer, Integer> percentages) {
+        double product = 1.0;
+        for (Map.Entry<Integer, Integer> entry : percentages.entrySet()) {
+            product *= Math.pow(1.0 + entry.getKey() / 100.0, entry.getValue());
+        }
+        return product;
+    }
+
+    private static void updateMultiset(Map<Integer, Integer> multiset, int value, int sign) {
+        multiset.merge(value, sign, (count, delta) -> count + delta == 0 ? null : count + delta);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static TreeMap<Integer, Integer>[] newMultisets() {
+        TreeMap<Integer, Integer>[] multisets = new TreeMap[PhysicalStat.COUNT];
+        for (int i = 0; i < PhysicalStat.COUNT; i++) {
+            multisets[i] = new TreeMap<>();
+        }
+        return multisets;
+    }
+}
@@ -0,0 +1,25 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.physicalstats.component;
+
+import org.terasology.engine.network.Replicate;
+import org.terasology.gestalt.entitysystem.component.Component;
+
+/**
+ * This component gives an entity the base stats of a shared stat archetype instead of its own PhysicalStatsComponent.
+ * The archetype is a prefab with a PhysicalStatsComponent that isn't spawned itself, and all entities referencing it
+ * share one immutable copy of its stats. An entity only gets its own PhysicalStatsComponent once its base stats are
+ * changed, e.g. by a command or a level-up, through StatArchetypeSystem#materialize.
+ *
+ * This is meant for mass-spawned creatures, whose stats almost never diverge from their prefab.
+ */
+public class StatArchetypeComponent implements Component<StatArchetypeComponent> {
+    /** The name of the prefab that declares the archetype's base stats, like "MyModule:goblinStats". */
+    @Replicate
+    public String archetype;
+
+    @Override
+    public void copyFrom(StatArchetypeComponent other) {
+        this.archetype = other.archetype;
+    }
+}
@@ -0,0 +1,35 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.physicalstats.component;
+
+import org.terasology.engine.network.Replicate;
+import org.terasology.gestalt.entitysystem.component.Component;
+
+/**
+ * This component turns an entity with a location into the center of an aura. Every other entity with physical stats
+ * that is within the aura's radius has the aura's modifier applied to it, and has it removed again once it leaves.
+ *
+ * The modifier's ID is replaced by one that is unique to the emitting entity, so that two auras of the same kind stack
+ * according to the modifier's stacking rule. Use {@link ModifierStacking#HIGHEST} for auras that shouldn't stack.
+ */
+public class StatAuraComponent implements Component<StatAuraComponent> {
+    /** The radius of the aura in blocks. */
+    @Replicate
+    public float radius = 8;
+
+    /** Whether the emitting entity is affected by its own aura. */
+    @Replicate
+    public boolean affectsSelf;
+
+    /** The modifier applied to every entity within the aura. */
+    @Replicate
+    public PhysicalStatsModifierComponent modifier = new PhysicalStatsModifierComponent();
+
+    @Override
+    public void copyFrom(StatAuraComponent other) {
+        this.radius = other.radius;
+        this.affectsSelf = other.affectsSelf;
+        this.modifier = new PhysicalStatsModifierComponent();
+        this.modifier.copyFrom(other.modifier);
+    }
+}
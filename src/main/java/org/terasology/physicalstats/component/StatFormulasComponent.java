@@ -0,0 +1,28 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.physicalstats.component;
+
+import org.terasology.gestalt.entitysystem.component.Component;
+
+/**
+ * This component declares the formulas for the values that are derived from physical stats. It's read from the
+ * PhysicalStats:statFormulas prefab when the game starts, so other modules can change the formulas with a delta of that
+ * prefab instead of forking this module. See StatFormulaCompiler for the supported syntax.
+ */
+public class StatFormulasComponent implements Component<StatFormulasComponent> {
+    /** The bonus physical damage an entity deals when striking a target. */
+    public String physicalDamage = "STR / 2";
+
+    /** The bonus to an entity's maximum movement speed, where 1 means +100%. */
+    public String maxSpeed = "max(-1, (AGI - 10) / 10)";
+
+    /** The maximum health of an entity. */
+    public String maxHealth = "CON * 10";
+
+    @Override
+    public void copyFrom(StatFormulasComponent other) {
+        this.physicalDamage = other.physicalDamage;
+        this.maxSpeed = other.maxSpeed;
+        this.maxHealth = other.maxHealth;
+    }
+}
@@ -0,0 +1,115 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.physicalstats.cooldown;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The cooldowns of every item class for every dexterity bucket, computed once when the class is registered. Dexterity
+ * is grouped into buckets of {@link #BUCKET_SIZE} points, so looking up a cooldown is two array accesses and never
+ * involves evaluating the scaling. Classes are numbered densely in the order they're registered.
+ */
+public class CooldownTable {
+    /** The number of dexterity points per bucket. */
+    public static final int BUCKET_SIZE = 5;
+
+    /** The number of buckets. Dexterity beyond the last bucket counts as the last bucket. */
+    public static final int BUCKET_COUNT = 21;
+
+    /** The dexterity at which items have exactly their base cooldown. */
+    public static final int BASE_DEXTERITY = 10;
+
+    /** The smallest factor that dexterity can scale a cooldown by. */
+    public static final float MIN_MULTIPLIER = 0.25f;
+
+    /** The largest factor that dexterity can scale a cooldown by. */
+    public static final float MAX_MULTIPLIER = 2f;
+
+    /** The index of each class, by name. */
+    private final Map<String, Integer> classes = new HashMap<>();
+
+    /** The cooldowns of each class, indexed by bucket. */
+    private long[][] rows = new long[8][];
+
+    private int size;
+
+    /**
+     * Add a class to the table, computing its cooldown for every bucket. A class that is already registered keeps its
+     * original cooldowns.
+     *
+     * @param cooldownClass The name of the class.
+     * @param baseCooldown  The cooldown in milliseconds at {@link #BASE_DEXTERITY}.
+     * @return              The index of the class.
+     */
+    public int register(String cooldownClass, long baseCooldown) {
+        Integer existing = classes.get(cooldownClass);
+        if (existing != null) {
+            return existing;
+        }
+        long[] row = new long[BUCKET_COUNT];
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            row[bucket] = Math.round(baseCooldown * getMultiplier(bucket));
+        }
+        if (size == rows.length) {
+            rows = Arrays.copyOf(rows, size * 2);
+        }
+        rows[size] = row;
+        classes.put(cooldownClass, size);
+        return size++;
+    }
+
+    /**
+     * Get the index of a class.
+     *
+     * @param cooldownClass The name of the class.
+     * @return              The index of the class, or -1 if it isn't registered.
+     */
+    public int getIndex(String cooldownClass) {
+        Integer index = classes.get(cooldownClass);
+        return index != null ? index : -1;
+    }
+
+    /**
+     * Get the cooldown of a class for a bucket.
+     *
+     * @param classIndex    The index of the class.
+     * @param bucket        The dexterity bucket.
+     * @return              The cooldown in milliseconds.
+     */
+    public long get(int classIndex, int bucket) {
+        return rows[classIndex][bucket];
+    }
+
+    /**
+     * Get the number of registered classes.
+     *
+     * @return  The number of classes.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the bucket of a dexterity value.
+     *
+     * @param dexterity The effective dexterity.
+     * @return          The bucket, between 0 and {@link #BUCKET_COUNT} (exclusive).
+     */
+    public static int getBucket(int dexterity) {
+        return Math.max(0, Math.min(BUCKET_COUNT - 1, dexterity / BUCKET_SIZE));
+    }
+
+    /**
+     * Get the factor that cooldowns are scaled by in a bucket. It's inversely proportional to the lowest dexterity of
+     * the bucket, so twice the base dexterity halves the cooldown.
+     *
+     * @param bucket    The dexterity bucket.
+     * @return          The factor, between {@link #MIN_MULTIPLIER} and {@link #MAX_MULTIPLIER}.
+     */
+    public static float getMultiplier(int bucket) {
+        float multiplier = (float) BASE_DEXTERITY / Math.max(1, bucket * BUCKET_SIZE);
+        return Math.max(MIN_MULTIPLIER, Math.min(MAX_MULTIPLIER, multiplier));
+    }
+}
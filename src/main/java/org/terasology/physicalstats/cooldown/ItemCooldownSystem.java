@@ -0,0 +1,216 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.physicalstats.cooldown;
+
+import org.terasology.engine.core.Time;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.entitySystem.entity.lifecycleEvents.BeforeDeactivateComponent;
+import org.terasology.engine.entitySystem.event.EventPriority;
+import org.terasology.engine.entitySystem.prefab.Prefab;
+import org.terasology.engine.entitySystem.prefab.PrefabManager;
+import org.terasology.engine.entitySystem.systems.BaseComponentSystem;
+import org.terasology.engine.entitySystem.systems.RegisterMode;
+import org.terasology.engine.entitySystem.systems.RegisterSystem;
+import org.terasology.engine.logic.common.ActivateEvent;
+import org.terasology.engine.registry.In;
+import org.terasology.engine.registry.Share;
+import org.terasology.gestalt.entitysystem.event.ReceiveEvent;
+import org.terasology.physicalstats.component.ColumnarStatsComponent;
+import org.terasology.physicalstats.component.EffectivePhysicalStatsComponent;
+import org.terasology.physicalstats.component.ItemCooldownComponent;
+import org.terasology.physicalstats.component.PhysicalStat;
+import org.terasology.physicalstats.component.PhysicalStatArrays;
+import org.terasology.physicalstats.event.OnPhysicalStatChangedEvent;
+import org.terasology.physicalstats.system.PhysicalStatsSystem;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This system puts item users with physical stats on cooldown, scaled by their effective dexterity. The cooldowns of
+ * every item class and dexterity bucket come from a precomputed CooldownTable, and each user only remembers its bucket,
+ * which is updated when its dexterity changes, and one array with the time at which each class is ready again. Using
+ * an item whose class is still on cooldown consumes the ActivateEvent before the item's own handlers see it.
+ */
+@RegisterSystem(RegisterMode.AUTHORITY)
+@Share(ItemCooldownSystem.class)
+public class ItemCooldownSystem extends BaseComponentSystem {
+    /**
+     * The cooldown state of a single user.
+     */
+    private static final class UserCooldowns {
+        /** The user's dexterity bucket. */
+        private int bucket;
+
+        /** The game time at which each cooldown class is ready again, indexed by class. */
+        private long[] readyTimes;
+
+        private UserCooldowns(int bucket, int classCount) {
+            this.bucket = bucket;
+            this.readyTimes = new long[Math.max(1, classCount)];
+        }
+    }
+
+    @In
+    private Time time;
+
+    @In
+    private PrefabManager prefabManager;
+
+    @In
+    private PhysicalStatsSystem physicalStatsSystem;
+
+    /** A stat vector for reading the stats of columnar users. Only used on the main thread. */
+    private final int[] scratch = PhysicalStatArrays.create();
+
+    private final CooldownTable table = new CooldownTable();
+
+    /** The cooldown state of every user that has used an item with a cooldown. */
+    private final Map<EntityRef, UserCooldowns> users = new HashMap<>();
+
+    /**
+     * Compute the cooldowns of every class declared by an item prefab, so that they're ready before the first use.
+     */
+    @Override
+    public void initialise() {
+        for (Prefab prefab : prefabManager.listPrefabs(ItemCooldownComponent.class)) {
+            ItemCooldownComponent cooldown = prefab.getComponent(ItemCooldownComponent.class);
+            table.register(cooldown.cooldownClass, cooldown.cooldown);
+        }
+    }
+
+    /**
+     * Get the table of cooldowns.
+     *
+     * @return  The table.
+     */
+    public CooldownTable getTable() {
+        return table;
+    }
+
+    /**
+     * Get the time until the given user can use items of the given class again.
+     *
+     * @param user          The user.
+     * @param cooldownClass The name of the cooldown class.
+     * @return              The remaining cooldown in milliseconds, or 0 if the class is ready.
+     */
+    public long getRemainingCooldown(EntityRef user, String cooldownClass) {
+        UserCooldowns cooldowns = users.get(user);
+        int classIndex = table.getIndex(cooldownClass);
+        if (cooldowns == null || classIndex < 0 || classIndex >= cooldowns.readyTimes.length) {
+            return 0;
+        }
+        return Math.max(0, cooldowns.readyTimes[classIndex] - time.getGameTimeInMs());
+    }
+
+    /**
+     * End every cooldown of the given user.
+     *
+     * @param user  The user.
+     */
+    public void resetCooldowns(EntityRef user) {
+        UserCooldowns cooldowns = users.get(user);
+        if (cooldowns != null) {
+            Arrays.fill(cooldowns.readyTimes, 0);
+        }
+    }
+
+    /**
+     * When an item with a cooldown is used, block the use if its class is still on cooldown for the user, and start
+     * the cooldown otherwise.
+     *
+     * @param event     Event with the user of the item.
+     * @param item      Reference to the item being used.
+     * @param cooldown  The cooldown of the item.
+     */
+    @ReceiveEvent(priority = EventPriority.PRIORITY_HIGH)
+    public void onActivate(ActivateEvent event, EntityRef item, ItemCooldownComponent cooldown) {
+        UserCooldowns cooldowns = getUserCooldowns(event.getInstigator());
+        if (cooldowns == null) {
+            return;
+        }
+        if (cooldown.classIndex < 0) {
+            cooldown.classIndex = table.register(cooldown.cooldownClass, cooldown.cooldown);
+        }
+        int classIndex = cooldown.classIndex;
+        if (classIndex >= cooldowns.readyTimes.length) {
+            cooldowns.readyTimes = Arrays.copyOf(cooldowns.readyTimes, table.size());
+        }
+
+        long now = time.getGameTimeInMs();
+        if (now < cooldowns.readyTimes[classIndex]) {
+            event.consume();
+        } else {
+            cooldowns.readyTimes[classIndex] = now + table.get(classIndex, cooldowns.bucket);
+        }
+    }
+
+    /**
+     * When a user's effective dexterity changes, move it to its new bucket. Cooldowns that are already running keep
+     * their end time.
+     *
+     * @param event     Event with the changed stats.
+     * @param entity    Reference to the entity that was affected.
+     */
+    @ReceiveEvent
+    public void onStatsChanged(OnPhysicalStatChangedEvent event, EntityRef entity) {
+        if (!event.hasChanged(PhysicalStat.DEXTERITY)) {
+            return;
+        }
+        UserCooldowns cooldowns = users.get(entity);
+        if (cooldowns == null) {
+            return;
+        }
+        if (event.hasValues()) {
+            cooldowns.bucket = CooldownTable.getBucket(event.getNewValue(PhysicalStat.DEXTERITY));
+        } else {
+            int[] stats = physicalStatsSystem.getEffectiveStats(entity, scratch);
+            if (stats != null) {
+                cooldowns.bucket = CooldownTable.getBucket(stats[PhysicalStat.DEXTERITY.index()]);
+            }
+        }
+    }
+
+    /**
+     * When a user is unloaded or destroyed, forget its cooldowns.
+     *
+     * @param event     Event indicating the effective stats are about to be deactivated.
+     * @param entity    Reference to the entity that was affected.
+     */
+    @ReceiveEvent(components = EffectivePhysicalStatsComponent.class)
+    public void onEffectiveStatsDeactivated(BeforeDeactivateComponent event, EntityRef entity) {
+        users.remove(entity);
+    }
+
+    /**
+     * When a user whose stats are kept in the ColumnarStatStore is unloaded or destroyed, forget its cooldowns.
+     *
+     * @param event     Event indicating the columnar stats are about to be deactivated.
+     * @param entity    Reference to the entity that was affected.
+     */
+    @ReceiveEvent(components = ColumnarStatsComponent.class)
+    public void onColumnarStatsDeactivated(BeforeDeactivateComponent event, EntityRef entity) {
+        users.remove(entity);
+    }
+
+    /**
+     * Get the cooldown state of the given user, creating it on its first use of an item.
+     *
+     * @param user  The user.
+     * @return      The cooldown state, or null if the user has no effective stats.
+     */
+    private UserCooldowns getUserCooldowns(EntityRef user) {
+        UserCooldowns cooldowns = users.get(user);
+        if (cooldowns == null) {
+            int[] stats = physicalStatsSystem.getEffectiveStats(user, scratch);
+            if (stats == null) {
+                return null;
+            }
+            cooldowns = new UserCooldowns(CooldownTable.getBucket(stats[PhysicalStat.DEXTERITY.index()]), table.size());
+            users.put(user, cooldowns);
+        }
+        return cooldowns;
+    }
+}
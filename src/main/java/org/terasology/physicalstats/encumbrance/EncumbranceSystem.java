@@ -0,0 +1,260 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.physicalstats.encumbrance;
+
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.entitySystem.entity.lifecycleEvents.BeforeDeactivateComponent;
+import org.terasology.engine.entitySystem.entity.lifecycleEvents.OnActivatedComponent;
+import org.terasology.engine.entitySystem.systems.BaseComponentSystem;
+import org.terasology.engine.entitySystem.systems.RegisterMode;
+import org.terasology.engine.entitySystem.systems.RegisterSystem;
+import org.terasology.engine.logic.inventory.ItemComponent;
+import org.terasology.engine.registry.In;
+import org.terasology.engine.registry.Share;
+import org.terasology.gestalt.entitysystem.event.ReceiveEvent;
+import org.terasology.module.inventory.components.InventoryComponent;
+import org.terasology.module.inventory.events.InventorySlotChangedEvent;
+import org.terasology.module.inventory.events.InventorySlotStackSizeChangedEvent;
+import org.terasology.physicalstats.component.EffectivePhysicalStatsComponent;
+import org.terasology.physicalstats.component.EncumbranceComponent;
+import org.terasology.physicalstats.component.ItemWeightComponent;
+import org.terasology.physicalstats.component.PhysicalStat;
+import org.terasology.physicalstats.component.PhysicalStatArrays;
+import org.terasology.physicalstats.event.OnPhysicalStatChangedEvent;
+import org.terasology.physicalstats.system.PhysicalStatsSystem;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This system keeps track of the total weight of every inventory and derives the carry capacity of entities from their
+ * effective endurance. An inventory's contents are only scanned once, when it's loaded; after that, its weight is
+ * adjusted by the difference in weight of the changed slot whenever a slot changes. Entities with an
+ * EncumbranceComponent have their weight, capacity and resulting speed multiplier stored in it, which the
+ * PhysicalStatsSystem applies in its speed handler.
+ */
+@RegisterSystem(RegisterMode.AUTHORITY)
+@Share(EncumbranceSystem.class)
+public class EncumbranceSystem extends BaseComponentSystem {
+    /** The weight that an entity can carry per point of effective endurance without being slowed down. */
+    public static final float CAPACITY_PER_ENDURANCE = 5;
+
+    /**
+     * The speed multiplier of an entity carrying twice its capacity or more. Between its capacity and twice its
+     * capacity, an entity's speed decreases linearly.
+     */
+    public static final float MIN_SPEED_MULTIPLIER = 0.25f;
+
+    /**
+     * The weight of each slot of an inventory, and their total.
+     */
+    private static final class InventoryWeight {
+        private float[] slots;
+        private double total;
+
+        private InventoryWeight(int slotCount) {
+            slots = new float[Math.max(1, slotCount)];
+        }
+
+        /**
+         * @return  The difference between the new and the old weight of the slot.
+         */
+        private float set(int slot, float weight) {
+            if (slot >= slots.length) {
+                slots = Arrays.copyOf(slots, Math.max(slot + 1, slots.length * 2));
+            }
+            float difference = weight - slots[slot];
+            slots[slot] = weight;
+            total += difference;
+            return difference;
+        }
+    }
+
+    @In
+    private PhysicalStatsSystem physicalStatsSystem;
+
+    /** The weight of every loaded inventory. */
+    private final Map<EntityRef, InventoryWeight> inventories = new HashMap<>();
+
+    private final int[] scratch = PhysicalStatArrays.create();
+
+    /**
+     * Get the total weight of the items in the given inventory.
+     *
+     * @param inventory The entity with the inventory.
+     * @return          The total weight, or 0 if the entity has no inventory.
+     */
+    public float getWeight(EntityRef inventory) {
+        InventoryWeight weight = inventories.get(inventory);
+        return weight != null ? (float) weight.total : 0;
+    }
+
+    /**
+     * Get the weight of an item stack.
+     *
+     * @param item  The item.
+     * @return      The weight of a single item times the size of the stack, or 0 if the item has no weight.
+     */
+    public static float getWeightOf(EntityRef item) {
+        ItemWeightComponent weight = item.getComponent(ItemWeightComponent.class);
+        if (weight == null) {
+            return 0;
+        }
+        ItemComponent itemComp = item.getComponent(ItemComponent.class);
+        return weight.weight * (itemComp != null ? itemComp.stackCount : 1);
+    }
+
+    /**
+     * Get the carry capacity that goes with the given endurance.
+     *
+     * @param endurance The effective endurance.
+     * @return          The weight that can be carried without being slowed down.
+     */
+    public static float getCapacity(int endurance) {
+        return Math.max(0, endurance) * CAPACITY_PER_ENDURANCE;
+    }
+
+    /**
+     * Get the speed multiplier of an entity carrying the given weight.
+     *
+     * @param weight    The carried weight.
+     * @param capacity  The carry capacity.
+     * @return          1 if the weight is within the capacity, otherwise between 1 and {@link #MIN_SPEED_MULTIPLIER}.
+     */
+    public static float getSpeedMultiplier(float weight, float capacity) {
+        if (weight <= capacity) {
+            return 1;
+        }
+        if (capacity <= 0) {
+            return MIN_SPEED_MULTIPLIER;
+        }
+        float overload = (weight - capacity) / capacity;
+        return Math.max(MIN_SPEED_MULTIPLIER, 1 - overload * (1 - MIN_SPEED_MULTIPLIER));
+    }
+
+    /**
+     * When an inventory is loaded, weigh its contents once.
+     *
+     * @param event     Event indicating the inventory has been activated.
+     * @param entity    Reference to the entity with the inventory.
+     * @param inventory The inventory.
+     */
+    @ReceiveEvent
+    public void onInventoryActivated(OnActivatedComponent event, EntityRef entity, InventoryComponent inventory) {
+        InventoryWeight weight = new InventoryWeight(inventory.itemSlots.size());
+        for (int slot = 0; slot < inventory.itemSlots.size(); slot++) {
+            weight.set(slot, getWeightOf(inventory.itemSlots.get(slot)));
+        }
+        inventories.put(entity, weight);
+        updateEncumbrance(entity);
+    }
+
+    /**
+     * When an inventory is unloaded or destroyed, forget its weight.
+     *
+     * @param event     Event indicating the inventory is about to be deactivated.
+     * @param entity    Reference to the entity with the inventory.
+     */
+    @ReceiveEvent(components = InventoryComponent.class)
+    public void onInventoryDeactivated(BeforeDeactivateComponent event, EntityRef entity) {
+        inventories.remove(entity);
+    }
+
+    /**
+     * When an item is put into or taken out of an inventory slot, adjust the inventory's weight by the difference.
+     *
+     * @param event     Event with the slot and its old and new item.
+     * @param entity    Reference to the entity with the inventory.
+     */
+    @ReceiveEvent
+    public void onSlotChanged(InventorySlotChangedEvent event, EntityRef entity) {
+        InventoryWeight weight = inventories.get(entity);
+        if (weight != null && weight.set(event.getSlot(), getWeightOf(event.getNewItem())) != 0) {
+            updateEncumbrance(entity);
+        }
+    }
+
+    /**
+     * When the size of a stack in an inventory slot changes, adjust the inventory's weight by the difference.
+     *
+     * @param event     Event with the slot and its old and new stack size.
+     * @param entity    Reference to the entity with the inventory.
+     * @param inventory The inventory.
+     */
+    @ReceiveEvent
+    public void onStackSizeChanged(InventorySlotStackSizeChangedEvent event, EntityRef entity,
+                                   InventoryComponent inventory) {
+        InventoryWeight weight = inventories.get(entity);
+        if (weight == null || event.getSlot() >= inventory.itemSlots.size()) {
+            return;
+        }
+        ItemWeightComponent itemWeight =
+                inventory.itemSlots.get(event.getSlot()).getComponent(ItemWeightComponent.class);
+        float slotWeight = itemWeight != null ? itemWeight.weight * event.getNewValue() : 0;
+        if (weight.set(event.getSlot(), slotWeight) != 0) {
+            updateEncumbrance(entity);
+        }
+    }
+
+    /**
+     * When an entity that can be encumbered is loaded or placed, compute its capacity. Its stats are read through
+     * PhysicalStatsSystem#getEffectiveStats, so this also covers entities that keep them in the ColumnarStatStore.
+     *
+     * @param event     Event indicating the encumbrance has been activated.
+     * @param entity    Reference to the entity that was activated.
+     */
+    @ReceiveEvent(components = EncumbranceComponent.class)
+    public void onEncumbranceActivated(OnActivatedComponent event, EntityRef entity) {
+        updateEncumbrance(entity);
+    }
+
+    /**
+     * When an entity that can be encumbered gets its effective stats after its encumbrance, compute its capacity again.
+     *
+     * @param event     Event indicating the effective stats have been activated.
+     * @param entity    Reference to the entity that was activated.
+     */
+    @ReceiveEvent(components = {EncumbranceComponent.class, EffectivePhysicalStatsComponent.class})
+    public void onEffectiveStatsActivated(OnActivatedComponent event, EntityRef entity) {
+        updateEncumbrance(entity);
+    }
+
+    /**
+     * When an entity's effective endurance changes, update its capacity.
+     *
+     * @param event     Event with the changed stats.
+     * @param entity    Reference to the entity that was affected.
+     * @param component The encumbrance of the entity.
+     */
+    @ReceiveEvent
+    public void onStatsChanged(OnPhysicalStatChangedEvent event, EntityRef entity, EncumbranceComponent component) {
+        if (event.hasChanged(PhysicalStat.ENDURANCE)) {
+            updateEncumbrance(entity);
+        }
+    }
+
+    /**
+     * Bring the entity's EncumbranceComponent in line with its inventory weight and endurance, saving it only if
+     * something changed.
+     *
+     * @param entity    The entity.
+     */
+    private void updateEncumbrance(EntityRef entity) {
+        EncumbranceComponent encumbrance = entity.getComponent(EncumbranceComponent.class);
+        if (encumbrance == null) {
+            return;
+        }
+        int[] stats = physicalStatsSystem.getEffectiveStats(entity, scratch);
+        float weight = getWeight(entity);
+        float capacity = getCapacity(stats != null ? stats[PhysicalStat.ENDURANCE.index()] : 0);
+        float multiplier = getSpeedMultiplier(weight, capacity);
+        if (encumbrance.carriedWeight != weight || encumbrance.carryCapacity != capacity
+                || encumbrance.speedMultiplier != multiplier) {
+            encumbrance.carriedWeight = weight;
+            encumbrance.carryCapacity = capacity;
+            encumbrance.speedMultiplier = multiplier;
+            entity.saveComponent(encumbrance);
+        }
+    }
+}
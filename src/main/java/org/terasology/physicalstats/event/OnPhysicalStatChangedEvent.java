@@ -4,23 +4,40 @@ package org.terasology.physicalstats.event;
 
 import org.terasology.engine.entitySystem.entity.EntityRef;
 import org.terasology.gestalt.entitysystem.event.Event;
+import org.terasology.physicalstats.component.PhysicalStat;
 
 /**
- * This event is sent to an entity when there's a change in one or more of its physical stats.
+ * This event is sent to an entity when there's a change in one or more of its physical stats. The
+ * PhysicalStatsChangeSystem sends it at most once per tick for each entity, covering all changes to the effective stats
+ * during that tick. It includes a bitmask of the stats that changed, so listeners can cheaply ignore the stats they
+ * don't care about.
  */
 public class OnPhysicalStatChangedEvent implements Event {
+    /** A bitmask with every stat set, used when it's unknown which stats have changed. */
+    public static final int ALL_STATS = (1 << PhysicalStat.COUNT) - 1;
+
     /** A reference to the entity who caused the change in physical stats. */
     private EntityRef instigator;
 
     /** A reference to the entity whose stats have been altered. */
     private EntityRef character;
 
+    /** A bitmask with bit {@code 1 << stat.index()} set for every stat that changed. */
+    private int changedStats = ALL_STATS;
+
+    /** The effective stats before the change, or null if they're unknown. */
+    private int[] oldValues;
+
+    /** The effective stats after the change, or null if they're unknown. */
+    private int[] newValues;
+
     /** Default constructor. */
     public OnPhysicalStatChangedEvent() {
     }
 
     /**
-     * Create an instance of this event with the given instigator and the affected entity.
+     * Create an instance of this event with the given instigator and the affected entity. As the changed stats are
+     * unknown, all of them are marked as changed.
      *
      * @param instigator    Entity who caused the physical stat changes in the character.
      * @param character     Entity whose physical stats have been modified.
@@ -30,6 +47,25 @@ public class OnPhysicalStatChangedEvent implements Event {
         this.character = character;
     }
 
+    /**
+     * Create an instance of this event with the given instigator and the affected entity, as well as the changed stats
+     * and the effective stats before and after the change.
+     *
+     * @param instigator    Entity who caused the physical stat changes in the character.
+     * @param character     Entity whose physical stats have been modified.
+     * @param changedStats  Bitmask with bit {@code 1 << stat.index()} set for every stat that changed.
+     * @param oldValues     The effective stats before the change.
+     * @param newValues     The effective stats after the change.
+     */
+    public OnPhysicalStatChangedEvent(EntityRef instigator, EntityRef character, int changedStats, int[] oldValues,
+                                      int[] newValues) {
+        this.instigator = instigator;
+        this.character = character;
+        this.changedStats = changedStats;
+        this.oldValues = oldValues;
+        this.newValues = newValues;
+    }
+
     /**
      * Get the entity who instigated this stat(s) changed event.
      *
@@ -47,4 +83,52 @@ public class OnPhysicalStatChangedEvent implements Event {
     public EntityRef getCharacter() {
         return character;
     }
+
+    /**
+     * Get the bitmask of the stats that changed.
+     *
+     * @return  Bitmask with bit {@code 1 << stat.index()} set for every stat that changed.
+     */
+    public int getChangedStats() {
+        return changedStats;
+    }
+
+    /**
+     * Check whether the given stat changed.
+     *
+     * @param stat  The stat to check.
+     * @return      True if the stat changed, or if it's unknown which stats changed.
+     */
+    public boolean hasChanged(PhysicalStat stat) {
+        return (changedStats & (1 << stat.index())) != 0;
+    }
+
+    /**
+     * Get the effective value of the given stat before the change.
+     *
+     * @param stat  The stat to get.
+     * @return      The old effective value, or 0 if it's unknown.
+     */
+    public int getOldValue(PhysicalStat stat) {
+        return oldValues != null ? oldValues[stat.index()] : 0;
+    }
+
+    /**
+     * Get the effective value of the given stat after the change.
+     *
+     * @param stat  The stat to get.
+     * @return      The new effective value, or 0 if it's unknown.
+     */
+    public int getNewValue(PhysicalStat stat) {
+        return newValues != null ? newValues[stat.index()] : 0;
+    }
+
+    /**
+     * Check whether this event includes the effective stats before and after the change.
+     *
+     * @return  True if the old and new values are known.
+     */
+    public boolean hasValues() {
+        return oldValues != null && newValues != null;
+    }
 }
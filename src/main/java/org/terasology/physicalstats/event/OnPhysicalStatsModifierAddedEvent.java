@@ -6,8 +6,12 @@ import org.terasology.engine.entitySystem.entity.EntityRef;
 import org.terasology.gestalt.entitysystem.event.Event;
 import org.terasology.physicalstats.component.PhysicalStatsModifierComponent;
 
+import java.util.Collections;
+import java.util.List;
+
 /**
- * This event is sent to an entity when a physical stats modifier has been added to it.
+ * This event is sent to an entity when one or more physical stats modifiers have been added to it. When several
+ * modifiers are applied in one batch, a single event lists all of them.
  */
 public class OnPhysicalStatsModifierAddedEvent implements Event {
     /** A reference to the entity who added the physical stats modifier. */
@@ -16,8 +20,8 @@ public class OnPhysicalStatsModifierAddedEvent implements Event {
     /** A reference to the entity that had the physical stats modifier added to it. */
     private EntityRef character;
 
-    /** The physical stats modifier that was added. */
-    private PhysicalStatsModifierComponent pStatsModifier;
+    /** The physical stats modifiers that were added. */
+    private List<PhysicalStatsModifierComponent> pStatsModifiers = Collections.emptyList();
 
     /**
      * Create an instance of this event with the given instigator.
@@ -50,7 +54,22 @@ public class OnPhysicalStatsModifierAddedEvent implements Event {
                                              PhysicalStatsModifierComponent pStatsModifier) {
         this.instigator = instigator;
         this.character = character;
-        this.pStatsModifier = pStatsModifier;
+        this.pStatsModifiers = Collections.singletonList(pStatsModifier);
+    }
+
+    /**
+     * Create an instance of this event with the given instigator, affected entity, and the physical stats modifiers
+     * that were added together.
+     *
+     * @param instigator        Entity who added the modifiers.
+     * @param character         Entity that was affected.
+     * @param pStatsModifiers   Physical stats modifiers that were added.
+     */
+    public OnPhysicalStatsModifierAddedEvent(EntityRef instigator, EntityRef character,
+                                             List<PhysicalStatsModifierComponent> pStatsModifiers) {
+        this.instigator = instigator;
+        this.character = character;
+        this.pStatsModifiers = Collections.unmodifiableList(pStatsModifiers);
     }
 
     /**
@@ -72,11 +91,21 @@ public class OnPhysicalStatsModifierAddedEvent implements Event {
     }
 
     /**
-     * Get the physical stats modifier that was attached to the character entity.
+     * Get the physical stats modifier that was attached to the character entity. If several modifiers were added at
+     * once, this is the first of them.
      *
-     * @return  The physical stats modifier.
+     * @return  The physical stats modifier, or null if there is none.
      */
     public PhysicalStatsModifierComponent getPModifier() {
-        return pStatsModifier;
+        return pStatsModifiers.isEmpty() ? null : pStatsModifiers.get(0);
+    }
+
+    /**
+     * Get all of the physical stats modifiers that were attached to the character entity.
+     *
+     * @return  The physical stats modifiers, in the order that they were applied.
+     */
+    public List<PhysicalStatsModifierComponent> getPModifiers() {
+        return pStatsModifiers;
     }
 }
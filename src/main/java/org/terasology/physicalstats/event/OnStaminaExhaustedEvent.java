@@ -0,0 +1,12 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.physicalstats.event;
+
+import org.terasology.gestalt.entitysystem.event.Event;
+
+/**
+ * This event is sent to an entity when its stamina runs out while it's sprinting. Movement systems can use it to stop
+ * the entity from sprinting until it has recovered.
+ */
+public class OnStaminaExhaustedEvent implements Event {
+}
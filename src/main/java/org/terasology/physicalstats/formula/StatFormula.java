@@ -0,0 +1,18 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.physicalstats.formula;
+
+/**
+ * A compiled formula that derives a value, like bonus damage or max health, from an entity's stats. Formulas are
+ * compiled once by the {@link StatFormulaCompiler} and evaluating them doesn't allocate.
+ */
+@FunctionalInterface
+public interface StatFormula {
+    /**
+     * Evaluate this formula for the given stats.
+     *
+     * @param stats     The stat vector to evaluate the formula for, indexed by PhysicalStat#index().
+     * @return          The derived value.
+     */
+    float evaluate(int[] stats);
+}
@@ -0,0 +1,314 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.physicalstats.formula;
+
+import org.terasology.physicalstats.component.PhysicalStat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Compiles formula expressions like {@code max(-1, (AGI - 10) / 10)} into {@link StatFormula}s.
+ *
+ * Expressions support numbers, the stats by abbreviation or name (e.g. STR or strength), the operators + - * / with the
+ * usual precedence, parentheses, and the functions min(a, b), max(a, b), clamp(x, low, high), floor(x), ceil(x) and
+ * abs(x). The expression is parsed once into a tree of small evaluators, with constant sub-expressions folded, so
+ * evaluating it is plain arithmetic without any interpretation of the source text.
+ */
+public final class StatFormulaCompiler {
+    /** The expression being compiled. */
+    private final String source;
+
+    /** The position of the parser in the expression. */
+    private int position;
+
+    private StatFormulaCompiler(String source) {
+        this.source = source;
+    }
+
+    /**
+     * Compile the given expression.
+     *
+     * @param expression    The formula expression.
+     * @return              The compiled formula.
+     * @throws IllegalArgumentException If the expression is not a valid formula.
+     */
+    public static StatFormula compile(String expression) {
+        StatFormulaCompiler compiler = new StatFormulaCompiler(expression);
+        Node node = compiler.parseExpression();
+        compiler.skipWhitespace();
+        if (compiler.position != expression.length()) {
+            throw compiler.error("Unexpected '" + expression.charAt(compiler.position) + "'");
+        }
+        return node.formula;
+    }
+
+    private Node parseExpression() {
+        Node left = parseTerm();
+        while (true) {
+            if (consume('+')) {
+                left = add(left, parseTerm());
+            } else if (consume('-')) {
+                left = subtract(left, parseTerm());
+            } else {
+                return left;
+            }
+        }
+    }
+
+    private Node parseTerm() {
+        Node left = parseUnary();
+        while (true) {
+            if (consume('*')) {
+                left = multiply(left, parseUnary());
+            } else if (consume('/')) {
+                left = divide(left, parseUnary());
+            } else {
+                return left;
+            }
+        }
+    }
+
+    private Node parseUnary() {
+        if (consume('-')) {
+            Node operand = parseUnary();
+            if (operand.isConstant()) {
+                return Node.constant(-operand.value);
+            }
+            StatFormula f = operand.formula;
+            return Node.of(stats -> -f.evaluate(stats));
+        }
+        return parsePrimary();
+    }
+
+    private Node parsePrimary() {
+        skipWhitespace();
+        if (consume('(')) {
+            Node inner = parseExpression();
+            expect(')');
+            return inner;
+        }
+        if (position >= source.length()) {
+            throw error("Unexpected end of formula");
+        }
+        char c = source.charAt(position);
+        if (Character.isDigit(c) || c == '.') {
+            return parseNumber();
+        }
+        if (Character.isLetter(c)) {
+            String name = parseName();
+            if (consume('(')) {
+                return parseFunction(name);
+            }
+            PhysicalStat stat = PhysicalStat.find(name);
+            if (stat == null) {
+                throw error("Unknown stat '" + name + "'");
+            }
+            int index = stat.index();
+            return Node.of(stats -> stats[index]);
+        }
+        throw error("Unexpected '" + c + "'");
+    }
+
+    private Node parseNumber() {
+        int start = position;
+        while (position < source.length()
+                && (Character.isDigit(source.charAt(position)) || source.charAt(position) == '.')) {
+            position++;
+        }
+        try {
+            return Node.constant(Float.parseFloat(source.substring(start, position)));
+        } catch (NumberFormatException e) {
+            throw error("Invalid number '" + source.substring(start, position) + "'");
+        }
+    }
+
+    private String parseName() {
+        int start = position;
+        while (position < source.length() && Character.isLetter(source.charAt(position))) {
+            position++;
+        }
+        return source.substring(start, position);
+    }
+
+    private Node parseFunction(String name) {
+        List<Node> args = new ArrayList<>();
+        if (!consume(')')) {
+            do {
+                args.add(parseExpression());
+            } while (consume(','));
+            expect(')');
+        }
+
+        switch (name.toLowerCase(Locale.ROOT)) {
+            case "min":
+                checkArgs(name, args, 2);
+                return min(args.get(0), args.get(1));
+            case "max":
+                checkArgs(name, args, 2);
+                return max(args.get(0), args.get(1));
+            case "clamp":
+                checkArgs(name, args, 3);
+                return min(max(args.get(0), args.get(1)), args.get(2));
+            case "floor":
+                checkArgs(name, args, 1);
+                return unary(args.get(0), x -> (float) Math.floor(x));
+            case "ceil":
+                checkArgs(name, args, 1);
+                return unary(args.get(0), x -> (float) Math.ceil(x));
+            case "abs":
+                checkArgs(name, args, 1);
+                return unary(args.get(0), Math::abs);
+            default:
+                throw error("Unknown function '" + name + "'");
+        }
+    }
+
+    private void checkArgs(String name, List<Node> args, int count) {
+        if (args.size() != count) {
+            throw error(name + " takes " + count + " argument(s), but got " + args.size());
+        }
+    }
+
+    private static Node add(Node a, Node b) {
+        if (a.isConstant() && b.isConstant()) {
+            return Node.constant(a.value + b.value);
+        }
+        if (b.isConstant()) {
+            StatFormula fa = a.formula;
+            float vb = b.value;
+            return Node.of(stats -> fa.evaluate(stats) + vb);
+        }
+        StatFormula fa = a.formula;
+        StatFormula fb = b.formula;
+        return Node.of(stats -> fa.evaluate(stats) + fb.evaluate(stats));
+    }
+
+    private static Node subtract(Node a, Node b) {
+        if (a.isConstant() && b.isConstant()) {
+            return Node.constant(a.value - b.value);
+        }
+        if (b.isConstant()) {
+            StatFormula fa = a.formula;
+            float vb = b.value;
+            return Node.of(stats -> fa.evaluate(stats) - vb);
+        }
+        StatFormula fa = a.formula;
+        StatFormula fb = b.formula;
+        return Node.of(stats -> fa.evaluate(stats) - fb.evaluate(stats));
+    }
+
+    private static Node multiply(Node a, Node b) {
+        if (a.isConstant() && b.isConstant()) {
+            return Node.constant(a.value * b.value);
+        }
+        if (b.isConstant()) {
+            StatFormula fa = a.formula;
+            float vb = b.value;
+            return Node.of(stats -> fa.evaluate(stats) * vb);
+        }
+        StatFormula fa = a.formula;
+        StatFormula fb = b.formula;
+        return Node.of(stats -> fa.evaluate(stats) * fb.evaluate(stats));
+    }
+
+    private static Node divide(Node a, Node b) {
+        if (a.isConstant() && b.isConstant()) {
+            return Node.constant(a.value / b.value);
+        }
+        if (b.isConstant()) {
+            StatFormula fa = a.formula;
+            float vb = b.value;
+            return Node.of(stats -> fa.evaluate(stats) / vb);
+        }
+        StatFormula fa = a.formula;
+        StatFormula fb = b.formula;
+        return Node.of(stats -> fa.evaluate(stats) / fb.evaluate(stats));
+    }
+
+    private static Node min(Node a, Node b) {
+        if (a.isConstant() && b.isConstant()) {
+            return Node.constant(Math.min(a.value, b.value));
+        }
+        StatFormula fa = a.formula;
+        StatFormula fb = b.formula;
+        return Node.of(stats -> Math.min(fa.evaluate(stats), fb.evaluate(stats)));
+    }
+
+    private static Node max(Node a, Node b) {
+        if (a.isConstant() && b.isConstant()) {
+            return Node.constant(Math.max(a.value, b.value));
+        }
+        StatFormula fa = a.formula;
+        StatFormula fb = b.formula;
+        return Node.of(stats -> Math.max(fa.evaluate(stats), fb.evaluate(stats)));
+    }
+
+    private static Node unary(Node a, UnaryFunction function) {
+        if (a.isConstant()) {
+            return Node.constant(function.apply(a.value));
+        }
+        StatFormula fa = a.formula;
+        return Node.of(stats -> function.apply(fa.evaluate(stats)));
+    }
+
+    private boolean consume(char c) {
+        skipWhitespace();
+        if (position < source.length() && source.charAt(position) == c) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(char c) {
+        if (!consume(c)) {
+            throw error("Expected '" + c + "'");
+        }
+    }
+
+    private void skipWhitespace() {
+        while (position < source.length() && Character.isWhitespace(source.charAt(position))) {
+            position++;
+        }
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at position " + position + " in formula \"" + source + "\"");
+    }
+
+    /**
+     * A node of the parsed expression. Constant nodes keep their value so that they can be folded into their parent.
+     */
+    private static final class Node {
+        private final StatFormula formula;
+        private final float value;
+        private final boolean constant;
+
+        private Node(StatFormula formula, float value, boolean constant) {
+            this.formula = formula;
+            this.value = value;
+            this.constant = constant;
+        }
+
+        static Node of(StatFormula formula) {
+            return new Node(formula, 0, false);
+        }
+
+        static Node constant(float value) {
+            return new Node(stats -> value, value, true);
+        }
+
+        boolean isConstant() {
+            return constant;
+        }
+    }
+
+    /**
+     * A function of a single float, used for floor, ceil and abs.
+     */
+    private interface UnaryFunction {
+        float apply(float x);
+    }
+}
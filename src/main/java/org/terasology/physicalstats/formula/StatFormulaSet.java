@@ -0,0 +1,96 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.physicalstats.formula;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terasology.physicalstats.component.StatFormulasComponent;
+
+/**
+ * The compiled formulas for all values that are derived from physical stats.
+ */
+public final class StatFormulaSet {
+    /** The formulas used when no others have been declared. */
+    public static final StatFormulaSet DEFAULT = compile(new StatFormulasComponent());
+
+    private static final Logger logger = LoggerFactory.getLogger(StatFormulaSet.class);
+
+    /** The bonus physical damage dealt by an entity. */
+    private final StatFormula physicalDamage;
+
+    /** The bonus maximum movement speed of an entity. */
+    private final StatFormula maxSpeed;
+
+    /** The maximum health of an entity. */
+    private final StatFormula maxHealth;
+
+    private StatFormulaSet(StatFormula physicalDamage, StatFormula maxSpeed, StatFormula maxHealth) {
+        this.physicalDamage = physicalDamage;
+        this.maxSpeed = maxSpeed;
+        this.maxHealth = maxHealth;
+    }
+
+    /**
+     * Compile the formulas declared in the given component. If a formula is invalid, an error is logged and the
+     * default formula is used in its place.
+     *
+     * @param declared  The formula expressions to compile.
+     * @return          The compiled formulas.
+     */
+    public static StatFormulaSet compile(StatFormulasComponent declared) {
+        StatFormulasComponent defaults = new StatFormulasComponent();
+        return new StatFormulaSet(
+                compileOrDefault("physicalDamage", declared.physicalDamage, defaults.physicalDamage),
+                compileOrDefault("maxSpeed", declared.maxSpeed, defaults.maxSpeed),
+                compileOrDefault("maxHealth", declared.maxHealth, defaults.maxHealth));
+    }
+
+    /**
+     * Create a copy of this formula set that uses a different max health formula.
+     *
+     * @param newMaxHealth  The new max health formula.
+     * @return              The new formula set.
+     */
+    public StatFormulaSet withMaxHealth(StatFormula newMaxHealth) {
+        return new StatFormulaSet(physicalDamage, maxSpeed, newMaxHealth);
+    }
+
+    private static StatFormula compileOrDefault(String name, String expression, String defaultExpression) {
+        if (expression != null) {
+            try {
+                return StatFormulaCompiler.compile(expression);
+            } catch (IllegalArgumentException e) {
+                logger.error("Invalid {} formula, using the default \"{}\" instead: {}", name, defaultExpression,
+                        e.getMessage());
+            }
+        }
+        return StatFormulaCompiler.compile(defaultExpression);
+    }
+
+    /**
+     * Get the formula for the bonus physical damage dealt by an entity.
+     *
+     * @return  The physical damage formula.
+     */
+    public StatFormula getPhysicalDamage() {
+        return physicalDamage;
+    }
+
+    /**
+     * Get the formula for the bonus maximum movement speed of an entity.
+     *
+     * @return  The max speed formula.
+     */
+    public StatFormula getMaxSpeed() {
+        return maxSpeed;
+    }
+
+    /**
+     * Get the formula for the maximum health of an entity.
+     *
+     * @return  The max health formula.
+     */
+    public StatFormula getMaxHealth() {
+        return maxHealth;
+    }
+}
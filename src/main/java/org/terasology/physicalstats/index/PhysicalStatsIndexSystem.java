@@ -0,0 +1,188 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.physicalstats.index;
+
+import org.terasology.engine.entitySystem.entity.EntityManager;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.entitySystem.entity.lifecycleEvents.BeforeDeactivateComponent;
+import org.terasology.engine.entitySystem.entity.lifecycleEvents.OnActivatedComponent;
+import org.terasology.engine.entitySystem.systems.BaseComponentSystem;
+import org.terasology.engine.entitySystem.systems.RegisterSystem;
+import org.terasology.engine.registry.In;
+import org.terasology.engine.registry.Share;
+import org.terasology.gestalt.entitysystem.event.ReceiveEvent;
+import org.terasology.physicalstats.component.EffectivePhysicalStatsComponent;
+import org.terasology.physicalstats.component.PhysicalStat;
+import org.terasology.physicalstats.event.OnPhysicalStatChangedEvent;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * This system keeps opt-in secondary indexes over the effective stats of all loaded entities, for queries like "hostile
+ * entities with STR of at least 40" or "the 10 players closest to AGI 25". A stat is only indexed once some system asks
+ * for it through {@link #enableIndex}. The indexes are kept up to date from the coalesced OnPhysicalStatChangedEvent,
+ * so each change to an entity costs O(log n) per indexed stat that changed.
+ */
+@RegisterSystem
+@Share(PhysicalStatsIndexSystem.class)
+public class PhysicalStatsIndexSystem extends BaseComponentSystem {
+    @In
+    private EntityManager entityManager;
+
+    /** The index of each stat that has been opted in. */
+    private final Map<PhysicalStat, StatValueIndex<EntityRef>> indexes = new EnumMap<>(PhysicalStat.class);
+
+    /**
+     * Start indexing the given stat, adding all currently loaded entities with effective stats. Enabling an index that
+     * is already enabled does nothing.
+     *
+     * @param stat  The stat to index.
+     */
+    public void enableIndex(PhysicalStat stat) {
+        if (indexes.containsKey(stat)) {
+            return;
+        }
+        StatValueIndex<EntityRef> index = new StatValueIndex<>();
+        for (EntityRef entity : entityManager.getEntitiesWith(EffectivePhysicalStatsComponent.class)) {
+            index.update(entity, entity.getComponent(EffectivePhysicalStatsComponent.class).get(stat));
+        }
+        indexes.put(stat, index);
+    }
+
+    /**
+     * Stop indexing the given stat.
+     *
+     * @param stat  The stat to stop indexing.
+     */
+    public void disableIndex(PhysicalStat stat) {
+        indexes.remove(stat);
+    }
+
+    /**
+     * Check whether the given stat is indexed.
+     *
+     * @param stat  The stat.
+     * @return      True if the stat is indexed.
+     */
+    public boolean isIndexed(PhysicalStat stat) {
+        return indexes.containsKey(stat);
+    }
+
+    /**
+     * Find the entities whose effective value of the stat lies within the given range.
+     *
+     * @param stat      The indexed stat.
+     * @param min       The lowest value to include.
+     * @param max       The highest value to include.
+     * @param filter    Only entities that match this are returned, or null to return all.
+     * @param limit     The maximum number of entities to return.
+     * @return          The matching entities, in ascending order of the stat.
+     * @throws IllegalStateException If the stat isn't indexed.
+     */
+    public List<EntityRef> findInRange(PhysicalStat stat, int min, int max, Predicate<EntityRef> filter, int limit) {
+        return getIndex(stat).findInRange(min, max, filter, limit);
+    }
+
+    /**
+     * Find the entities with the highest effective value of the stat.
+     *
+     * @param stat      The indexed stat.
+     * @param k         The maximum number of entities to return.
+     * @param filter    Only entities that match this are returned, or null to return all.
+     * @return          The matching entities, highest first.
+     * @throws IllegalStateException If the stat isn't indexed.
+     */
+    public List<EntityRef> findHighest(PhysicalStat stat, int k, Predicate<EntityRef> filter) {
+        return getIndex(stat).findHighest(k, filter);
+    }
+
+    /**
+     * Find the entities with the lowest effective value of the stat.
+     *
+     * @param stat      The indexed stat.
+     * @param k         The maximum number of entities to return.
+     * @param filter    Only entities that match this are returned, or null to return all.
+     * @return          The matching entities, lowest first.
+     * @throws IllegalStateException If the stat isn't indexed.
+     */
+    public List<EntityRef> findLowest(PhysicalStat stat, int k, Predicate<EntityRef> filter) {
+        return getIndex(stat).findLowest(k, filter);
+    }
+
+    /**
+     * Find the entities whose effective value of the stat is closest to the target value.
+     *
+     * @param stat      The indexed stat.
+     * @param target    The target value.
+     * @param k         The maximum number of entities to return.
+     * @param filter    Only entities that match this are returned, or null to return all.
+     * @return          The matching entities, closest first.
+     * @throws IllegalStateException If the stat isn't indexed.
+     */
+    public List<EntityRef> findClosest(PhysicalStat stat, int target, int k, Predicate<EntityRef> filter) {
+        return getIndex(stat).findClosest(target, k, filter);
+    }
+
+    /**
+     * When an entity gains effective stats or is loaded, add it to every enabled index.
+     *
+     * @param event     Event indicating the effective stats have been activated.
+     * @param entity    Reference to the entity that was activated.
+     * @param effective The effective stats of the entity.
+     */
+    @ReceiveEvent
+    public void onEffectiveStatsActivated(OnActivatedComponent event, EntityRef entity,
+                                          EffectivePhysicalStatsComponent effective) {
+        for (Map.Entry<PhysicalStat, StatValueIndex<EntityRef>> entry : indexes.entrySet()) {
+            entry.getValue().update(entity, effective.get(entry.getKey()));
+        }
+    }
+
+    /**
+     * When an entity's effective stats have changed, move it within the indexes of the stats that changed.
+     *
+     * @param event     Event with the changed stats and their new values.
+     * @param entity    Reference to the entity that was affected.
+     */
+    @ReceiveEvent
+    public void onStatsChanged(OnPhysicalStatChangedEvent event, EntityRef entity) {
+        if (indexes.isEmpty()) {
+            return;
+        }
+        EffectivePhysicalStatsComponent effective = event.hasValues() ? null
+                : entity.getComponent(EffectivePhysicalStatsComponent.class);
+        if (!event.hasValues() && effective == null) {
+            return;
+        }
+        for (Map.Entry<PhysicalStat, StatValueIndex<EntityRef>> entry : indexes.entrySet()) {
+            PhysicalStat stat = entry.getKey();
+            if (event.hasChanged(stat)) {
+                entry.getValue().update(entity, effective == null ? event.getNewValue(stat) : effective.get(stat));
+            }
+        }
+    }
+
+    /**
+     * When an entity with effective stats is unloaded or destroyed, remove it from every index.
+     *
+     * @param event     Event indicating the effective stats are about to be deactivated.
+     * @param entity    Reference to the entity that was affected.
+     */
+    @ReceiveEvent(components = EffectivePhysicalStatsComponent.class)
+    public void onEffectiveStatsDeactivated(BeforeDeactivateComponent event, EntityRef entity) {
+        for (StatValueIndex<EntityRef> index : indexes.values()) {
+            index.remove(entity);
+        }
+    }
+
+    private StatValueIndex<EntityRef> getIndex(PhysicalStat stat) {
+        StatValueIndex<EntityRef> index = indexes.get(stat);
+        if (index == null) {
+            throw new IllegalStateException("The " + stat + " stat isn't indexed. Call enableIndex first.");
+        }
+        return index;
+    }
+}
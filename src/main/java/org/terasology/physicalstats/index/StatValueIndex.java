@@ -0,0 +1,198 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.physicalstats.index;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+/**
+ * A secondary index over the values of a single stat. Objects are kept in buckets of equal value, and the buckets are
+ * sorted by value, so updating an object is O(log n) and range, top-k and nearest-k queries are O(log n + k) in the
+ * number of objects visited.
+ *
+ * @param <T> The type of the indexed objects, normally an EntityRef.
+ */
+public class StatValueIndex<T> {
+    /** The indexed objects, bucketed by value. */
+    private final TreeMap<Integer, Set<T>> buckets = new TreeMap<>();
+
+    /** The indexed value of each object. */
+    private final Map<T, Integer> values = new HashMap<>();
+
+    /**
+     * Insert an object or update its value.
+     *
+     * @param object    The object.
+     * @param value     The current value of the stat for the object.
+     */
+    public void update(T object, int value) {
+        Integer oldValue = values.put(object, value);
+        if (oldValue != null) {
+            if (oldValue == value) {
+                return;
+            }
+            removeFromBucket(object, oldValue);
+        }
+        buckets.computeIfAbsent(value, key -> new LinkedHashSet<>()).add(object);
+    }
+
+    /**
+     * Remove an object from the index.
+     *
+     * @param object    The object.
+     */
+    public void remove(T object) {
+        Integer oldValue = values.remove(object);
+        if (oldValue != null) {
+            removeFromBucket(object, oldValue);
+        }
+    }
+
+    /**
+     * Get the indexed value of an object.
+     *
+     * @param object    The object.
+     * @return          The value, or null if the object isn't indexed.
+     */
+    public Integer getValue(T object) {
+        return values.get(object);
+    }
+
+    /**
+     * Get the number of indexed objects.
+     *
+     * @return  The number of objects.
+     */
+    public int size() {
+        return values.size();
+    }
+
+    /**
+     * Find the objects whose value lies within the given range, in ascending order of value.
+     *
+     * @param min       The lowest value to include.
+     * @param max       The highest value to include.
+     * @param filter    Only objects that match this are returned.
+     * @param limit     The maximum number of objects to return.
+     * @return          The matching objects.
+     */
+    public List<T> findInRange(int min, int max, Predicate<T> filter, int limit) {
+        if (min > max || limit <= 0) {
+            return Collections.emptyList();
+        }
+        List<T> result = new ArrayList<>();
+        for (Set<T> bucket : buckets.subMap(min, true, max, true).values()) {
+            if (collect(bucket, filter, limit, result)) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Find the objects with the highest values, in descending order of value.
+     *
+     * @param k         The maximum number of objects to return.
+     * @param filter    Only objects that match this are returned.
+     * @return          The matching objects.
+     */
+    public List<T> findHighest(int k, Predicate<T> filter) {
+        return collectAll(buckets.descendingMap(), filter, k);
+    }
+
+    /**
+     * Find the objects with the lowest values, in ascending order of value.
+     *
+     * @param k         The maximum number of objects to return.
+     * @param filter    Only objects that match this are returned.
+     * @return          The matching objects.
+     */
+    public List<T> findLowest(int k, Predicate<T> filter) {
+        return collectAll(buckets, filter, k);
+    }
+
+    /**
+     * Find the objects whose values are closest to the target value, nearest first. The index is walked outwards from
+     * the target in both directions at once.
+     *
+     * @param target    The target value.
+     * @param k         The maximum number of objects to return.
+     * @param filter    Only objects that match this are returned.
+     * @return          The matching objects.
+     */
+    public List<T> findClosest(int target, int k, Predicate<T> filter) {
+        List<T> result = new ArrayList<>();
+        if (k <= 0) {
+            return result;
+        }
+        Iterator<Map.Entry<Integer, Set<T>>> above = buckets.tailMap(target, true).entrySet().iterator();
+        Iterator<Map.Entry<Integer, Set<T>>> below = buckets.headMap(target, false).descendingMap().entrySet().iterator();
+        Map.Entry<Integer, Set<T>> nextAbove = above.hasNext() ? above.next() : null;
+        Map.Entry<Integer, Set<T>> nextBelow = below.hasNext() ? below.next() : null;
+        while (nextAbove != null || nextBelow != null) {
+            boolean takeAbove = nextBelow == null
+                    || (nextAbove != null && (long) nextAbove.getKey() - target <= (long) target - nextBelow.getKey());
+            if (takeAbove) {
+                if (collect(nextAbove.getValue(), filter, k, result)) {
+                    break;
+                }
+                nextAbove = above.hasNext() ? above.next() : null;
+            } else {
+                if (collect(nextBelow.getValue(), filter, k, result)) {
+                    break;
+                }
+                nextBelow = below.hasNext() ? below.next() : null;
+            }
+        }
+        return result;
+    }
+
+    private List<T> collectAll(NavigableMap<Integer, Set<T>> ordered, Predicate<T> filter, int k) {
+        List<T> result = new ArrayList<>();
+        if (k <= 0) {
+            return result;
+        }
+        for (Set<T> bucket : ordered.values()) {
+            if (collect(bucket, filter, k, result)) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Add the matching objects of a bucket to the result until it holds the limit.
+     *
+     * @return  True if the result is full.
+     */
+    private static <T> boolean collect(Set<T> bucket, Predicate<T> filter, int limit, List<T> result) {
+        for (T object : bucket) {
+            if (filter == null || filter.test(object)) {
+                result.add(object);
+                if (result.size() >= limit) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void removeFromBucket(T object, int value) {
+        Set<T> bucket = buckets.get(value);
+        if (bucket != null) {
+            bucket.remove(object);
+            if (bucket.isEmpty()) {
+                buckets.remove(value);
+            }
+        }
+    }
+}
@@ -0,0 +1,29 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.physicalstats.metrics;
+
+/**
+ * The instrumented hot paths of the physical stats systems.
+ */
+public enum StatHandler {
+    IMPACT_ON_SPEED("impactOnSpeed"),
+    IMPACT_ON_PHYSICAL_DAMAGE("impactOnPhysicalDamage"),
+    ON_CON_CHANGED("onCONChanged"),
+    APPLY_MOD("applyMod"),
+    REFRESH_EFFECTIVE_STATS("refreshEffectiveStats");
+
+    private final String displayName;
+
+    StatHandler(String displayName) {
+        this.displayName = displayName;
+    }
+
+    /**
+     * Get the name of the handler as it appears in reports.
+     *
+     * @return  The name of the handler method.
+     */
+    public String getDisplayName() {
+        return displayName;
+    }
+}
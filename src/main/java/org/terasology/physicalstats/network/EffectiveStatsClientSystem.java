@@ -0,0 +1,38 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.physicalstats.network;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.entitySystem.systems.BaseComponentSystem;
+import org.terasology.engine.entitySystem.systems.RegisterMode;
+import org.terasology.engine.entitySystem.systems.RegisterSystem;
+import org.terasology.gestalt.entitysystem.event.ReceiveEvent;
+import org.terasology.physicalstats.component.EffectivePhysicalStatsComponent;
+
+/**
+ * This system applies the effective stat updates sent by the server on remote clients.
+ */
+@RegisterSystem(RegisterMode.REMOTE_CLIENT)
+public class EffectiveStatsClientSystem extends BaseComponentSystem {
+    private static final Logger logger = LoggerFactory.getLogger(EffectiveStatsClientSystem.class);
+
+    /**
+     * Apply an effective stats update from the server to the local copy of the entity's effective stats.
+     *
+     * @param event     Event with the encoded stat update.
+     * @param entity    Reference to the entity that was affected.
+     * @param effective The local copy of the entity's effective stats.
+     */
+    @ReceiveEvent
+    public void onEffectiveStatsUpdate(EffectiveStatsUpdateEvent event, EntityRef entity,
+                                       EffectivePhysicalStatsComponent effective) {
+        try {
+            EffectiveStatsCodec.decode(event.getData(), effective.values);
+            entity.saveComponent(effective);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Ignoring invalid effective stats update for {}: {}", entity, e.getMessage());
+        }
+    }
+}
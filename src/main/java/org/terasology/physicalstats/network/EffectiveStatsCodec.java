@@ -0,0 +1,92 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.physicalstats.network;
+
+import org.terasology.physicalstats.component.PhysicalStat;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Encodes the changed effective stats of an entity compactly: a varint bitmask of the changed stats, followed by the
+ * new value of each changed stat as a zigzag varint. Typical stat values take a single byte each, and an unchanged stat
+ * takes nothing. New values are sent rather than arithmetic differences so that applying an update twice, or after the
+ * initial full state, can't make a client drift.
+ */
+public final class EffectiveStatsCodec {
+    private EffectiveStatsCodec() {
+    }
+
+    /**
+     * Encode the stats that differ between the two stat vectors.
+     *
+     * @param previous  The stats that the receivers already know.
+     * @param current   The current stats.
+     * @return          The encoded update, or null if nothing has changed.
+     */
+    public static byte[] encode(int[] previous, int[] current) {
+        int mask = 0;
+        for (int i = 0; i < PhysicalStat.COUNT; i++) {
+            if (previous[i] != current[i]) {
+                mask |= 1 << i;
+            }
+        }
+        if (mask == 0) {
+            return null;
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(1 + PhysicalStat.COUNT);
+        writeVarint(out, mask);
+        for (int i = 0; i < PhysicalStat.COUNT; i++) {
+            if ((mask & (1 << i)) != 0) {
+                writeVarint(out, (current[i] << 1) ^ (current[i] >> 31));
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Apply an encoded update to the given stat vector.
+     *
+     * @param data      The encoded update.
+     * @param values    The stat vector to update.
+     * @return          The bitmask of the stats that were updated, with bit {@code 1 << stat.index()} per stat.
+     * @throws IllegalArgumentException If the data is truncated or malformed.
+     */
+    public static int decode(byte[] data, int[] values) {
+        int[] position = {0};
+        int mask = readVarint(data, position);
+        if (mask >>> PhysicalStat.COUNT != 0) {
+            throw new IllegalArgumentException("Invalid stat mask " + mask);
+        }
+        for (int i = 0; i < PhysicalStat.COUNT; i++) {
+            if ((mask & (1 << i)) != 0) {
+                int zigzag = readVarint(data, position);
+                values[i] = (zigzag >>> 1) ^ -(zigzag & 1);
+            }
+        }
+        return mask;
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarint(byte[] data, int[] position) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            if (position[0] >= data.length) {
+                throw new IllegalArgumentException("Truncated stat update");
+            }
+            byte b = data[position[0]++];
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint in stat update");
+    }
+}
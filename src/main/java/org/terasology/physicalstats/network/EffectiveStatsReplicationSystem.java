@@ -0,0 +1,106 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.physicalstats.network;
+
+import org.terasology.engine.core.Time;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.entitySystem.entity.lifecycleEvents.BeforeDeactivateComponent;
+import org.terasology.engine.entitySystem.entity.lifecycleEvents.OnActivatedComponent;
+import org.terasology.engine.entitySystem.entity.lifecycleEvents.OnChangedComponent;
+import org.terasology.engine.entitySystem.systems.BaseComponentSystem;
+import org.terasology.engine.entitySystem.systems.RegisterMode;
+import org.terasology.engine.entitySystem.systems.RegisterSystem;
+import org.terasology.engine.entitySystem.systems.UpdateSubscriberSystem;
+import org.terasology.engine.registry.In;
+import org.terasology.gestalt.entitysystem.event.ReceiveEvent;
+import org.terasology.physicalstats.component.EffectivePhysicalStatsComponent;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * This system replicates effective stats from the server to the clients. Clients receive the full stats once, when an
+ * entity becomes relevant to them, and afterwards only the stats that changed. Changes are collected per entity and
+ * sent at most once per network tick, so a burst of modifier changes results in a single small update.
+ */
+@RegisterSystem(RegisterMode.AUTHORITY)
+public class EffectiveStatsReplicationSystem extends BaseComponentSystem implements UpdateSubscriberSystem {
+    /**
+     * The minimum time between two updates of the same entity in milliseconds, matching the engine's network tick.
+     */
+    public static final long REPLICATION_INTERVAL_MS = 50;
+
+    @In
+    private Time time;
+
+    /** The effective stats last sent to the clients for each entity. */
+    private final Map<EntityRef, int[]> lastSent = new HashMap<>();
+
+    /** The entities whose effective stats changed since the last update was sent. */
+    private final Set<EntityRef> dirty = new LinkedHashSet<>();
+
+    /** The real time at which the next batch of updates may be sent. */
+    private long nextUpdateTime;
+
+    @Override
+    public void update(float delta) {
+        long now = time.getRealTimeInMs();
+        if (dirty.isEmpty() || now < nextUpdateTime) {
+            return;
+        }
+        nextUpdateTime = now + REPLICATION_INTERVAL_MS;
+
+        for (EntityRef entity : dirty) {
+            EffectivePhysicalStatsComponent effective = entity.getComponent(EffectivePhysicalStatsComponent.class);
+            int[] sent = lastSent.get(entity);
+            if (effective == null || sent == null) {
+                continue;
+            }
+            byte[] data = EffectiveStatsCodec.encode(sent, effective.values);
+            if (data != null) {
+                System.arraycopy(effective.values, 0, sent, 0, sent.length);
+                entity.send(new EffectiveStatsUpdateEvent(data));
+            }
+        }
+        dirty.clear();
+    }
+
+    /**
+     * When an entity gains effective stats or is loaded, remember its stats. Clients receive them in full when the
+     * entity is first replicated to them.
+     *
+     * @param event     Event indicating the effective stats have been activated.
+     * @param entity    Reference to the entity that was activated.
+     * @param effective The effective stats of the entity.
+     */
+    @ReceiveEvent
+    public void onEffectiveStatsActivated(OnActivatedComponent event, EntityRef entity,
+                                          EffectivePhysicalStatsComponent effective) {
+        lastSent.put(entity, effective.values.clone());
+    }
+
+    /**
+     * When an entity's effective stats change, mark it for the next update.
+     *
+     * @param event     Event indicating the effective stats have been changed.
+     * @param entity    Reference to the entity that was affected.
+     */
+    @ReceiveEvent(components = EffectivePhysicalStatsComponent.class)
+    public void onEffectiveStatsChanged(OnChangedComponent event, EntityRef entity) {
+        dirty.add(entity);
+    }
+
+    /**
+     * When an entity with effective stats is unloaded or destroyed, stop tracking it.
+     *
+     * @param event     Event indicating the effective stats are about to be deactivated.
+     * @param entity    Reference to the entity that was affected.
+     */
+    @ReceiveEvent(components = EffectivePhysicalStatsComponent.class)
+    public void onEffectiveStatsDeactivated(BeforeDeactivateComponent event, EntityRef entity) {
+        lastSent.remove(entity);
+        dirty.remove(entity);
+    }
+}
@@ -0,0 +1,38 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.physicalstats.network;
+
+import org.terasology.engine.network.BroadcastEvent;
+import org.terasology.gestalt.entitysystem.event.Event;
+
+/**
+ * This event is broadcast from the server to the clients to update the effective stats of an entity. It only carries
+ * the stats that changed since the last update, encoded by the {@link EffectiveStatsCodec}.
+ */
+@BroadcastEvent
+public class EffectiveStatsUpdateEvent implements Event {
+    /** The encoded stat update. */
+    private byte[] data;
+
+    /** Default constructor, needed for deserialization. */
+    protected EffectiveStatsUpdateEvent() {
+    }
+
+    /**
+     * Create an instance of this event with the given encoded update.
+     *
+     * @param data  The changed stats, encoded by the EffectiveStatsCodec.
+     */
+    public EffectiveStatsUpdateEvent(byte[] data) {
+        this.data = data;
+    }
+
+    /**
+     * Get the encoded stat update.
+     *
+     * @return  The changed stats, encoded by the EffectiveStatsCodec.
+     */
+    public byte[] getData() {
+        return data;
+    }
+}
@@ -0,0 +1,267 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.physicalstats.persistence;
+
+import org.terasology.physicalstats.component.ModifierStacking;
+import org.terasology.physicalstats.component.PhysicalStat;
+import org.terasology.physicalstats.component.PhysicalStatArrays;
+import org.terasology.physicalstats.component.PhysicalStatsModifierComponent;
+import org.terasology.physicalstats.component.PhysicalStatsModifierMap;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes the modifiers on an entity as a compact, versioned binary record. The record starts with a version byte and
+ * the number of modifiers, followed by one entry per modifier, sorted by map key:
+ * <ul>
+ *     <li>the map key, front-coded against the key of the previous entry,</li>
+ *     <li>a flags byte, holding the stacking rule and which optional parts follow,</li>
+ *     <li>the modifier ID, front-coded against the map key, only if it differs from the map key,</li>
+ *     <li>a varint bitmask of the non-zero stats, followed by each non-zero stat as a zigzag varint,</li>
+ *     <li>the instigator's entity ID and the absolute expiry game time as varints, if present.</li>
+ * </ul>
+ * A front-coded string is written as the number of leading characters it shares with the string it is coded against,
+ * followed by the rest as a length-prefixed UTF-8 string. Modifier IDs are normally equal to their map key, so each ID
+ * is written only once, and sorted keys mostly share their module prefix, like "MyModule:", with the previous key, so
+ * the prefix is only written once per record. The expiry time is absolute game time, which is saved with the world, so
+ * the remaining duration of a temporary modifier survives a save and load.
+ *
+ * Records of version 1, which wrote every key and ID in full, are still read.
+ */
+public final class ModifierMapCodec {
+    /** The version of the record format written by {@link #encode}. */
+    public static final int VERSION = 2;
+
+    /** The first version, which wrote the keys and IDs in full. */
+    private static final int VERSION_FULL_STRINGS = 1;
+
+    private static final int FLAG_SEPARATE_ID = 1;
+    private static final int FLAG_NULL_ID = 1 << 1;
+    private static final int FLAG_INSTIGATOR = 1 << 2;
+    private static final int FLAG_EXPIRY = 1 << 3;
+    private static final int STACKING_SHIFT = 4;
+
+    private static final ModifierStacking[] STACKING = ModifierStacking.values();
+
+    private ModifierMapCodec() {
+    }
+
+    /**
+     * Encode the modifiers and their per-entity state.
+     *
+     * @param modifiers The modifiers on an entity.
+     * @return          The encoded record.
+     */
+    public static byte[] encode(PhysicalStatsModifierMap modifiers) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(8 + modifiers.size() * 24);
+        int[] values = PhysicalStatArrays.create();
+        List<Map.Entry<String, PhysicalStatsModifierComponent>> entries = sortedEntries(modifiers);
+        out.write(VERSION);
+        writeVarLong(out, entries.size());
+        String previousKey = "";
+        for (Map.Entry<String, PhysicalStatsModifierComponent> entry : entries) {
+            String key = entry.getKey();
+            PhysicalStatsModifierComponent modifier = entry.getValue();
+            long instigatorId = modifiers.getInstigatorId(key);
+            long expiryTime = modifiers.getExpiryTime(key);
+
+            int flags = modifier.stacking == null ? 0 : modifier.stacking.ordinal() << STACKING_SHIFT;
+            if (modifier.id == null) {
+                flags |= FLAG_NULL_ID;
+            } else if (!modifier.id.equals(key)) {
+                flags |= FLAG_SEPARATE_ID;
+            }
+            if (instigatorId != 0) {
+                flags |= FLAG_INSTIGATOR;
+            }
+            if (expiryTime != 0) {
+                flags |= FLAG_EXPIRY;
+            }
+
+            writeFrontCoded(out, previousKey, key);
+            out.write(flags);
+            if ((flags & FLAG_SEPARATE_ID) != 0) {
+                writeFrontCoded(out, key, modifier.id);
+            }
+            previousKey = key;
+
+            PhysicalStatArrays.read(modifier, values);
+            int mask = 0;
+            for (int i = 0; i < PhysicalStat.COUNT; i++) {
+                if (values[i] != 0) {
+                    mask |= 1 << i;
+                }
+            }
+            writeVarLong(out, mask);
+            for (int i = 0; i < PhysicalStat.COUNT; i++) {
+                if (values[i] != 0) {
+                    writeVarLong(out, ((values[i] << 1) ^ (values[i] >> 31)) & 0xFFFFFFFFL);
+                }
+            }
+
+            if (instigatorId != 0) {
+                writeVarLong(out, instigatorId);
+            }
+            if (expiryTime != 0) {
+                writeVarLong(out, expiryTime);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Decode a record written by {@link #encode}.
+     *
+     * @param data  The encoded record.
+     * @return      The decoded modifiers and their per-entity state.
+     * @throws IllegalArgumentException If the record is truncated, malformed, or has an unknown version.
+     */
+    public static PhysicalStatsModifierMap decode(byte[] data) {
+        int[] position = {0};
+        if (data.length == 0) {
+            throw new IllegalArgumentException("Empty modifier record");
+        }
+        int version = data[position[0]++];
+        if (version != VERSION && version != VERSION_FULL_STRINGS) {
+            throw new IllegalArgumentException("Unknown modifier record version " + version);
+        }
+
+        PhysicalStatsModifierMap modifiers = new PhysicalStatsModifierMap();
+        int[] values = PhysicalStatArrays.create();
+        long count = readVarLong(data, position);
+        String previousKey = "";
+        for (long n = 0; n < count; n++) {
+            String key = version == VERSION_FULL_STRINGS
+                    ? readString(data, position)
+                    : readFrontCoded(data, position, previousKey);
+            previousKey = key;
+            int flags = readByte(data, position);
+
+            PhysicalStatsModifierComponent modifier = new PhysicalStatsModifierComponent();
+            int stacking = flags >>> STACKING_SHIFT;
+            if (stacking >= STACKING.length) {
+                throw new IllegalArgumentException("Unknown stacking rule " + stacking);
+            }
+            modifier.stacking = STACKING[stacking];
+            if ((flags & FLAG_NULL_ID) != 0) {
+                modifier.id = null;
+            } else if ((flags & FLAG_SEPARATE_ID) != 0) {
+                modifier.id = version == VERSION_FULL_STRINGS
+                        ? readString(data, position)
+                        : readFrontCoded(data, position, key);
+            } else {
+                modifier.id = key;
+            }
+
+            long mask = readVarLong(data, position);
+            if (mask >>> PhysicalStat.COUNT != 0) {
+                throw new IllegalArgumentException("Invalid stat mask " + mask);
+            }
+            for (int i = 0; i < PhysicalStat.COUNT; i++) {
+                if ((mask & (1 << i)) != 0) {
+                    int zigzag = (int) readVarLong(data, position);
+                    values[i] = (zigzag >>> 1) ^ -(zigzag & 1);
+                } else {
+                    values[i] = 0;
+                }
+            }
+            modifier.strength = values[PhysicalStat.STRENGTH.index()];
+            modifier.dexterity = values[PhysicalStat.DEXTERITY.index()];
+            modifier.constitution = values[PhysicalStat.CONSTITUTION.index()];
+            modifier.agility = values[PhysicalStat.AGILITY.index()];
+            modifier.endurance = values[PhysicalStat.ENDURANCE.index()];
+            modifier.charisma = values[PhysicalStat.CHARISMA.index()];
+            modifier.luck = values[PhysicalStat.LUCK.index()];
+
+            modifiers.put(key, modifier);
+            if ((flags & FLAG_INSTIGATOR) != 0) {
+                modifiers.setInstigatorId(key, readVarLong(data, position));
+            }
+            if ((flags & FLAG_EXPIRY) != 0) {
+                modifiers.setExpiryTime(key, readVarLong(data, position));
+            }
+        }
+        return modifiers;
+    }
+
+    private static List<Map.Entry<String, PhysicalStatsModifierComponent>> sortedEntries(
+            PhysicalStatsModifierMap modifiers) {
+        List<Map.Entry<String, PhysicalStatsModifierComponent>> entries = new ArrayList<>(modifiers.size());
+        for (Map.Entry<String, PhysicalStatsModifierComponent> entry : modifiers.entrySet()) {
+            if (entry.getKey() != null && entry.getValue() != null) {
+                entries.add(entry);
+            }
+        }
+        entries.sort(Map.Entry.comparingByKey());
+        return entries;
+    }
+
+    private static void writeFrontCoded(ByteArrayOutputStream out, String reference, String value) {
+        int limit = Math.min(reference.length(), value.length());
+        int shared = 0;
+        while (shared < limit && reference.charAt(shared) == value.charAt(shared)) {
+            shared++;
+        }
+        // Don't split a surrogate pair between the shared prefix and the rest.
+        if (shared > 0 && Character.isHighSurrogate(value.charAt(shared - 1))) {
+            shared--;
+        }
+        writeVarLong(out, shared);
+        writeString(out, value.substring(shared));
+    }
+
+    private static String readFrontCoded(byte[] data, int[] position, String reference) {
+        long shared = readVarLong(data, position);
+        if (shared > reference.length()) {
+            throw new IllegalArgumentException("Invalid shared prefix length " + shared);
+        }
+        return reference.substring(0, (int) shared) + readString(data, position);
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static String readString(byte[] data, int[] position) {
+        long length = readVarLong(data, position);
+        if (length > data.length - position[0]) {
+            throw new IllegalArgumentException("Truncated modifier record");
+        }
+        String value = new String(data, position[0], (int) length, StandardCharsets.UTF_8);
+        position[0] += (int) length;
+        return value;
+    }
+
+    private static int readByte(byte[] data, int[] position) {
+        if (position[0] >= data.length) {
+            throw new IllegalArgumentException("Truncated modifier record");
+        }
+        return data[position[0]++] & 0xFF;
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(byte[] data, int[] position) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte(data, position);
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint in modifier record");
+    }
+}
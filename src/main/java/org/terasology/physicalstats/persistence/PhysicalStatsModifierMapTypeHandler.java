@@ -0,0 +1,80 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.physicalstats.persistence;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terasology.engine.persistence.typeHandling.RegisterTypeHandler;
+import org.terasology.persistence.typeHandling.PersistedData;
+import org.terasology.persistence.typeHandling.PersistedDataMap;
+import org.terasology.persistence.typeHandling.PersistedDataSerializer;
+import org.terasology.persistence.typeHandling.TypeHandler;
+import org.terasology.physicalstats.component.ModifierStacking;
+import org.terasology.physicalstats.component.PhysicalStatsModifierComponent;
+import org.terasology.physicalstats.component.PhysicalStatsModifierMap;
+
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Saves the modifiers on an entity as a single binary record, using {@link ModifierMapCodec}. Worlds saved before this
+ * handler existed stored the modifiers as a map of components, which is still read, but without instigators and expiry
+ * times since those weren't saved back then.
+ */
+@RegisterTypeHandler
+public class PhysicalStatsModifierMapTypeHandler extends TypeHandler<PhysicalStatsModifierMap> {
+    private static final Logger logger = LoggerFactory.getLogger(PhysicalStatsModifierMapTypeHandler.class);
+
+    @Override
+    protected PersistedData serializeNonNull(PhysicalStatsModifierMap value, PersistedDataSerializer serializer) {
+        return serializer.serialize(ModifierMapCodec.encode(value));
+    }
+
+    @Override
+    public Optional<PhysicalStatsModifierMap> deserialize(PersistedData data) {
+        if (data.isBytes()) {
+            try {
+                return Optional.of(ModifierMapCodec.decode(data.getAsBytes()));
+            } catch (IllegalArgumentException e) {
+                logger.error("Could not load physical stats modifiers", e);
+                return Optional.empty();
+            }
+        }
+        if (data.isValueMap()) {
+            return Optional.of(deserializeLegacy(data.getAsValueMap()));
+        }
+        return Optional.empty();
+    }
+
+    private static PhysicalStatsModifierMap deserializeLegacy(PersistedDataMap data) {
+        PhysicalStatsModifierMap modifiers = new PhysicalStatsModifierMap();
+        for (Map.Entry<String, PersistedData> entry : data.entrySet()) {
+            if (!entry.getValue().isValueMap()) {
+                continue;
+            }
+            PersistedDataMap fields = entry.getValue().getAsValueMap();
+            PhysicalStatsModifierComponent modifier = new PhysicalStatsModifierComponent();
+            modifier.id = fields.has("id") ? fields.get("id").getAsString() : entry.getKey();
+            if (fields.has("stacking")) {
+                try {
+                    modifier.stacking = ModifierStacking.valueOf(fields.get("stacking").getAsString());
+                } catch (IllegalArgumentException e) {
+                    logger.warn("Unknown stacking rule for modifier {}, using additive", modifier.id);
+                }
+            }
+            modifier.strength = getInt(fields, "strength");
+            modifier.dexterity = getInt(fields, "dexterity");
+            modifier.constitution = getInt(fields, "constitution");
+            modifier.agility = getInt(fields, "agility");
+            modifier.endurance = getInt(fields, "endurance");
+            modifier.charisma = getInt(fields, "charisma");
+            modifier.luck = getInt(fields, "luck");
+            modifiers.put(entry.getKey(), modifier);
+        }
+        return modifiers;
+    }
+
+    private static int getInt(PersistedDataMap fields, String name) {
+        return fields.has(name) ? fields.get(name).getAsInteger() : 0;
+    }
+}
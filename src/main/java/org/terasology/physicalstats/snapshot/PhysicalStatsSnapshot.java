@@ -0,0 +1,99 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.physicalstats.snapshot;
+
+import org.terasology.physicalstats.component.PhysicalStat;
+import org.terasology.physicalstats.formula.StatFormulaSet;
+
+/**
+ * An immutable copy of the effective physical stats of an entity at one point in time. Snapshots can be read from any
+ * thread without locks, and all values of one snapshot are consistent with each other. Derived values are computed
+ * with the formulas that were in use when the snapshot was taken.
+ */
+public final class PhysicalStatsSnapshot {
+    private final long entityId;
+    private final long version;
+    private final int[] values;
+    private final StatFormulaSet formulas;
+
+    /**
+     * Create a snapshot of the given effective stats.
+     *
+     * @param entityId  The ID of the entity.
+     * @param version   A number that increases every time a new snapshot of the entity is published.
+     * @param values    The effective stats, indexed by {@link PhysicalStat#index()}. These are copied.
+     * @param formulas  The formulas for the derived values.
+     */
+    public PhysicalStatsSnapshot(long entityId, long version, int[] values, StatFormulaSet formulas) {
+        this.entityId = entityId;
+        this.version = version;
+        this.values = values.clone();
+        this.formulas = formulas;
+    }
+
+    /**
+     * Get the ID of the entity that this is a snapshot of.
+     *
+     * @return  The entity ID.
+     */
+    public long getEntityId() {
+        return entityId;
+    }
+
+    /**
+     * Get the version of this snapshot. A later snapshot of the same entity has a higher version.
+     *
+     * @return  The version.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Get the effective value of a stat.
+     *
+     * @param stat  The stat.
+     * @return      The effective value.
+     */
+    public int get(PhysicalStat stat) {
+        return values[stat.index()];
+    }
+
+    /**
+     * Copy all effective values into the given array.
+     *
+     * @param out   The array to copy into, with room for {@link PhysicalStat#COUNT} values.
+     * @return      The given array.
+     */
+    public int[] copyValues(int[] out) {
+        System.arraycopy(values, 0, out, 0, PhysicalStat.COUNT);
+        return out;
+    }
+
+    /**
+     * Get the bonus maximum movement speed of the entity.
+     *
+     * @return  The speed bonus.
+     */
+    public float getMaxSpeedBonus() {
+        return formulas.getMaxSpeed().evaluate(values);
+    }
+
+    /**
+     * Get the bonus physical damage dealt by the entity.
+     *
+     * @return  The damage bonus.
+     */
+    public float getPhysicalDamageBonus() {
+        return formulas.getPhysicalDamage().evaluate(values);
+    }
+
+    /**
+     * Get the maximum health of the entity according to its stats.
+     *
+     * @return  The max health.
+     */
+    public float getMaxHealth() {
+        return formulas.getMaxHealth().evaluate(values);
+    }
+}
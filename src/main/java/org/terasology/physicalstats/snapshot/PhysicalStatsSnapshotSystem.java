@@ -0,0 +1,99 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.physicalstats.snapshot;
+
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.entitySystem.entity.lifecycleEvents.BeforeDeactivateComponent;
+import org.terasology.engine.entitySystem.entity.lifecycleEvents.OnActivatedComponent;
+import org.terasology.engine.entitySystem.entity.lifecycleEvents.OnChangedComponent;
+import org.terasology.engine.entitySystem.systems.BaseComponentSystem;
+import org.terasology.engine.entitySystem.systems.RegisterSystem;
+import org.terasology.engine.registry.In;
+import org.terasology.engine.registry.Share;
+import org.terasology.gestalt.entitysystem.event.ReceiveEvent;
+import org.terasology.physicalstats.component.EffectivePhysicalStatsComponent;
+import org.terasology.physicalstats.system.PhysicalStatsSystem;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This system publishes an immutable snapshot of the effective stats of every loaded entity, for code that runs off the
+ * main thread, like AI and pathfinding cost functions. A new snapshot replaces the old one whenever the effective stats
+ * change, so readers on any thread always see a complete, consistent snapshot without taking locks or touching the
+ * entity system.
+ */
+@RegisterSystem
+@Share(PhysicalStatsSnapshotSystem.class)
+public class PhysicalStatsSnapshotSystem extends BaseComponentSystem {
+    @In
+    private PhysicalStatsSystem physicalStatsSystem;
+
+    /** The latest snapshot of each entity, keyed by entity ID. */
+    private final Map<Long, PhysicalStatsSnapshot> snapshots = new ConcurrentHashMap<>();
+
+    /** The version of the next published snapshot. This is only changed on the main thread. */
+    private long nextVersion;
+
+    /**
+     * Get the latest snapshot of an entity's effective stats. This can be called from any thread.
+     *
+     * @param entityId  The ID of the entity.
+     * @return          The snapshot, or null if the entity has no effective stats or isn't loaded.
+     */
+    public PhysicalStatsSnapshot getSnapshot(long entityId) {
+        return snapshots.get(entityId);
+    }
+
+    /**
+     * Get the latest snapshot of an entity's effective stats. This can be called from any thread.
+     *
+     * @param entity    The entity.
+     * @return          The snapshot, or null if the entity has no effective stats or isn't loaded.
+     */
+    public PhysicalStatsSnapshot getSnapshot(EntityRef entity) {
+        return snapshots.get(entity.getId());
+    }
+
+    /**
+     * When an entity gains effective stats or is loaded, publish its first snapshot.
+     *
+     * @param event     Event indicating the effective stats have been activated.
+     * @param entity    Reference to the entity that was activated.
+     * @param effective The effective stats of the entity.
+     */
+    @ReceiveEvent
+    public void onEffectiveStatsActivated(OnActivatedComponent event, EntityRef entity,
+                                          EffectivePhysicalStatsComponent effective) {
+        publish(entity, effective);
+    }
+
+    /**
+     * When an entity's effective stats change, replace its snapshot.
+     *
+     * @param event     Event indicating the effective stats have been changed.
+     * @param entity    Reference to the entity that was affected.
+     * @param effective The effective stats of the entity.
+     */
+    @ReceiveEvent
+    public void onEffectiveStatsChanged(OnChangedComponent event, EntityRef entity,
+                                        EffectivePhysicalStatsComponent effective) {
+        publish(entity, effective);
+    }
+
+    /**
+     * When an entity with effective stats is unloaded or destroyed, withdraw its snapshot.
+     *
+     * @param event     Event indicating the effective stats are about to be deactivated.
+     * @param entity    Reference to the entity that was affected.
+     */
+    @ReceiveEvent(components = EffectivePhysicalStatsComponent.class)
+    public void onEffectiveStatsDeactivated(BeforeDeactivateComponent event, EntityRef entity) {
+        snapshots.remove(entity.getId());
+    }
+
+    private void publish(EntityRef entity, EffectivePhysicalStatsComponent effective) {
+        snapshots.put(entity.getId(), new PhysicalStatsSnapshot(entity.getId(), nextVersion++, effective.values,
+                physicalStatsSystem.getFormulas()));
+    }
+}
@@ -0,0 +1,356 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.physicalstats.stamina;
+
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.entitySystem.entity.lifecycleEvents.BeforeDeactivateComponent;
+import org.terasology.engine.entitySystem.entity.lifecycleEvents.OnActivatedComponent;
+import org.terasology.engine.entitySystem.systems.BaseComponentSystem;
+import org.terasology.engine.entitySystem.systems.RegisterMode;
+import org.terasology.engine.entitySystem.systems.RegisterSystem;
+import org.terasology.engine.entitySystem.systems.UpdateSubscriberSystem;
+import org.terasology.engine.logic.characters.CharacterMoveInputEvent;
+import org.terasology.engine.registry.In;
+import org.terasology.engine.registry.Share;
+import org.terasology.gestalt.entitysystem.event.ReceiveEvent;
+import org.terasology.physicalstats.component.ColumnarStatsComponent;
+import org.terasology.physicalstats.component.EffectivePhysicalStatsComponent;
+import org.terasology.physicalstats.component.PhysicalStat;
+import org.terasology.physicalstats.component.PhysicalStatArrays;
+import org.terasology.physicalstats.component.StaminaComponent;
+import org.terasology.physicalstats.event.OnPhysicalStatChangedEvent;
+import org.terasology.physicalstats.event.OnStaminaExhaustedEvent;
+import org.terasology.physicalstats.system.PhysicalStatsSystem;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This system drains stamina while entities sprint and regenerates it based on their effective endurance. Only
+ * entities that are sprinting or below their maximum stamina are tracked, in dense parallel arrays that are advanced
+ * together in one loop per tick; entities at full stamina cost nothing. The exact stamina is kept here, and the
+ * StaminaComponent is only saved when its whole number of points changes.
+ */
+@RegisterSystem(RegisterMode.AUTHORITY)
+@Share(StaminaSystem.class)
+public class StaminaSystem extends BaseComponentSystem implements UpdateSubscriberSystem {
+    /** The maximum stamina per point of effective endurance. */
+    public static final int STAMINA_PER_ENDURANCE = 10;
+
+    /** The stamina regenerated per second per point of effective endurance, when not sprinting. */
+    public static final float REGENERATION_PER_ENDURANCE = 0.5f;
+
+    @In
+    private PhysicalStatsSystem physicalStatsSystem;
+
+    /** The tracked entities. Every array below is indexed in the same way. */
+    private EntityRef[] entities = new EntityRef[64];
+
+    /** The exact stamina of each tracked entity. */
+    private float[] stamina = new float[64];
+
+    /** The maximum stamina of each tracked entity. */
+    private float[] maxStamina = new float[64];
+
+    /** The change in stamina per second of each tracked entity, negative while sprinting. */
+    private float[] rates = new float[64];
+
+    /** The regeneration per second of each tracked entity. */
+    private float[] regeneration = new float[64];
+
+    /** The stamina used per second of sprinting by each tracked entity. */
+    private float[] sprintCosts = new float[64];
+
+    /** The stamina last written to the StaminaComponent of each tracked entity. */
+    private int[] displayed = new int[64];
+
+    /** The number of tracked entities. */
+    private int count;
+
+    /** The index of each tracked entity in the arrays. */
+    private final Map<EntityRef, Integer> indices = new HashMap<>();
+
+    private final int[] scratch = PhysicalStatArrays.create();
+
+    @Override
+    public void update(float delta) {
+        // Advance every tracked entity at once. This loop has no branches or calls, so it can be vectorized.
+        for (int i = 0; i < count; i++) {
+            stamina[i] = Math.min(maxStamina[i], Math.max(0f, stamina[i] + rates[i] * delta));
+        }
+
+        // Save the entities whose displayed stamina changed, and stop tracking those that have fully recovered.
+        // Iterating backwards lets removeAt move the last entity into the freed index.
+        for (int i = count - 1; i >= 0; i--) {
+            int shown = (int) stamina[i];
+            if (shown != displayed[i]) {
+                boolean exhausted = shown == 0 && rates[i] < 0;
+                displayed[i] = shown;
+                if (!writeBack(entities[i], shown)) {
+                    removeAt(i);
+                    continue;
+                }
+                if (exhausted) {
+                    entities[i].send(new OnStaminaExhaustedEvent());
+                }
+            }
+            if (rates[i] >= 0 && stamina[i] >= maxStamina[i]) {
+                removeAt(i);
+            }
+        }
+    }
+
+    /**
+     * Get the exact stamina of the given entity.
+     *
+     * @param entity    The entity.
+     * @return          The entity's stamina, or 0 if it has none.
+     */
+    public float getStamina(EntityRef entity) {
+        Integer index = indices.get(entity);
+        if (index != null) {
+            return stamina[index];
+        }
+        StaminaComponent component = entity.getComponent(StaminaComponent.class);
+        return component != null ? component.currentStamina : 0;
+    }
+
+    /**
+     * Use up some of the given entity's stamina, e.g. for a power attack or a jump.
+     *
+     * @param entity    The entity.
+     * @param amount    The stamina to use.
+     * @return          True if the entity had enough stamina and it was used, false otherwise.
+     */
+    public boolean consume(EntityRef entity, float amount) {
+        int index = track(entity);
+        if (index < 0 || stamina[index] < amount) {
+            return false;
+        }
+        stamina[index] -= amount;
+        return true;
+    }
+
+    /**
+     * Start or stop draining the given entity's stamina for sprinting. Player characters are updated automatically
+     * from their movement input; AI systems call this for NPCs.
+     *
+     * @param entity    The entity.
+     * @param sprinting Whether the entity is sprinting.
+     */
+    public void setSprinting(EntityRef entity, boolean sprinting) {
+        Integer tracked = indices.get(entity);
+        if (!sprinting) {
+            if (tracked != null) {
+                rates[tracked] = regeneration[tracked];
+            }
+            return;
+        }
+        int index = tracked != null ? tracked : track(entity);
+        if (index >= 0) {
+            rates[index] = -sprintCosts[index];
+        }
+    }
+
+    /**
+     * Get the number of entities whose stamina is currently changing.
+     *
+     * @return  The number of tracked entities.
+     */
+    public int getTrackedCount() {
+        return count;
+    }
+
+    /**
+     * When a player character moves, drain its stamina if it's sprinting.
+     *
+     * @param event     Event with the movement input of the character.
+     * @param entity    Reference to the character entity.
+     * @param component The stamina of the character.
+     */
+    @ReceiveEvent
+    public void onMoveInput(CharacterMoveInputEvent event, EntityRef entity, StaminaComponent component) {
+        boolean sprinting = event.isRunning() && event.getMovementDirection().lengthSquared() > 0;
+        Integer index = indices.get(entity);
+        // Most input doesn't change whether the character is sprinting, so check that before doing anything else.
+        if (index == null ? sprinting : (rates[index] < 0) != sprinting) {
+            setSprinting(entity, sprinting);
+        }
+    }
+
+    /**
+     * When an entity with stamina gets its effective stats or is loaded, derive its maximum stamina from its endurance.
+     * Stamina that has never been set up starts out full.
+     *
+     * @param event     Event indicating the stamina or effective stats have been activated.
+     * @param entity    Reference to the entity that was activated.
+     */
+    @ReceiveEvent(components = {StaminaComponent.class, EffectivePhysicalStatsComponent.class})
+    public void onStaminaActivated(OnActivatedComponent event, EntityRef entity) {
+        setUpStamina(entity);
+    }
+
+    /**
+     * When an entity with stamina whose stats are kept in the ColumnarStatStore is loaded, derive its maximum stamina
+     * from its endurance like for any other entity.
+     *
+     * @param event     Event indicating the stamina or columnar stats have been activated.
+     * @param entity    Reference to the entity that was activated.
+     */
+    @ReceiveEvent(components = {StaminaComponent.class, ColumnarStatsComponent.class})
+    public void onColumnarStaminaActivated(OnActivatedComponent event, EntityRef entity) {
+        setUpStamina(entity);
+    }
+
+    /**
+     * Derive the maximum stamina of an entity from its effective endurance, filling stamina that was never set up.
+     */
+    private void setUpStamina(EntityRef entity) {
+        StaminaComponent component = entity.getComponent(StaminaComponent.class);
+        int[] stats = physicalStatsSystem.getEffectiveStats(entity, scratch);
+        if (stats != null) {
+            if (component.maxStamina == 0) {
+                component.currentStamina = stats[PhysicalStat.ENDURANCE.index()] * STAMINA_PER_ENDURANCE;
+            }
+            updateLimits(entity, component, stats[PhysicalStat.ENDURANCE.index()]);
+        }
+    }
+
+    /**
+     * When an entity's effective endurance changes, update its maximum stamina and regeneration.
+     *
+     * @param event     Event with the changed stats and their new values.
+     * @param entity    Reference to the entity that was affected.
+     * @param component The stamina of the entity.
+     */
+    @ReceiveEvent
+    public void onStatsChanged(OnPhysicalStatChangedEvent event, EntityRef entity, StaminaComponent component) {
+        if (!event.hasChanged(PhysicalStat.ENDURANCE)) {
+            return;
+        }
+        int[] stats = event.hasValues() ? null : physicalStatsSystem.getEffectiveStats(entity, scratch);
+        if (event.hasValues() || stats != null) {
+            int endurance = stats == null ? event.getNewValue(PhysicalStat.ENDURANCE)
+                    : stats[PhysicalStat.ENDURANCE.index()];
+            updateLimits(entity, component, endurance);
+        }
+    }
+
+    /**
+     * When an entity with stamina is unloaded or destroyed, stop tracking it. Its component already holds its stamina
+     * in whole points.
+     *
+     * @param event     Event indicating the stamina is about to be deactivated.
+     * @param entity    Reference to the entity that was affected.
+     */
+    @ReceiveEvent(components = StaminaComponent.class)
+    public void onStaminaDeactivated(BeforeDeactivateComponent event, EntityRef entity) {
+        Integer index = indices.get(entity);
+        if (index != null) {
+            removeAt(index);
+        }
+    }
+
+    /**
+     * Apply a new endurance to the entity's maximum stamina and regeneration, and start tracking it if it's no longer
+     * at full stamina.
+     */
+    private void updateLimits(EntityRef entity, StaminaComponent component, int endurance) {
+        int newMax = Math.max(0, endurance) * STAMINA_PER_ENDURANCE;
+        int newCurrent = Math.min(component.currentStamina, newMax);
+        if (component.maxStamina != newMax || component.currentStamina != newCurrent) {
+            component.maxStamina = newMax;
+            component.currentStamina = newCurrent;
+            entity.saveComponent(component);
+        }
+
+        Integer index = indices.get(entity);
+        if (index != null) {
+            maxStamina[index] = newMax;
+            regeneration[index] = regenerationOf(newMax);
+            if (rates[index] >= 0) {
+                rates[index] = regeneration[index];
+            }
+        } else if (newCurrent < newMax) {
+            track(entity);
+        }
+    }
+
+    /**
+     * Get the index of the given entity in the arrays, adding it if it isn't tracked yet.
+     *
+     * @return  The index, or -1 if the entity has no stamina.
+     */
+    private int track(EntityRef entity) {
+        Integer tracked = indices.get(entity);
+        if (tracked != null) {
+            return tracked;
+        }
+        StaminaComponent component = entity.getComponent(StaminaComponent.class);
+        if (component == null) {
+            return -1;
+        }
+        if (count == entities.length) {
+            grow(count * 2);
+        }
+        int index = count++;
+        entities[index] = entity;
+        stamina[index] = component.currentStamina;
+        maxStamina[index] = component.maxStamina;
+        regeneration[index] = regenerationOf(component.maxStamina);
+        rates[index] = regeneration[index];
+        sprintCosts[index] = component.sprintCost;
+        displayed[index] = component.currentStamina;
+        indices.put(entity, index);
+        return index;
+    }
+
+    /**
+     * Stop tracking the entity at the given index, moving the last entity into its place.
+     */
+    private void removeAt(int index) {
+        indices.remove(entities[index]);
+        int last = --count;
+        if (index != last) {
+            entities[index] = entities[last];
+            stamina[index] = stamina[last];
+            maxStamina[index] = maxStamina[last];
+            rates[index] = rates[last];
+            regeneration[index] = regeneration[last];
+            sprintCosts[index] = sprintCosts[last];
+            displayed[index] = displayed[last];
+            indices.put(entities[index], index);
+        }
+        entities[last] = null;
+    }
+
+    /**
+     * Write the displayed stamina of the entity back to its component.
+     *
+     * @return  False if the entity no longer has stamina.
+     */
+    private boolean writeBack(EntityRef entity, int shown) {
+        StaminaComponent component = entity.getComponent(StaminaComponent.class);
+        if (component == null) {
+            return false;
+        }
+        component.currentStamina = shown;
+        entity.saveComponent(component);
+        return true;
+    }
+
+    private void grow(int capacity) {
+        entities = Arrays.copyOf(entities, capacity);
+        stamina = Arrays.copyOf(stamina, capacity);
+        maxStamina = Arrays.copyOf(maxStamina, capacity);
+        rates = Arrays.copyOf(rates, capacity);
+        regeneration = Arrays.copyOf(regeneration, capacity);
+        sprintCosts = Arrays.copyOf(sprintCosts, capacity);
+        displayed = Arrays.copyOf(displayed, capacity);
+    }
+
+    private static float regenerationOf(int maxStamina) {
+        return maxStamina * REGENERATION_PER_ENDURANCE / STAMINA_PER_ENDURANCE;
+    }
+}
@@ -0,0 +1,219 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.physicalstats.system;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * An indexed binary min-heap of modifier expiry times, keyed by (target, modifier ID). Scheduling the same key again
+ * moves its deadline instead of adding a second entry, so each key has at most one pending expiry. Scheduling and
+ * cancelling are O(log n), and checking whether anything is due is O(1).
+ *
+ * @param <T> The type used to identify the target of a modifier, normally an EntityRef.
+ */
+public class ModifierExpiryQueue<T> {
+    /**
+     * A single pending expiry, which also remembers its own position in the heap.
+     */
+    private static final class Entry<T> {
+        private final T target;
+        private final String id;
+        private long expiryTime;
+        private int index;
+
+        private Entry(T target, String id, long expiryTime) {
+            this.target = target;
+            this.id = id;
+            this.expiryTime = expiryTime;
+        }
+    }
+
+    /** The heap of pending expiries, ordered by expiry time. */
+    private Entry<T>[] heap = newArray(16);
+
+    /** The number of pending expiries in the heap. */
+    private int size;
+
+    /** Lookup from target and modifier ID to the pending expiry, for rescheduling and cancelling. */
+    private final Map<T, Map<String, Entry<T>>> entries = new HashMap<>();
+
+    /**
+     * Schedule the modifier with the given ID on the given target to expire at the given time. If the modifier is
+     * already scheduled, its expiry time is replaced.
+     *
+     * @param target        The target that the modifier is applied to.
+     * @param id            The ID of the modifier.
+     * @param expiryTime    The time at which the modifier expires.
+     */
+    public void schedule(T target, String id, long expiryTime) {
+        Map<String, Entry<T>> targetEntries = entries.computeIfAbsent(target, key -> new HashMap<>());
+        Entry<T> entry = targetEntries.get(id);
+        if (entry != null) {
+            long oldExpiryTime = entry.expiryTime;
+            entry.expiryTime = expiryTime;
+            if (expiryTime < oldExpiryTime) {
+                siftUp(entry.index);
+            } else {
+                siftDown(entry.index);
+            }
+            return;
+        }
+
+        entry = new Entry<>(target, id, expiryTime);
+        targetEntries.put(id, entry);
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, size * 2);
+        }
+        entry.index = size;
+        heap[size++] = entry;
+        siftUp(entry.index);
+    }
+
+    /**
+     * Cancel the pending expiry of the modifier with the given ID on the given target.
+     *
+     * @param target    The target that the modifier is applied to.
+     * @param id        The ID of the modifier.
+     * @return          True if an expiry was pending and has been cancelled, false otherwise.
+     */
+    public boolean cancel(T target, String id) {
+        Map<String, Entry<T>> targetEntries = entries.get(target);
+        if (targetEntries == null) {
+            return false;
+        }
+        Entry<T> entry = targetEntries.remove(id);
+        if (entry == null) {
+            return false;
+        }
+        if (targetEntries.isEmpty()) {
+            entries.remove(target);
+        }
+        removeAt(entry.index);
+        return true;
+    }
+
+    /**
+     * Cancel every pending expiry on the given target.
+     *
+     * @param target    The target whose expiries should be cancelled.
+     */
+    public void cancelAll(T target) {
+        Map<String, Entry<T>> targetEntries = entries.remove(target);
+        if (targetEntries != null) {
+            for (Entry<T> entry : targetEntries.values()) {
+                removeAt(entry.index);
+            }
+        }
+    }
+
+    /**
+     * Get the expiry time of the modifier with the given ID on the given target.
+     *
+     * @param target    The target that the modifier is applied to.
+     * @param id        The ID of the modifier.
+     * @return          The expiry time, or -1 if the modifier has no pending expiry.
+     */
+    public long getExpiryTime(T target, String id) {
+        Map<String, Entry<T>> targetEntries = entries.get(target);
+        Entry<T> entry = targetEntries == null ? null : targetEntries.get(id);
+        return entry == null ? -1 : entry.expiryTime;
+    }
+
+    /**
+     * Remove every expiry that is due at the given time, in order of expiry time, and pass each one to the handler.
+     * Each entry is removed from the queue before its handler is called, so the handler may safely schedule or cancel
+     * other expiries.
+     *
+     * @param now       The current time.
+     * @param handler   Called with the target and modifier ID of every expired modifier.
+     * @return          The number of expired modifiers.
+     */
+    public int pollDue(long now, BiConsumer<T, String> handler) {
+        int count = 0;
+        while (size > 0 && heap[0].expiryTime <= now) {
+            Entry<T> entry = heap[0];
+            Map<String, Entry<T>> targetEntries = entries.get(entry.target);
+            targetEntries.remove(entry.id);
+            if (targetEntries.isEmpty()) {
+                entries.remove(entry.target);
+            }
+            removeAt(0);
+            handler.accept(entry.target, entry.id);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Get the earliest pending expiry time.
+     *
+     * @return  The earliest expiry time, or Long.MAX_VALUE if nothing is pending.
+     */
+    public long peekExpiryTime() {
+        return size == 0 ? Long.MAX_VALUE : heap[0].expiryTime;
+    }
+
+    /**
+     * Get the number of pending expiries.
+     *
+     * @return  The number of pending expiries.
+     */
+    public int size() {
+        return size;
+    }
+
+    private void removeAt(int index) {
+        Entry<T> last = heap[--size];
+        heap[size] = null;
+        if (index < size) {
+            heap[index] = last;
+            last.index = index;
+            siftDown(index);
+            siftUp(last.index);
+        }
+    }
+
+    private void siftUp(int index) {
+        Entry<T> entry = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            Entry<T> parentEntry = heap[parent];
+            if (parentEntry.expiryTime <= entry.expiryTime) {
+                break;
+            }
+            heap[index] = parentEntry;
+            parentEntry.index = index;
+            index = parent;
+        }
+        heap[index] = entry;
+        entry.index = index;
+    }
+
+    private void siftDown(int index) {
+        Entry<T> entry = heap[index];
+        int half = size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            int right = child + 1;
+            if (right < size && heap[right].expiryTime < heap[child].expiryTime) {
+                child = right;
+            }
+            if (entry.expiryTime <= heap[child].expiryTime) {
+                break;
+            }
+            heap[index] = heap[child];
+            heap[index].index = index;
+            index = child;
+        }
+        heap[index] = entry;
+        entry.index = index;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Entry<T>[] newArray(int length) {
+        return (Entry<T>[]) new Entry[length];
+    }
+}
@@ -0,0 +1,128 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.physicalstats.system;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A two-way index between the instigators of modifiers and the (target, modifier ID) pairs they applied. Each pair has
+ * at most one instigator, so re-applying a modifier under another instigator moves it. Recording and forgetting a
+ * single modifier are O(1), and taking all modifiers of an instigator is proportional to the number it applied.
+ *
+ * @param <T> The type used to identify instigators and targets, normally an entity ID.
+ */
+public class ModifierInstigatorIndex<T> {
+    /** The modifier IDs applied by each instigator, grouped by target. */
+    private final Map<T, Map<T, Set<String>>> byInstigator = new HashMap<>();
+
+    /** The instigator of each modifier, grouped by target. */
+    private final Map<T, Map<String, T>> byTarget = new HashMap<>();
+
+    /**
+     * Record that the instigator applied the modifier with the given ID to the target.
+     *
+     * @param instigator    The instigator that applied the modifier.
+     * @param target        The target that the modifier is applied to.
+     * @param id            The ID of the modifier.
+     */
+    public void record(T instigator, T target, String id) {
+        T previous = byTarget.computeIfAbsent(target, key -> new HashMap<>()).put(id, instigator);
+        if (previous != null) {
+            if (previous.equals(instigator)) {
+                return;
+            }
+            unlink(previous, target, id);
+        }
+        byInstigator.computeIfAbsent(instigator, key -> new HashMap<>())
+                .computeIfAbsent(target, key -> new HashSet<>())
+                .add(id);
+    }
+
+    /**
+     * Forget the modifier with the given ID on the target.
+     *
+     * @param target    The target that the modifier was applied to.
+     * @param id        The ID of the modifier.
+     */
+    public void forget(T target, String id) {
+        Map<String, T> instigators = byTarget.get(target);
+        if (instigators == null) {
+            return;
+        }
+        T instigator = instigators.remove(id);
+        if (instigators.isEmpty()) {
+            byTarget.remove(target);
+        }
+        if (instigator != null) {
+            unlink(instigator, target, id);
+        }
+    }
+
+    /**
+     * Forget all modifiers on the target.
+     *
+     * @param target    The target whose modifiers should be forgotten.
+     */
+    public void forgetTarget(T target) {
+        Map<String, T> instigators = byTarget.remove(target);
+        if (instigators != null) {
+            instigators.forEach((id, instigator) -> unlink(instigator, target, id));
+        }
+    }
+
+    /**
+     * Forget and return all modifiers applied by the instigator.
+     *
+     * @param instigator    The instigator whose modifiers should be taken.
+     * @return              The IDs of the modifiers applied by the instigator, grouped by target.
+     */
+    public Map<T, Set<String>> takeAll(T instigator) {
+        Map<T, Set<String>> applied = byInstigator.remove(instigator);
+        if (applied == null) {
+            return Collections.emptyMap();
+        }
+        applied.forEach((target, ids) -> {
+            Map<String, T> instigators = byTarget.get(target);
+            if (instigators != null) {
+                instigators.keySet().removeAll(ids);
+                if (instigators.isEmpty()) {
+                    byTarget.remove(target);
+                }
+            }
+        });
+        return applied;
+    }
+
+    /**
+     * Get the instigator of the modifier with the given ID on the target.
+     *
+     * @param target    The target that the modifier is applied to.
+     * @param id        The ID of the modifier.
+     * @return          The instigator, or null if the modifier isn't indexed.
+     */
+    public T getInstigator(T target, String id) {
+        Map<String, T> instigators = byTarget.get(target);
+        return instigators == null ? null : instigators.get(id);
+    }
+
+    private void unlink(T instigator, T target, String id) {
+        Map<T, Set<String>> targets = byInstigator.get(instigator);
+        if (targets == null) {
+            return;
+        }
+        Set<String> ids = targets.get(target);
+        if (ids != null) {
+            ids.remove(id);
+            if (ids.isEmpty()) {
+                targets.remove(target);
+                if (targets.isEmpty()) {
+                    byInstigator.remove(instigator);
+                }
+            }
+        }
+    }
+}
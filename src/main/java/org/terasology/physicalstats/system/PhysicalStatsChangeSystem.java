@@ -0,0 +1,158 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.physicalstats.system;
+
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.entitySystem.entity.lifecycleEvents.BeforeDeactivateComponent;
+import org.terasology.engine.entitySystem.entity.lifecycleEvents.OnActivatedComponent;
+import org.terasology.engine.entitySystem.entity.lifecycleEvents.OnChangedComponent;
+import org.terasology.engine.entitySystem.systems.BaseComponentSystem;
+import org.terasology.engine.entitySystem.systems.RegisterSystem;
+import org.terasology.engine.entitySystem.systems.UpdateSubscriberSystem;
+import org.terasology.engine.registry.In;
+import org.terasology.engine.registry.Share;
+import org.terasology.gestalt.entitysystem.event.ReceiveEvent;
+import org.terasology.physicalstats.columnar.ColumnarStatSystem;
+import org.terasology.physicalstats.component.ColumnarStatsComponent;
+import org.terasology.physicalstats.component.EffectivePhysicalStatsComponent;
+import org.terasology.physicalstats.component.PhysicalStatArrays;
+import org.terasology.physicalstats.event.OnPhysicalStatChangedEvent;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This system coalesces all changes to an entity's effective stats during a tick into a single
+ * OnPhysicalStatChangedEvent, which is sent at the end of the tick. The event carries a bitmask of the changed stats and
+ * the effective stats before and after the tick's changes.
+ *
+ * Entities that keep their stats in the ColumnarStatStore are covered as well. Their stats before the tick are only
+ * held while they have a pending change, so they cost nothing between changes.
+ */
+@RegisterSystem
+@Share(PhysicalStatsChangeSystem.class)
+public class PhysicalStatsChangeSystem extends BaseComponentSystem implements UpdateSubscriberSystem {
+    /** The effective stats that listeners were last told about, for each entity. */
+    private final Map<EntityRef, int[]> lastNotified = new HashMap<>();
+
+    /** The entities whose effective stats changed during this tick, mapped to the instigator of the change. */
+    private final Map<EntityRef, EntityRef> pending = new LinkedHashMap<>();
+
+    /** The effective stats before this tick's changes, for the columnar entities that changed during this tick. */
+    private final Map<EntityRef, int[]> columnarBefore = new HashMap<>();
+
+    @In
+    private ColumnarStatSystem columnarStatSystem;
+
+    @Override
+    public void update(float delta) {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        for (Map.Entry<EntityRef, EntityRef> entry : pending.entrySet()) {
+            EntityRef entity = entry.getKey();
+            EffectivePhysicalStatsComponent effective = entity.getComponent(EffectivePhysicalStatsComponent.class);
+            int[] oldValues;
+            int[] newValues;
+            if (effective != null) {
+                oldValues = lastNotified.get(entity);
+                newValues = effective.values.clone();
+            } else {
+                oldValues = columnarBefore.get(entity);
+                newValues = oldValues == null ? null
+                        : columnarStatSystem.readEffectiveStats(entity, PhysicalStatArrays.create());
+            }
+            if (oldValues == null || newValues == null) {
+                continue;
+            }
+
+            // Changes that cancel each other out within the tick don't result in an event.
+            int changed = PhysicalStatArrays.diff(oldValues, newValues);
+            if (changed != 0) {
+                if (effective != null) {
+                    lastNotified.put(entity, newValues);
+                }
+                entity.send(new OnPhysicalStatChangedEvent(entry.getValue(), entity, changed, oldValues, newValues));
+            }
+        }
+        pending.clear();
+        columnarBefore.clear();
+    }
+
+    /**
+     * Record that the given instigator changed the physical stats of the entity during this tick, so that the event at
+     * the end of the tick names it as the instigator.
+     *
+     * @param entity        The entity whose stats were changed.
+     * @param instigator    The entity who changed them.
+     */
+    public void recordInstigator(EntityRef entity, EntityRef instigator) {
+        pending.put(entity, instigator);
+    }
+
+    /**
+     * Record that the effective stats of an entity in the ColumnarStatStore are about to change, so that an event is
+     * sent for it at the end of the tick. Unless another instigator has been recorded, the entity itself is named as
+     * the instigator.
+     *
+     * @param entity        The entity whose stats are changing.
+     * @param oldValues     The entity's effective stats before the change. Only the first change in a tick counts.
+     */
+    public void recordColumnarChange(EntityRef entity, int[] oldValues) {
+        if (!columnarBefore.containsKey(entity)) {
+            columnarBefore.put(entity, oldValues.clone());
+        }
+        pending.putIfAbsent(entity, entity);
+    }
+
+    /**
+     * When an entity gains effective stats or is loaded, remember them as the starting point for later changes.
+     *
+     * @param event     Event indicating the effective stats have been activated.
+     * @param entity    Reference to the entity that was activated.
+     * @param effective The effective stats of the entity.
+     */
+    @ReceiveEvent
+    public void onEffectiveStatsActivated(OnActivatedComponent event, EntityRef entity,
+                                          EffectivePhysicalStatsComponent effective) {
+        lastNotified.put(entity, effective.values.clone());
+    }
+
+    /**
+     * When an entity's effective stats change, mark it for an event at the end of the tick. Unless another instigator
+     * has been recorded, the entity itself is named as the instigator.
+     *
+     * @param event     Event indicating the effective stats have been changed.
+     * @param entity    Reference to the entity that was affected.
+     */
+    @ReceiveEvent(components = EffectivePhysicalStatsComponent.class)
+    public void onEffectiveStatsChanged(OnChangedComponent event, EntityRef entity) {
+        pending.putIfAbsent(entity, entity);
+    }
+
+    /**
+     * When an entity with effective stats is unloaded or destroyed, stop tracking it.
+     *
+     * @param event     Event indicating the effective stats are about to be deactivated.
+     * @param entity    Reference to the entity that was affected.
+     */
+    @ReceiveEvent(components = EffectivePhysicalStatsComponent.class)
+    public void onEffectiveStatsDeactivated(BeforeDeactivateComponent event, EntityRef entity) {
+        lastNotified.remove(entity);
+        pending.remove(entity);
+    }
+
+    /**
+     * When an entity whose stats are kept in the ColumnarStatStore is unloaded or destroyed, drop its pending change.
+     *
+     * @param event     Event indicating the columnar stats are about to be deactivated.
+     * @param entity    Reference to the entity that was affected.
+     */
+    @ReceiveEvent(components = ColumnarStatsComponent.class)
+    public void onColumnarStatsDeactivated(BeforeDeactivateComponent event, EntityRef entity) {
+        columnarBefore.remove(entity);
+        pending.remove(entity);
+    }
+}
@@ -0,0 +1,239 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.physicalstats.system;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.entitySystem.entity.lifecycleEvents.OnActivatedComponent;
+import org.terasology.engine.entitySystem.prefab.Prefab;
+import org.terasology.engine.entitySystem.prefab.PrefabManager;
+import org.terasology.engine.entitySystem.systems.BaseComponentSystem;
+import org.terasology.engine.entitySystem.systems.RegisterSystem;
+import org.terasology.engine.registry.In;
+import org.terasology.engine.registry.Share;
+import org.terasology.gestalt.entitysystem.event.ReceiveEvent;
+import org.terasology.physicalstats.component.ModifierStacking;
+import org.terasology.physicalstats.component.PhysicalStatArrays;
+import org.terasology.physicalstats.component.PhysicalStatsModifierComponent;
+import org.terasology.physicalstats.component.PhysicalStatsModifiersListComponent;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * This system interns physical stats modifier definitions, so that every entity affected by the same modifier refers to
+ * one shared instance instead of holding its own copy. Definitions are registered from every prefab with a
+ * PhysicalStatsModifierComponent on startup, and any other modifier is interned when it is first applied.
+ *
+ * Interned definitions are shared by all entities that have them applied, so they must not be changed afterwards. To
+ * change a modifier on an entity, apply a new one with the same ID instead. Each prefab definition also has a small
+ * integer handle that is stable for the session.
+ *
+ * Other modifiers, like the per-aura modifiers or buffs built for a single cast, are only held weakly. They are
+ * released once no entity has them applied anymore, so they don't accumulate over a long session.
+ */
+@RegisterSystem
+@Share(PhysicalStatsModifierRegistry.class)
+public class PhysicalStatsModifierRegistry extends BaseComponentSystem {
+    private static final Logger logger = LoggerFactory.getLogger(PhysicalStatsModifierRegistry.class);
+
+    @In
+    private PrefabManager prefabManager;
+
+    /** The canonical instance of every prefab definition, keyed by its contents. */
+    private final Map<Key, PhysicalStatsModifierComponent> interned = new HashMap<>();
+
+    /** The canonical instance of every other definition that is still applied to some entity, keyed by its contents. */
+    private final Map<Key, DefinitionReference> dynamic = new HashMap<>();
+
+    /** The references to dynamic definitions that have been released, to be removed from {@link #dynamic}. */
+    private final ReferenceQueue<PhysicalStatsModifierComponent> released = new ReferenceQueue<>();
+
+    /** The definitions registered from prefabs, keyed by prefab name. */
+    private final Map<String, PhysicalStatsModifierComponent> byPrefab = new HashMap<>();
+
+    /** The prefab definitions in the order that they were registered, indexed by handle. */
+    private final List<PhysicalStatsModifierComponent> byHandle = new ArrayList<>();
+
+    /** The handle of every prefab definition. */
+    private final Map<PhysicalStatsModifierComponent, Integer> handles = new IdentityHashMap<>();
+
+    @Override
+    public void initialise() {
+        for (Prefab prefab : prefabManager.listPrefabs(PhysicalStatsModifierComponent.class)) {
+            PhysicalStatsModifierComponent definition = new PhysicalStatsModifierComponent();
+            definition.copyFrom(prefab.getComponent(PhysicalStatsModifierComponent.class));
+            if (definition.id == null) {
+                definition.id = prefab.getName();
+            }
+            byPrefab.put(prefab.getName().toLowerCase(Locale.ROOT), internPrefab(definition));
+        }
+        logger.info("Registered {} physical stats modifier definitions from prefabs.", byPrefab.size());
+    }
+
+    /**
+     * Get the canonical instance of a modifier definition, registering the given modifier if no equal definition has
+     * been interned yet. The given modifier is copied, so the caller may keep changing it.
+     *
+     * @param modifier  The modifier definition.
+     * @return          The shared instance with the same ID, stacking rule and values.
+     */
+    public PhysicalStatsModifierComponent intern(PhysicalStatsModifierComponent modifier) {
+        if (handles.containsKey(modifier)) {
+            return modifier;
+        }
+        Key key = new Key(modifier);
+        PhysicalStatsModifierComponent canonical = interned.get(key);
+        if (canonical != null) {
+            return canonical;
+        }
+
+        purgeReleased();
+        DefinitionReference reference = dynamic.get(key);
+        canonical = reference == null ? null : reference.get();
+        if (canonical == null) {
+            canonical = new PhysicalStatsModifierComponent();
+            canonical.copyFrom(modifier);
+            dynamic.put(key, new DefinitionReference(key, canonical, released));
+        }
+        return canonical;
+    }
+
+    /**
+     * Register a definition declared by a prefab. Prefab definitions are kept for the whole session and get a handle.
+     *
+     * @param definition    The modifier definition read from the prefab.
+     * @return              The shared instance with the same ID, stacking rule and values.
+     */
+    private PhysicalStatsModifierComponent internPrefab(PhysicalStatsModifierComponent definition) {
+        Key key = new Key(definition);
+        PhysicalStatsModifierComponent canonical = interned.get(key);
+        if (canonical == null) {
+            canonical = definition;
+            interned.put(key, canonical);
+            handles.put(canonical, byHandle.size());
+            byHandle.add(canonical);
+        }
+        return canonical;
+    }
+
+    /**
+     * Remove the dynamic definitions that are no longer applied to any entity.
+     */
+    private void purgeReleased() {
+        DefinitionReference reference;
+        while ((reference = (DefinitionReference) released.poll()) != null) {
+            // An equal definition may have been interned again since this one was released.
+            dynamic.remove(reference.key, reference);
+        }
+    }
+
+    /**
+     * Get the modifier definition declared by the prefab with the given name.
+     *
+     * @param prefabName    The name of the prefab, like "MyModule:potionOfStrength".
+     * @return              The shared definition, or null if there is no such prefab with a modifier.
+     */
+    public PhysicalStatsModifierComponent getDefinition(String prefabName) {
+        return byPrefab.get(prefabName.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Get the prefab definition with the given handle.
+     *
+     * @param handle    The handle of the definition.
+     * @return          The shared definition, or null if no definition has this handle.
+     */
+    public PhysicalStatsModifierComponent getDefinition(int handle) {
+        return handle >= 0 && handle < byHandle.size() ? byHandle.get(handle) : null;
+    }
+
+    /**
+     * Get the handle of an interned definition.
+     *
+     * @param definition    The shared definition, as returned by {@link #intern}.
+     * @return              The handle, or -1 if the instance isn't a prefab definition.
+     */
+    public int getHandle(PhysicalStatsModifierComponent definition) {
+        Integer handle = handles.get(definition);
+        return handle == null ? -1 : handle;
+    }
+
+    /**
+     * Get the number of prefab definitions, which is also the number of handles.
+     *
+     * @return  The number of definitions.
+     */
+    public int size() {
+        return byHandle.size();
+    }
+
+    /**
+     * When an entity with modifiers is loaded, replace its deserialized modifiers with the shared definitions.
+     *
+     * @param event         Event indicating the modifiers list has been activated.
+     * @param entity        Reference to the entity that was loaded.
+     * @param modifiersList The modifiers on the entity.
+     */
+    @ReceiveEvent
+    public void onModifiersActivated(OnActivatedComponent event, EntityRef entity,
+                                     PhysicalStatsModifiersListComponent modifiersList) {
+        modifiersList.modifiers.replaceAll((id, modifier) -> modifier == null ? null : intern(modifier));
+    }
+
+    /**
+     * A weak reference to a dynamic definition, which remembers its key so that it can be removed once released.
+     */
+    private static final class DefinitionReference extends WeakReference<PhysicalStatsModifierComponent> {
+        private final Key key;
+
+        private DefinitionReference(Key key, PhysicalStatsModifierComponent definition,
+                                    ReferenceQueue<PhysicalStatsModifierComponent> queue) {
+            super(definition, queue);
+            this.key = key;
+        }
+    }
+
+    /**
+     * The contents of a modifier definition, used to find equal definitions.
+     */
+    private static final class Key {
+        private final String id;
+        private final ModifierStacking stacking;
+        private final int[] values;
+
+        private Key(PhysicalStatsModifierComponent modifier) {
+            this.id = modifier.id;
+            this.stacking = modifier.stacking;
+            this.values = PhysicalStatArrays.create();
+            PhysicalStatArrays.read(modifier, values);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return Objects.equals(id, other.id) && stacking == other.stacking
+                    && Arrays.equals(values, other.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * Objects.hashCode(id) + Objects.hashCode(stacking)) + Arrays.hashCode(values);
+        }
+    }
+}
@@ -0,0 +1,210 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.physicalstats.system;
+
+import org.terasology.engine.core.Time;
+import org.terasology.engine.entitySystem.entity.EntityManager;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.entitySystem.entity.lifecycleEvents.BeforeDeactivateComponent;
+import org.terasology.engine.entitySystem.entity.lifecycleEvents.BeforeRemoveComponent;
+import org.terasology.engine.entitySystem.entity.lifecycleEvents.OnActivatedComponent;
+import org.terasology.engine.entitySystem.systems.BaseComponentSystem;
+import org.terasology.engine.entitySystem.systems.RegisterMode;
+import org.terasology.engine.entitySystem.systems.RegisterSystem;
+import org.terasology.engine.entitySystem.systems.UpdateSubscriberSystem;
+import org.terasology.engine.registry.In;
+import org.terasology.engine.registry.Share;
+import org.terasology.gestalt.entitysystem.event.ReceiveEvent;
+import org.terasology.physicalstats.component.PhysicalStatsModifiersListComponent;
+import org.terasology.physicalstats.component.PhysicalStatsModifyEffect;
+import org.terasology.physicalstats.event.OnPhysicalStatsModifierRemovedEvent;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * This system keeps track of temporary physical stats modifiers, and removes them once their duration has run out.
+ * All pending expiries share a single queue ordered by expiry time, which is checked once per tick. It also indexes
+ * which instigator applied each modifier, so that all modifiers of an instigator can be removed at once. The index
+ * outlives the unloading of the affected entities, and modifiers removed while their entity was unloaded are removed
+ * once it's loaded again.
+ */
+@RegisterSystem(RegisterMode.AUTHORITY)
+@Share(PhysicalStatsModifierSystem.class)
+public class PhysicalStatsModifierSystem extends BaseComponentSystem implements UpdateSubscriberSystem {
+    @In
+    private Time time;
+
+    @In
+    private EntityManager entityManager;
+
+    /** The pending expiries of all temporary modifiers, keyed by the affected entity and the modifier ID. */
+    private final ModifierExpiryQueue<EntityRef> expiryQueue = new ModifierExpiryQueue<>();
+
+    /**
+     * The instigator of every modifier, and the reverse lookup from instigator to modifiers, by entity ID. Entries are
+     * kept while the affected entity is unloaded, and only dropped when it's destroyed.
+     */
+    private final ModifierInstigatorIndex<Long> instigatorIndex = new ModifierInstigatorIndex<>();
+
+    /**
+     * Modifiers that were removed by their instigator while the affected entity was unloaded, by entity ID. Each
+     * modifier ID is mapped to the ID of the instigator that it was removed for.
+     */
+    private final Map<Long, Map<String, Long>> pendingRemovals = new HashMap<>();
+
+    /**
+     * Schedule the modifier with the given ID on the entity to be removed after the given duration. If the modifier
+     * was already scheduled, its deadline is moved instead.
+     *
+     * @param entity    The entity that the modifier is applied to.
+     * @param id        The ID of the modifier.
+     * @param duration  The duration of the modifier in milliseconds.
+     * @return          The game time in milliseconds at which the modifier expires.
+     */
+    public long scheduleExpiry(EntityRef entity, String id, long duration) {
+        long expiryTime = time.getGameTimeInMs() + duration;
+        expiryQueue.schedule(entity, id, expiryTime);
+        return expiryTime;
+    }
+
+    /**
+     * Cancel the pending expiry of the modifier with the given ID on the entity, making the modifier permanent.
+     *
+     * @param entity    The entity that the modifier is applied to.
+     * @param id        The ID of the modifier.
+     */
+    public void cancelExpiry(EntityRef entity, String id) {
+        expiryQueue.cancel(entity, id);
+    }
+
+    /**
+     * Record that the instigator applied the modifier with the given ID to the entity. Modifiers applied without an
+     * existing instigator aren't indexed.
+     *
+     * @param instigator    The entity that applied the modifier.
+     * @param entity        The entity that the modifier is applied to.
+     * @param id            The ID of the modifier.
+     */
+    public void recordInstigator(EntityRef instigator, EntityRef entity, String id) {
+        if (instigator == null || !instigator.exists()) {
+            instigatorIndex.forget(entity.getId(), id);
+        } else {
+            instigatorIndex.record(instigator.getId(), entity.getId(), id);
+        }
+    }
+
+    /**
+     * Remove every modifier that the instigator applied. Modifiers on entities that are currently unloaded are removed
+     * once those entities are loaded again.
+     *
+     * @param instigator    The entity whose modifiers are being removed.
+     */
+    public void removeAllFrom(EntityRef instigator) {
+        long instigatorId = instigator.getId();
+        Map<Long, Set<String>> applied = instigatorIndex.takeAll(instigatorId);
+        for (Map.Entry<Long, Set<String>> entry : applied.entrySet()) {
+            EntityRef target = entityManager.getEntity(entry.getKey());
+            if (target.exists()) {
+                PhysicalStatsModifyEffect.removeMods(instigator, target, entry.getValue());
+            } else {
+                Map<String, Long> pending = pendingRemovals.computeIfAbsent(entry.getKey(), key -> new HashMap<>());
+                for (String id : entry.getValue()) {
+                    pending.put(id, instigatorId);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void update(float delta) {
+        long now = time.getGameTimeInMs();
+        if (expiryQueue.peekExpiryTime() <= now) {
+            expiryQueue.pollDue(now, (entity, id) -> {
+                if (entity.exists()) {
+                    PhysicalStatsModifyEffect.removeMod(entity, entity, id);
+                }
+            });
+        }
+    }
+
+    /**
+     * When a modifier is removed from an entity by other means, forget about its pending expiry.
+     *
+     * @param event     Event with information about the removed modifier.
+     * @param entity    Reference to the entity that was affected.
+     */
+    @ReceiveEvent
+    public void onModifierRemoved(OnPhysicalStatsModifierRemovedEvent event, EntityRef entity) {
+        if (event.getPModifier() != null) {
+            expiryQueue.cancel(entity, event.getPModifier().id);
+            instigatorIndex.forget(entity.getId(), event.getPModifier().id);
+        }
+    }
+
+    /**
+     * When an entity with modifiers is loaded, first remove the modifiers that their instigator removed while it was
+     * unloaded. Then index the instigators that were saved with the remaining modifiers and resume the timers of its
+     * temporary modifiers. Game time is saved with the world, so the saved expiry times are still valid.
+     *
+     * @param event         Event indicating the modifiers list has been activated.
+     * @param entity        Reference to the entity that was affected.
+     * @param modifiersList The modifiers on the entity.
+     */
+    @ReceiveEvent
+    public void onModifiersActivated(OnActivatedComponent event, EntityRef entity,
+                                     PhysicalStatsModifiersListComponent modifiersList) {
+        Map<String, Long> pending = pendingRemovals.remove(entity.getId());
+        if (pending != null) {
+            // Only remove modifiers that haven't been re-applied by someone else since.
+            List<String> removed = new ArrayList<>();
+            pending.forEach((id, instigatorId) -> {
+                if (modifiersList.modifiers.containsKey(id)
+                        && modifiersList.modifiers.getInstigatorId(id) == instigatorId) {
+                    removed.add(id);
+                }
+            });
+            if (!removed.isEmpty()) {
+                PhysicalStatsModifyEffect.removeMods(EntityRef.NULL, entity, removed);
+            }
+        }
+
+        // The saved instigators are indexed by ID without being looked up, since they may simply not be loaded yet.
+        modifiersList.modifiers.getInstigatorIds().forEach((id, instigatorId) ->
+                instigatorIndex.record(instigatorId, entity.getId(), id));
+        modifiersList.modifiers.getExpiryTimes().forEach((id, expiryTime) -> {
+            if (modifiersList.modifiers.containsKey(id)) {
+                expiryQueue.schedule(entity, id, expiryTime);
+            }
+        });
+    }
+
+    /**
+     * When an entity with modifiers is unloaded or destroyed, forget about all of its pending expiries. They're
+     * restored from the saved expiry times when it's loaded again. Its instigators stay indexed, so that their
+     * modifiers can still be removed while it's unloaded.
+     *
+     * @param event     Event indicating the modifiers list is about to be deactivated.
+     * @param entity    Reference to the entity that was affected.
+     */
+    @ReceiveEvent(components = PhysicalStatsModifiersListComponent.class)
+    public void onModifiersDeactivated(BeforeDeactivateComponent event, EntityRef entity) {
+        expiryQueue.cancelAll(entity);
+    }
+
+    /**
+     * When an entity loses its modifiers list, because it's destroyed or the list is removed, forget about its
+     * instigators and any modifiers still waiting to be removed from it.
+     *
+     * @param event     Event indicating the modifiers list is about to be removed.
+     * @param entity    Reference to the entity that was affected.
+     */
+    @ReceiveEvent(components = PhysicalStatsModifiersListComponent.class)
+    public void onModifiersRemoved(BeforeRemoveComponent event, EntityRef entity) {
+        instigatorIndex.forgetTarget(entity.getId());
+        pendingRemovals.remove(entity.getId());
+    }
+}
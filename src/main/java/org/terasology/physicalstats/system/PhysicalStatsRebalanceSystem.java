@@ -0,0 +1,433 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.physicalstats.system;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terasology.engine.entitySystem.entity.EntityManager;
+import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.entitySystem.systems.BaseComponentSystem;
+import org.terasology.engine.entitySystem.systems.RegisterMode;
+import org.terasology.engine.entitySystem.systems.RegisterSystem;
+import org.terasology.engine.entitySystem.systems.UpdateSubscriberSystem;
+import org.terasology.engine.registry.In;
+import org.terasology.engine.registry.Share;
+import org.terasology.module.health.components.HealthComponent;
+import org.terasology.physicalstats.archetype.StatArchetype;
+import org.terasology.physicalstats.archetype.StatArchetypeSystem;
+import org.terasology.physicalstats.component.ColumnarStatsComponent;
+import org.terasology.physicalstats.component.EffectivePhysicalStatsComponent;
+import org.terasology.physicalstats.component.PhysicalStat;
+import org.terasology.physicalstats.component.PhysicalStatArrays;
+import org.terasology.physicalstats.component.PhysicalStatsComponent;
+import org.terasology.physicalstats.component.StatArchetypeComponent;
+import org.terasology.physicalstats.formula.StatFormula;
+import org.terasology.physicalstats.formula.StatFormulaSet;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Predicate;
+
+/**
+ * This system rebalances the base stats and max health of many entities at once, for example after a balance hot-patch.
+ * A rebalance runs in three phases so that it doesn't stall the game:
+ * <ol>
+ *     <li>The stats and health of the selected entities are copied into flat arrays, a chunk per tick.</li>
+ *     <li>The new values are computed from the arrays in parallel on the common fork-join pool.</li>
+ *     <li>The new values are written back to the entities, a chunk per tick.</li>
+ * </ol>
+ * Entities whose stats changed while the rebalance was running are rebalanced again from their current stats when
+ * their chunk is written back, so no change is lost.
+ *
+ * Entities that use a stat archetype don't get their own base stats. Instead, each of their archetypes is rebalanced
+ * once, replacing it in the StatArchetypeSystem, and the entities that share it are refreshed as their chunk is written
+ * back. An archetype is shared by all of its entities, so selecting one of them selects the others as well.
+ */
+@RegisterSystem(RegisterMode.AUTHORITY)
+@Share(PhysicalStatsRebalanceSystem.class)
+public class PhysicalStatsRebalanceSystem extends BaseComponentSystem implements UpdateSubscriberSystem {
+    /**
+     * The default number of entities that are copied or written back per tick.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 2048;
+
+    /**
+     * The number of entities below which a parallel task isn't split any further.
+     */
+    private static final int SEQUENTIAL_THRESHOLD = 4096;
+
+    private static final Logger logger = LoggerFactory.getLogger(PhysicalStatsRebalanceSystem.class);
+
+    @In
+    private EntityManager entityManager;
+
+    @In
+    private PhysicalStatsSystem physicalStatsSystem;
+
+    @In
+    private PhysicalStatsChangeSystem physicalStatsChangeSystem;
+
+    @In
+    private StatArchetypeSystem archetypeSystem;
+
+    /** The number of entities that are copied or written back per tick. */
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+    /** The rebalance that is currently running, or null if there is none. */
+    private Rebalance running;
+
+    /**
+     * Start rebalancing every entity with physical stats that matches the filter. Only one rebalance can run at a time.
+     *
+     * @param instigator    The entity who started the rebalance, named as the instigator of the stat changes.
+     * @param filter        Only entities that match this are rebalanced, or null to rebalance all. This is checked on
+     *                      the main thread.
+     * @param rebalance     The change to the base stats of each entity.
+     * @param formulas      New formulas for the derived stats, or null to keep the current ones. The new formulas are
+     *                      used right away, and the max health of every selected entity is brought in line with them.
+     * @return              True if the rebalance was started, false if another rebalance is still running.
+     */
+    public boolean rebalance(EntityRef instigator, Predicate<EntityRef> filter, StatRebalance rebalance,
+                             StatFormulaSet formulas) {
+        if (running != null) {
+            return false;
+        }
+        if (formulas != null) {
+            physicalStatsSystem.setFormulas(formulas);
+        }
+
+        Set<EntityRef> entities = new LinkedHashSet<>();
+        Set<String> archetypes = new HashSet<>();
+        // Select on the effective stats, so that entities using a stat archetype are included, and on the columnar
+        // marker, as columnar entities keep their effective stats in the ColumnarStatStore instead.
+        for (EntityRef entity : entityManager.getEntitiesWith(EffectivePhysicalStatsComponent.class)) {
+            if (filter == null || filter.test(entity)) {
+                select(entity, entities, archetypes);
+            }
+        }
+        for (EntityRef entity : entityManager.getEntitiesWith(ColumnarStatsComponent.class)) {
+            if (!entity.hasComponent(EffectivePhysicalStatsComponent.class)
+                    && (filter == null || filter.test(entity))) {
+                select(entity, entities, archetypes);
+            }
+        }
+        // The other entities sharing a selected archetype follow it, so they are refreshed too.
+        if (!archetypes.isEmpty()) {
+            for (EntityRef entity : entityManager.getEntitiesWith(StatArchetypeComponent.class)) {
+                if (!entity.hasComponent(PhysicalStatsComponent.class)
+                        && archetypes.contains(getArchetypeKey(archetypeSystem.getArchetype(entity)))) {
+                    entities.add(entity);
+                }
+            }
+        }
+        running = new Rebalance(instigator, entities.toArray(new EntityRef[0]), rebalance,
+                physicalStatsSystem.getFormulas().getMaxHealth());
+        logger.info("Rebalancing the physical stats of {} entities", entities.size());
+        return true;
+    }
+
+    /**
+     * Check whether a rebalance is running.
+     *
+     * @return  True if a rebalance is running.
+     */
+    public boolean isRunning() {
+        return running != null;
+    }
+
+    /**
+     * Set the number of entities that are copied or written back per tick.
+     *
+     * @param chunkSize The new chunk size. Must be greater than 0.
+     */
+    public void setChunkSize(int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("The chunk size must be greater than 0, but was " + chunkSize);
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public void update(float delta) {
+        if (running == null) {
+            return;
+        }
+        switch (running.phase) {
+            case SNAPSHOT:
+                running.snapshot(chunkSize);
+                break;
+            case COMPUTE:
+                if (running.task.isDone()) {
+                    if (running.task.isCompletedAbnormally()) {
+                        logger.error("Rebalancing physical stats failed", running.task.getException());
+                        running = null;
+                        return;
+                    }
+                    running.phase = Phase.APPLY;
+                }
+                break;
+            case APPLY:
+                if (running.apply(chunkSize)) {
+                    logger.info("Rebalanced the physical stats of {} entities", running.entities.length);
+                    running = null;
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Add the entity to the selection, and remember its archetype if its base stats come from one.
+     */
+    private void select(EntityRef entity, Set<EntityRef> entities, Set<String> archetypes) {
+        entities.add(entity);
+        if (!entity.hasComponent(PhysicalStatsComponent.class)) {
+            StatArchetype archetype = archetypeSystem.getArchetype(entity);
+            if (archetype != null) {
+                archetypes.add(getArchetypeKey(archetype));
+            }
+        }
+    }
+
+    /**
+     * Get the name that identifies the archetype, or null for no archetype.
+     */
+    private static String getArchetypeKey(StatArchetype archetype) {
+        return archetype != null ? archetype.getName().toLowerCase(Locale.ROOT) : null;
+    }
+
+    /**
+     * Copy the base stats of the entity, from its own stats or from its archetype.
+     *
+     * @return  False if the entity has neither.
+     */
+    private boolean readBaseStats(EntityRef entity, int[] out) {
+        PhysicalStatsComponent phy = entity.getComponent(PhysicalStatsComponent.class);
+        if (phy != null) {
+            PhysicalStatArrays.read(phy, out);
+            return true;
+        }
+        StatArchetype archetype = archetypeSystem.getArchetype(entity);
+        if (archetype != null) {
+            archetype.copyBaseStats(out);
+            return true;
+        }
+        return false;
+    }
+
+    private enum Phase {
+        SNAPSHOT,
+        COMPUTE,
+        APPLY
+    }
+
+    /**
+     * The state of a running rebalance. The stats of entity {@code i} are kept at {@code i * PhysicalStat.COUNT} in the
+     * flat stat arrays.
+     */
+    private final class Rebalance {
+        private final EntityRef instigator;
+        private final EntityRef[] entities;
+        private final StatRebalance rebalance;
+        private final StatFormula maxHealthFormula;
+
+        /** The base stats of every entity when it was copied. */
+        private final int[] baseStats;
+
+        /** The rebalanced base stats of every entity. */
+        private final int[] newBaseStats;
+
+        /** The effective stats of every entity when it was copied. */
+        private final int[] effectiveStats;
+
+        /** The max health of every entity when it was copied, or -1 if it had no health. */
+        private final int[] maxHealth;
+
+        /** The max health of every entity after the rebalance, or -1 if it has no health. */
+        private final int[] newMaxHealth;
+
+        /** The archetypes that have been rebalanced so far, by {@link #getArchetypeKey}. */
+        private final Set<String> rebalancedArchetypes = new HashSet<>();
+
+        private Phase phase = Phase.SNAPSHOT;
+        private int next;
+        private ForkJoinTask<Void> task;
+
+        private Rebalance(EntityRef instigator, EntityRef[] entities, StatRebalance rebalance,
+                          StatFormula maxHealthFormula) {
+            this.instigator = instigator;
+            this.entities = entities;
+            this.rebalance = rebalance;
+            this.maxHealthFormula = maxHealthFormula;
+            this.baseStats = new int[entities.length * PhysicalStat.COUNT];
+            this.effectiveStats = new int[entities.length * PhysicalStat.COUNT];
+            this.newBaseStats = new int[entities.length * PhysicalStat.COUNT];
+            this.maxHealth = new int[entities.length];
+            this.newMaxHealth = new int[entities.length];
+        }
+
+        /**
+         * Copy the values of the next chunk of entities, and start the parallel computation once all are copied.
+         */
+        private void snapshot(int count) {
+            int[] stats = PhysicalStatArrays.create();
+            int[] scratch = PhysicalStatArrays.create();
+            int end = Math.min(entities.length, next + count);
+            for (; next < end; next++) {
+                EntityRef entity = entities[next];
+                int offset = next * PhysicalStat.COUNT;
+                if (!readBaseStats(entity, stats)) {
+                    Arrays.fill(stats, 0);
+                }
+                System.arraycopy(stats, 0, baseStats, offset, PhysicalStat.COUNT);
+
+                int[] effective = physicalStatsSystem.getEffectiveStats(entity, scratch);
+                System.arraycopy(effective != null ? effective : stats, 0, effectiveStats, offset, PhysicalStat.COUNT);
+
+                HealthComponent health = entity.getComponent(HealthComponent.class);
+                maxHealth[next] = health != null ? health.maxHealth : -1;
+            }
+
+            if (next == entities.length) {
+                next = 0;
+                phase = Phase.COMPUTE;
+                task = ForkJoinPool.commonPool().submit(new ComputeAction(this, 0, entities.length));
+            }
+        }
+
+        /**
+         * Compute the new values of the entities in the given range. This runs on a worker thread, and only touches the
+         * arrays of this rebalance.
+         */
+        private void compute(int from, int to) {
+            int[] stats = PhysicalStatArrays.create();
+            System.arraycopy(baseStats, from * PhysicalStat.COUNT, newBaseStats, from * PhysicalStat.COUNT,
+                    (to - from) * PhysicalStat.COUNT);
+            for (int i = from; i < to; i++) {
+                int offset = i * PhysicalStat.COUNT;
+                rebalance.rebalance(newBaseStats, offset);
+
+                // The effective stats are only known exactly if the base stats didn't change. Otherwise the new max
+                // health is derived when the new base stats are saved and the effective stats are recomputed.
+                newMaxHealth[i] = -1;
+                if (maxHealth[i] >= 0 && Arrays.equals(baseStats, offset, offset + PhysicalStat.COUNT,
+                        newBaseStats, offset, offset + PhysicalStat.COUNT)) {
+                    System.arraycopy(effectiveStats, offset, stats, 0, PhysicalStat.COUNT);
+                    newMaxHealth[i] = (int) maxHealthFormula.evaluate(stats);
+                }
+            }
+        }
+
+        /**
+         * Write the new values of the next chunk of entities back.
+         *
+         * @return  True if all entities have been written back.
+         */
+        private boolean apply(int count) {
+            int[] current = PhysicalStatArrays.create();
+            int[] target = PhysicalStatArrays.create();
+            int[] scratch = PhysicalStatArrays.create();
+            int end = Math.min(entities.length, next + count);
+            for (; next < end; next++) {
+                EntityRef entity = entities[next];
+                if (!entity.hasComponent(PhysicalStatsComponent.class)) {
+                    applyToArchetype(entity, current, scratch);
+                    continue;
+                }
+                readBaseStats(entity, current);
+                int offset = next * PhysicalStat.COUNT;
+
+                // If the stats changed since they were copied, rebalance the current stats instead.
+                if (Arrays.equals(current, 0, PhysicalStat.COUNT, baseStats, offset, offset + PhysicalStat.COUNT)) {
+                    System.arraycopy(newBaseStats, offset, target, 0, PhysicalStat.COUNT);
+                } else {
+                    System.arraycopy(current, 0, target, 0, PhysicalStat.COUNT);
+                    rebalance.rebalance(target, 0);
+                }
+
+                if (PhysicalStatArrays.diff(current, target) != 0) {
+                    // The effective stats and max health follow from the saved base stats.
+                    archetypeSystem.materialize(entity, target);
+                    physicalStatsChangeSystem.recordInstigator(entity, instigator);
+                } else if (newMaxHealth[next] >= 0 && newMaxHealth[next] != maxHealth[next]) {
+                    updateHealth(entity, current, scratch);
+                }
+            }
+            return next == entities.length;
+        }
+
+        /**
+         * Write the new values of an entity that uses a stat archetype back. Its archetype is rebalanced when the first
+         * entity sharing it is written back, and the entity's effective stats are refreshed from the new archetype.
+         */
+        private void applyToArchetype(EntityRef entity, int[] current, int[] scratch) {
+            StatArchetype archetype = archetypeSystem.getArchetype(entity);
+            if (archetype == null) {
+                return;
+            }
+            String key = getArchetypeKey(archetype);
+            if (rebalancedArchetypes.add(key)) {
+                int[] target = archetype.copyBaseStats(PhysicalStatArrays.create());
+                rebalance.rebalance(target, 0);
+                if (PhysicalStatArrays.diff(archetype.getSharedValues(), target) != 0) {
+                    archetypeSystem.rebalance(archetype, target);
+                }
+            }
+
+            // If the archetype's stats differ from the copied ones, the entity still has the old effective stats.
+            archetype = archetypeSystem.getArchetype(entity);
+            int offset = next * PhysicalStat.COUNT;
+            if (!Arrays.equals(archetype.getSharedValues(), 0, PhysicalStat.COUNT,
+                    baseStats, offset, offset + PhysicalStat.COUNT)) {
+                // The effective stats and max health follow from the new archetype.
+                physicalStatsSystem.refreshEffectiveStats(entity);
+                physicalStatsChangeSystem.recordInstigator(entity, instigator);
+            } else if (newMaxHealth[next] >= 0 && newMaxHealth[next] != maxHealth[next]) {
+                updateHealth(entity, archetype.copyBaseStats(current), scratch);
+            }
+        }
+
+        /**
+         * Bring the entity's max health in line with the formula, for entities whose base stats didn't change.
+         */
+        private void updateHealth(EntityRef entity, int[] baseStats, int[] scratch) {
+            HealthComponent health = entity.getComponent(HealthComponent.class);
+            if (health != null) {
+                int[] effective = physicalStatsSystem.getEffectiveStats(entity, scratch);
+                physicalStatsSystem.updateHealth(entity, health, effective != null ? effective : baseStats);
+            }
+        }
+    }
+
+    /**
+     * Computes the new values of a range of entities, splitting the range in halves until it is small enough.
+     */
+    private static final class ComputeAction extends RecursiveAction {
+        private final Rebalance rebalance;
+        private final int from;
+        private final int to;
+
+        private ComputeAction(Rebalance rebalance, int from, int to) {
+            this.rebalance = rebalance;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SEQUENTIAL_THRESHOLD) {
+                rebalance.compute(from, to);
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ComputeAction(rebalance, from, middle), new ComputeAction(rebalance, middle, to));
+            }
+        }
+    }
+}
@@ -5,28 +5,57 @@ package org.terasology.physicalstats.system;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.terasology.engine.context.Context;
-import org.terasology.engine.entitySystem.entity.EntityManager;
 import org.terasology.engine.entitySystem.entity.EntityRef;
+import org.terasology.engine.entitySystem.entity.lifecycleEvents.BeforeRemoveComponent;
+import org.terasology.engine.entitySystem.entity.lifecycleEvents.OnActivatedComponent;
+import org.terasology.engine.entitySystem.entity.lifecycleEvents.OnChangedComponent;
+import org.terasology.engine.entitySystem.prefab.Prefab;
+import org.terasology.engine.entitySystem.prefab.PrefabManager;
 import org.terasology.engine.entitySystem.systems.BaseComponentSystem;
 import org.terasology.engine.entitySystem.systems.RegisterSystem;
+import org.terasology.engine.entitySystem.systems.UpdateSubscriberSystem;
 import org.terasology.engine.logic.characters.GetMaxSpeedEvent;
 import org.terasology.engine.logic.players.event.OnPlayerSpawnedEvent;
+import org.terasology.engine.network.NetworkSystem;
 import org.terasology.engine.registry.In;
+import org.terasology.engine.registry.Share;
 import org.terasology.gestalt.entitysystem.event.ReceiveEvent;
 import org.terasology.module.health.components.HealthComponent;
 import org.terasology.module.health.events.BeforeDamagedEvent;
+import org.terasology.physicalstats.archetype.StatArchetype;
+import org.terasology.physicalstats.archetype.StatArchetypeSystem;
+import org.terasology.physicalstats.columnar.ColumnarStatStore;
+import org.terasology.physicalstats.columnar.ColumnarStatSystem;
+import org.terasology.physicalstats.component.ColumnarStatsComponent;
+import org.terasology.physicalstats.component.EffectivePhysicalStatsComponent;
+import org.terasology.physicalstats.component.EncumbranceComponent;
+import org.terasology.physicalstats.component.PhysicalStatArrays;
 import org.terasology.physicalstats.component.PhysicalStatsComponent;
-import org.terasology.physicalstats.component.PhysicalStatsModifierComponent;
 import org.terasology.physicalstats.component.PhysicalStatsModifiersListComponent;
+import org.terasology.physicalstats.component.StatFormulasComponent;
 import org.terasology.physicalstats.event.OnConstitutionChangedEvent;
+import org.terasology.physicalstats.event.OnPhysicalStatsModifierAddedEvent;
+import org.terasology.physicalstats.event.OnPhysicalStatsModifierRemovedEvent;
+import org.terasology.physicalstats.formula.StatFormulaSet;
+import org.terasology.physicalstats.metrics.PhysicalStatsMetrics;
+import org.terasology.physicalstats.metrics.StatHandler;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
 /**
- * This system handles the initialization of physical stats and the impact they have on certain actions.
+ * This system handles the initialization of physical stats and the impact they have on certain actions. Entities whose
+ * health may no longer match their constitution are reconciled incrementally, a limited number per tick, rather than all
+ * at once.
  */
 @RegisterSystem
-public class PhysicalStatsSystem extends BaseComponentSystem {
+@Share(PhysicalStatsSystem.class)
+public class PhysicalStatsSystem extends BaseComponentSystem implements UpdateSubscriberSystem {
     /**
-     * The value to multiply the constitution stat by for the maximum health. 10 by default.
+     * The value that the default max health formula multiplies the constitution stat by. The formula itself can be
+     * changed through the PhysicalStats:statFormulas prefab.
      */
     public static final int CONSTITUTION_MULTIPLIER = 10;
 
@@ -35,39 +64,189 @@ public class PhysicalStatsSystem extends BaseComponentSystem {
      */
     private static final Logger logger = LoggerFactory.getLogger(PhysicalStatsSystem.class);
 
-    @In
-    private EntityManager entityManager;
+    /**
+     * The default maximum number of entities whose health is reconciled with their physical stats per tick.
+     */
+    public static final int DEFAULT_HEALTH_RESYNC_BUDGET = 64;
+
+    /**
+     * The name of the prefab that declares the formulas of the derived stats.
+     */
+    public static final String FORMULAS_PREFAB = "PhysicalStats:statFormulas";
 
     @In
     private Context context;
 
+    @In
+    private PrefabManager prefabManager;
+
+    @In
+    private NetworkSystem networkSystem;
+
+    @In
+    private StatArchetypeSystem archetypeSystem;
+
+    @In
+    private ColumnarStatSystem columnarStatSystem;
+
+    @In
+    private PhysicalStatsChangeSystem physicalStatsChangeSystem;
+
+    /**
+     * The compiled formulas of the derived stats, like damage, speed and health.
+     */
+    private StatFormulaSet formulas = StatFormulaSet.DEFAULT;
+
+    /**
+     * Entities whose health may be out of sync with their physical stats, in the order that they were marked.
+     */
+    private final Set<EntityRef> healthResyncQueue = new LinkedHashSet<>();
+
     /**
-     * For every entity that has the PhysicalStatsComponent, initialize several characterstics that are affected by
-     * having this component. This includes the max health for example.
+     * The maximum number of entities whose health is reconciled per tick.
+     */
+    private int healthResyncBudget = DEFAULT_HEALTH_RESYNC_BUDGET;
+
+    /**
+     * A stat vector for reading the stats of columnar entities, which have no stat vector of their own. Only used on
+     * the main thread.
+     */
+    private final int[] columnarScratch = PhysicalStatArrays.create();
+
+    /**
+     * A stat vector for the stats of a columnar entity before they are recomputed. Only used on the main thread.
+     */
+    private final int[] columnarOldValues = PhysicalStatArrays.create();
+
+    /**
+     * Compile the formulas of the derived stats declared in the formulas prefab, so that they don't need to be
+     * interpreted when events are handled.
      */
     @Override
     public void initialise() {
-        for (EntityRef clientEntity : entityManager.getEntitiesWith(PhysicalStatsComponent.class)) {
-            // For every entity that has a health component, set their max health equal to CON * 10.
-            if (clientEntity.hasComponent(HealthComponent.class)) {
-                HealthComponent h = clientEntity.getComponent(HealthComponent.class);
-                PhysicalStatsComponent p = clientEntity.getComponent(PhysicalStatsComponent.class);
-                updateHealth(clientEntity, h, p);
-            }
+        Prefab prefab = prefabManager.getPrefab(FORMULAS_PREFAB);
+        StatFormulasComponent declared = prefab != null ? prefab.getComponent(StatFormulasComponent.class) : null;
+        if (declared != null) {
+            setFormulas(StatFormulaSet.compile(declared));
+        } else {
+            logger.warn("No stat formulas found in {}, using the defaults", FORMULAS_PREFAB);
         }
 
         super.initialise();
     }
 
     /**
-     * Sets the health and maximum health values as components of the PhysicalStats constitution stat.
+     * Get the compiled formulas of the derived stats.
+     *
+     * @return  The formulas currently in use.
+     */
+    public StatFormulaSet getFormulas() {
+        return formulas;
+    }
+
+    /**
+     * Replace the compiled formulas of the derived stats. Values that were already derived, like max health, aren't
+     * updated; use the PhysicalStatsRebalanceSystem to bring every entity in line with new formulas. Stat archetypes
+     * are resolved again, so that entities spawned from now on get the max health of the new formulas.
+     *
+     * @param formulas  The new formulas.
+     */
+    public void setFormulas(StatFormulaSet formulas) {
+        this.formulas = formulas;
+        archetypeSystem.clearCache();
+    }
+
+    @Override
+    public void update(float delta) {
+        // Reconcile at most healthResyncBudget entities per tick, in the order they were marked.
+        Iterator<EntityRef> iterator = healthResyncQueue.iterator();
+        for (int i = 0; i < healthResyncBudget && iterator.hasNext(); i++) {
+            EntityRef entity = iterator.next();
+            iterator.remove();
+            resyncHealth(entity);
+        }
+    }
+
+    /**
+     * Mark the given entity's health as possibly out of sync with its physical stats. It'll be reconciled during one of
+     * the following ticks, within the per-tick budget.
+     *
+     * @param entity    The entity whose health should be checked.
+     */
+    public void markHealthDirty(EntityRef entity) {
+        healthResyncQueue.add(entity);
+    }
+
+    /**
+     * Get the maximum number of entities whose health is reconciled with their physical stats per tick.
+     *
+     * @return  The per-tick budget.
+     */
+    public int getHealthResyncBudget() {
+        return healthResyncBudget;
+    }
+
+    /**
+     * Set the maximum number of entities whose health is reconciled with their physical stats per tick.
+     *
+     * @param healthResyncBudget    The new per-tick budget. Must be greater than 0.
+     */
+    public void setHealthResyncBudget(int healthResyncBudget) {
+        if (healthResyncBudget <= 0) {
+            throw new IllegalArgumentException("The health resync budget must be greater than 0, but was " + healthResyncBudget);
+        }
+        this.healthResyncBudget = healthResyncBudget;
+    }
+
+    /**
+     * Get the number of entities still waiting to have their health reconciled.
+     *
+     * @return  The number of dirty entities.
+     */
+    public int getPendingHealthResyncs() {
+        return healthResyncQueue.size();
+    }
+
+    /**
+     * If the given entity still has both physical stats and health, make sure that its max health matches its
+     * constitution.
+     *
+     * @param entity    The entity to reconcile.
+     */
+    private void resyncHealth(EntityRef entity) {
+        if (!entity.exists()) {
+            return;
+        }
+        HealthComponent h = entity.getComponent(HealthComponent.class);
+        PhysicalStatsComponent p = entity.getComponent(PhysicalStatsComponent.class);
+        if (h != null && p != null) {
+            updateHealth(entity, h, p);
+        }
+    }
+
+    /**
+     * Sets the health and maximum health values as components of the PhysicalStats constitution stat. The effective
+     * stats (including modifiers) are used if the entity has them, otherwise the base stats.
      * @param e The entity (i.e. player) to update
      * @param h The health stats of the player
      * @param p The physical stats of the player
      * @return True if changed, false if unchanged
      */
     public boolean updateHealth(EntityRef e, HealthComponent h, PhysicalStatsComponent p) {
-        int newMaxHealth = p.constitution * CONSTITUTION_MULTIPLIER;
+        int[] stats = getEffectiveStats(e, columnarScratch);
+        return updateHealth(e, h, stats != null ? stats : PhysicalStatArrays.read(p, columnarScratch));
+    }
+
+    /**
+     * Sets the health and maximum health values using the max health formula and the given stats. The current health
+     * keeps the same percentage of the maximum health. The health component is saved at most once.
+     * @param e The entity (i.e. player) to update
+     * @param h The health stats of the player
+     * @param stats The total stats of the player as a stat vector
+     * @return True if changed, false if unchanged
+     */
+    public boolean updateHealth(EntityRef e, HealthComponent h, int[] stats) {
+        int newMaxHealth = (int) formulas.getMaxHealth().evaluate(stats);
         if (h.maxHealth != newMaxHealth) {
             float healthPercentage = (float) h.currentHealth / (float) h.maxHealth;
             h.maxHealth = newMaxHealth;
@@ -96,8 +275,8 @@ public class PhysicalStatsSystem extends BaseComponentSystem {
     }
 
     /**
-     * When a character entity's (with physical stats) constitution attribute is changed, update the related stats like
-     * health.
+     * When a character entity's (with physical stats) constitution attribute is changed, mark the related stats like
+     * health for an update.
      *
      * @param event     Event indicating the character's constitution has been altered.
      * @param player    Reference to the character entity that was affected.
@@ -105,11 +284,212 @@ public class PhysicalStatsSystem extends BaseComponentSystem {
      */
     @ReceiveEvent
     public void onCONChanged(OnConstitutionChangedEvent event, EntityRef player, PhysicalStatsComponent phyStats) {
-        // If the player entity has a health component, make sure that the max health is equal to CON * 10, and if the
-        // current health is above the maximum health, set the current equal to the max.
+        long start = PhysicalStatsMetrics.start();
+        // If the player entity has a health component, its max health needs to be brought back in line with CON * 10.
         if (player.hasComponent(HealthComponent.class)) {
-            HealthComponent h = player.getComponent(HealthComponent.class);
-            updateHealth(player, h, phyStats);
+            markHealthDirty(player);
+        }
+        PhysicalStatsMetrics.stop(StatHandler.ON_CON_CHANGED, start);
+    }
+
+    /**
+     * When an entity gains physical stats or is loaded, compute its effective stats for the first time.
+     *
+     * @param event     Event indicating the physical stats component has been activated.
+     * @param entity    Reference to the entity that was activated.
+     */
+    @ReceiveEvent(components = PhysicalStatsComponent.class)
+    public void onPhysicalStatsActivated(OnActivatedComponent event, EntityRef entity) {
+        refreshEffectiveStats(entity);
+    }
+
+    /**
+     * When an entity with physical stats gains health, or either is loaded, mark its health for reconciliation.
+     *
+     * @param event     Event indicating the physical stats or health component has been activated.
+     * @param entity    Reference to the entity that was activated.
+     */
+    @ReceiveEvent(components = {PhysicalStatsComponent.class, HealthComponent.class})
+    public void onHealthActivated(OnActivatedComponent event, EntityRef entity) {
+        markHealthDirty(entity);
+    }
+
+    /**
+     * When an entity's base physical stats have been saved, recompute its effective stats.
+     *
+     * @param event     Event indicating the physical stats component has been changed.
+     * @param entity    Reference to the entity that was affected.
+     */
+    @ReceiveEvent(components = PhysicalStatsComponent.class)
+    public void onPhysicalStatsChanged(OnChangedComponent event, EntityRef entity) {
+        refreshEffectiveStats(entity);
+    }
+
+    /**
+     * When an entity loses its physical stats, the cached effective stats no longer mean anything, so remove them too.
+     *
+     * @param event     Event indicating the physical stats component is about to be removed.
+     * @param entity    Reference to the entity that was affected.
+     */
+    @ReceiveEvent(components = PhysicalStatsComponent.class)
+    public void onPhysicalStatsRemoved(BeforeRemoveComponent event, EntityRef entity) {
+        // Only the base stats going away matters here. Listening for the effective stats too would make this handler
+        // remove them again from inside their own removal.
+        if (entity.hasComponent(EffectivePhysicalStatsComponent.class)) {
+            entity.removeComponent(EffectivePhysicalStatsComponent.class);
+        }
+    }
+
+    /**
+     * When a physical stats modifier has been added to an entity, recompute its effective stats. This also
+     * covers entities whose base stats come from a stat archetype.
+     *
+     * @param event     Event with information about the added modifier.
+     * @param entity    Reference to the entity that was affected.
+     */
+    @ReceiveEvent
+    public void onModifierAdded(OnPhysicalStatsModifierAddedEvent event, EntityRef entity) {
+        refreshEffectiveStats(entity);
+    }
+
+    /**
+     * When a physical stats modifier has been removed from an entity, recompute its effective stats.
+     *
+     * @param event     Event with information about the removed modifier.
+     * @param entity    Reference to the entity that was affected.
+     */
+    @ReceiveEvent
+    public void onModifierRemoved(OnPhysicalStatsModifierRemovedEvent event, EntityRef entity) {
+        refreshEffectiveStats(entity);
+    }
+
+    /**
+     * Recompute the effective stats (base stats plus all modifiers) of the given entity and store them in its
+     * EffectivePhysicalStatsComponent, adding the component if it doesn't exist yet. Entities without their own
+     * PhysicalStatsComponent use the base stats of their stat archetype, and share its stat vector again once their
+     * effective stats are equal to it. Entities with a ColumnarStatsComponent have their effective stats written
+     * to the ColumnarStatStore instead.
+     *
+     * @param entity    The entity whose effective stats should be recomputed.
+     */
+    public void refreshEffectiveStats(EntityRef entity) {
+        // Clients don't know about all the modifiers, so they receive the effective stats from the server instead.
+        if (!networkSystem.getMode().isAuthority()) {
+            return;
+        }
+
+        PhysicalStatsComponent phy = entity.getComponent(PhysicalStatsComponent.class);
+        StatArchetype archetype = phy == null ? archetypeSystem.getArchetype(entity) : null;
+        if (phy == null && archetype == null) {
+            return;
+        }
+
+        long start = PhysicalStatsMetrics.start();
+        int oldSlot = columnarStatSystem == null ? -1 : columnarStatSystem.getStore().getSlot(entity.getId());
+        int slot = columnarStatSystem == null ? -1 : columnarStatSystem.getOrAddSlot(entity);
+        if (slot >= 0) {
+            refreshColumnarStats(entity, slot, oldSlot < 0, phy, archetype);
+            PhysicalStatsMetrics.stop(StatHandler.REFRESH_EFFECTIVE_STATS, start);
+            return;
+        }
+
+        EffectivePhysicalStatsComponent effective = entity.getComponent(EffectivePhysicalStatsComponent.class);
+        boolean isNew = effective == null;
+        if (isNew) {
+            effective = new EffectivePhysicalStatsComponent();
+        }
+
+        PhysicalStatsModifiersListComponent mods = entity.getComponent(PhysicalStatsModifiersListComponent.class);
+        if (phy != null) {
+            computeEffectiveStats(phy, mods, effective.mutableValues());
+        } else {
+            int[] values = archetype.copyBaseStats(effective.mutableValues());
+            if (mods != null) {
+                mods.getAggregates().apply(values);
+            }
+            if (Arrays.equals(values, archetype.getSharedValues())) {
+                effective.share(archetype.getSharedValues());
+            }
+        }
+
+        // A change in the stats, from the base stats or a modifier, may affect the entity's max health. The running
+        // modifier aggregates already include the affected modifier, so the new max health follows directly.
+        if (!isNew) {
+            HealthComponent h = entity.getComponent(HealthComponent.class);
+            if (h != null) {
+                updateHealth(entity, h, effective.values);
+            }
+        }
+
+        if (isNew) {
+            entity.addComponent(effective);
+        } else {
+            entity.saveComponent(effective);
+        }
+        PhysicalStatsMetrics.stop(StatHandler.REFRESH_EFFECTIVE_STATS, start);
+    }
+
+    /**
+     * Recompute the stats of an entity that keeps them in the ColumnarStatStore, and reconcile its max health. Like a
+     * change to an EffectivePhysicalStatsComponent, a change to stats already in the store results in an
+     * OnPhysicalStatChangedEvent at the end of the tick.
+     *
+     * @param entity    The entity whose effective stats should be recomputed.
+     * @param slot      The entity's slot in the store.
+     * @param isNewSlot True if the slot was just assigned, so that the entity has no earlier stats.
+     * @param phy       The entity's own base stats, or null to use its archetype.
+     * @param archetype The entity's archetype, used if it has no base stats of its own.
+     */
+    private void refreshColumnarStats(EntityRef entity, int slot, boolean isNewSlot, PhysicalStatsComponent phy,
+                                      StatArchetype archetype) {
+        ColumnarStatStore store = columnarStatSystem.getStore();
+        int[] values = phy != null
+                ? PhysicalStatArrays.read(phy, columnarScratch)
+                : archetype.copyBaseStats(columnarScratch);
+        PhysicalStatsModifiersListComponent mods = entity.getComponent(PhysicalStatsModifiersListComponent.class);
+        if (mods != null) {
+            mods.getAggregates().apply(values);
+        }
+        if (!isNewSlot && PhysicalStatArrays.diff(store.readEffective(slot, columnarOldValues), values) != 0) {
+            physicalStatsChangeSystem.recordColumnarChange(entity, columnarOldValues);
+        }
+        store.writeEffective(slot, values);
+
+        HealthComponent h = entity.getComponent(HealthComponent.class);
+        if (h != null) {
+            updateHealth(entity, h, values);
+        }
+    }
+
+    /**
+     * Get the effective stats of the given entity, wherever they are kept: in its EffectivePhysicalStatsComponent, or
+     * in the ColumnarStatStore.
+     *
+     * @param entity    The entity.
+     * @param scratch   A stat vector to copy the stats into if they aren't kept as a stat vector.
+     * @return          The effective stats, which must not be changed, or null if the entity has none.
+     */
+    public int[] getEffectiveStats(EntityRef entity, int[] scratch) {
+        EffectivePhysicalStatsComponent effective = entity.getComponent(EffectivePhysicalStatsComponent.class);
+        if (effective != null) {
+            return effective.values;
+        }
+        // The columnar system is only missing when this system is used on its own, like in the benchmarks.
+        return columnarStatSystem == null ? null : columnarStatSystem.readEffectiveStats(entity, scratch);
+    }
+
+    /**
+     * Compute effective stats from the given base stats and modifiers.
+     *
+     * @param phy   The base physical stats.
+     * @param mods  The modifiers applied to the entity, or null if there are none.
+     * @param out   The stat vector to write the effective stats into.
+     */
+    public void computeEffectiveStats(PhysicalStatsComponent phy, PhysicalStatsModifiersListComponent mods, int[] out) {
+        // Start from the base stats, and then apply the aggregated modifiers of each stacking category.
+        PhysicalStatArrays.read(phy, out);
+        if (mods != null) {
+            mods.getAggregates().apply(out);
         }
     }
 
@@ -122,58 +502,65 @@ public class PhysicalStatsSystem extends BaseComponentSystem {
      */
     @ReceiveEvent
     public void impactOnPhysicalDamage(BeforeDamagedEvent event, EntityRef damageTarget) {
+        long start = PhysicalStatsMetrics.start();
         // Ensure that the instigator entity actually has physical stats. If not, then STR will be non-existent.
-        if (event.getInstigator().hasComponent(PhysicalStatsComponent.class)) {
-            PhysicalStatsComponent phy = event.getInstigator().getComponent(PhysicalStatsComponent.class);
-
-            // If the instigator has no physical stats modifiers, then directly add the (base strength / 2) to the
-            // total damage value.
-            if (!event.getInstigator().hasComponent(PhysicalStatsModifiersListComponent.class)) {
-                event.add(phy.strength / 2f);
-            } else {
-                // Otherwise, get the list of physical stats modifiers applied to this entity.
-                PhysicalStatsModifiersListComponent mods =
-                        event.getInstigator().getComponent(PhysicalStatsModifiersListComponent.class);
-
-                // Tally up the base strength and all the strength modifiers into the totalStrength variable.
-                int totalStrength = phy.strength;
-                for (PhysicalStatsModifierComponent mod : mods.modifiers.values()) {
-                    totalStrength += mod.strength;
-                }
-
-                // Add the total strength to the total damage value.
-                event.add(totalStrength / 2f);
-            }
+        int[] stats = getEffectiveStats(event.getInstigator(), columnarScratch);
+        if (stats != null) {
+            // Add the result of the damage formula, (total strength / 2) by default, to the total damage value.
+            event.add(formulas.getPhysicalDamage().evaluate(stats));
         }
+        PhysicalStatsMetrics.stop(StatHandler.IMPACT_ON_PHYSICAL_DAMAGE, start);
     }
 
     /**
      * Before this entity (with physical stats) moves, apply the impact that their total agility attribute has on their
-     * maximum movement speed.
+     * maximum movement speed, and slow it down if it carries more than its endurance allows.
      *
      * @param event     Event with information of the current (and modifiable) movement speed.
      * @param entity    Entity that's intending to move.
-     * @param phy       The physical stats of the entity.
+     * @param stats     The effective physical stats of the entity.
      */
     @ReceiveEvent
-    public void impactOnSpeed(GetMaxSpeedEvent event, EntityRef entity, PhysicalStatsComponent phy) {
-        // If this entity has no physical stats modifiers, then directly add the agility attribute to the max movement
-        // speed. -1 is the minimum effect agility can have on the max speed. Every 10 AGI should increase the max
-        // movement speed by 100$.
-        if (!entity.hasComponent(PhysicalStatsModifiersListComponent.class)) {
-            event.add(Math.max(-1, (phy.agility - 10) / 10f));
-        } else {
-            // Otherwise, get the list of physical stats modifiers applied to this entity.
-            PhysicalStatsModifiersListComponent mods = entity.getComponent(PhysicalStatsModifiersListComponent.class);
+    public void impactOnSpeed(GetMaxSpeedEvent event, EntityRef entity, EffectivePhysicalStatsComponent stats) {
+        // By default, -1 is the minimum effect agility can have on the max speed, and every 10 AGI should increase the
+        // max movement speed by 100%.
+        long start = PhysicalStatsMetrics.start();
+        event.add(formulas.getMaxSpeed().evaluate(stats.values));
+        applyEncumbrance(event, entity);
+        PhysicalStatsMetrics.stop(StatHandler.IMPACT_ON_SPEED, start);
+    }
 
-            // Tally up the base agility and all the agility modifiers into the totalAgility variable.
-            int totalAgility = phy.agility;
-            for (PhysicalStatsModifierComponent mod : mods.modifiers.values()) {
-                totalAgility += mod.agility;
-            }
+    /**
+     * Before this entity, whose stats are kept in the ColumnarStatStore, moves, apply the impact that their total
+     * agility attribute has on their maximum movement speed, and slow it down if it carries too much, the same way as
+     * for other entities.
+     *
+     * @param event     Event with information of the current (and modifiable) movement speed.
+     * @param entity    Entity that's intending to move.
+     * @param columnar  The component marking the entity's stats as columnar.
+     */
+    @ReceiveEvent
+    public void impactOnSpeedColumnar(GetMaxSpeedEvent event, EntityRef entity, ColumnarStatsComponent columnar) {
+        long start = PhysicalStatsMetrics.start();
+        int[] stats = columnarStatSystem.readEffectiveStats(entity, columnarScratch);
+        if (stats != null) {
+            event.add(formulas.getMaxSpeed().evaluate(stats));
+        }
+        applyEncumbrance(event, entity);
+        PhysicalStatsMetrics.stop(StatHandler.IMPACT_ON_SPEED, start);
+    }
 
-            // Add the total agility to the total damage value.
-            event.add(Math.max(-1, (totalAgility - 10) / 10f));
+    /**
+     * Slow the entity down if it carries more than its endurance allows. The multiplier is kept up to date by the
+     * EncumbranceSystem whenever the inventory or endurance changes.
+     *
+     * @param event     Event with information of the current (and modifiable) movement speed.
+     * @param entity    Entity that's intending to move.
+     */
+    private void applyEncumbrance(GetMaxSpeedEvent event, EntityRef entity) {
+        EncumbranceComponent encumbrance = entity.getComponent(EncumbranceComponent.class);
+        if (encumbrance != null && encumbrance.speedMultiplier < 1) {
+            event.multiply(encumbrance.speedMultiplier);
         }
     }
 }
@@ -2,6 +2,7 @@
 // SPDX-License-Identifier: Apache-2.0
 package org.terasology.physicalstats.system;
 
+import org.joml.Vector3f;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.terasology.engine.entitySystem.entity.EntityManager;
@@ -10,15 +11,32 @@ import org.terasology.engine.entitySystem.systems.BaseComponentSystem;
 import org.terasology.engine.entitySystem.systems.RegisterSystem;
 import org.terasology.engine.logic.console.commandSystem.annotations.Command;
 import org.terasology.engine.logic.console.commandSystem.annotations.CommandParam;
+import org.terasology.engine.logic.console.commandSystem.annotations.Sender;
+import org.terasology.engine.logic.location.LocationComponent;
 import org.terasology.engine.logic.permission.PermissionManager;
 import org.terasology.engine.logic.players.LocalPlayer;
+import org.terasology.engine.network.ClientComponent;
 import org.terasology.engine.registry.CoreRegistry;
 import org.terasology.engine.registry.In;
+import org.terasology.physicalstats.archetype.StatArchetypeSystem;
+import org.terasology.physicalstats.component.ColumnarStatsComponent;
+import org.terasology.physicalstats.component.EffectivePhysicalStatsComponent;
+import org.terasology.physicalstats.component.PhysicalStat;
+import org.terasology.physicalstats.component.PhysicalStatArrays;
 import org.terasology.physicalstats.component.PhysicalStatsComponent;
 import org.terasology.physicalstats.event.OnAgilityChangedEvent;
 import org.terasology.physicalstats.event.OnConstitutionChangedEvent;
-import org.terasology.physicalstats.event.OnPhysicalStatChangedEvent;
 import org.terasology.physicalstats.event.OnStrengthChangedEvent;
+import org.terasology.physicalstats.formula.StatFormula;
+import org.terasology.physicalstats.formula.StatFormulaCompiler;
+import org.terasology.physicalstats.metrics.PhysicalStatsMetrics;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Predicate;
 
 /**
  * This system handles cheat or debug commands related to the physical stats system.
@@ -33,6 +51,18 @@ public class PhysicalStatsSystemCommands extends BaseComponentSystem {
     @In
     private EntityManager entityManager;
 
+    @In
+    private PhysicalStatsSystem physicalStatsSystem;
+
+    @In
+    private PhysicalStatsChangeSystem physicalStatsChangeSystem;
+
+    @In
+    private PhysicalStatsRebalanceSystem rebalanceSystem;
+
+    @In
+    private StatArchetypeSystem archetypeSystem;
+
     /**
      * Print all of the current base physical stats of the local player to the console window.
      */
@@ -40,12 +70,18 @@ public class PhysicalStatsSystemCommands extends BaseComponentSystem {
     public void getPlayerStats() {
         // Get the local player's character entity, and get the PhysicalStatsComponent from it to print the base stat
         // attributes.
-        if (CoreRegistry.get(LocalPlayer.class).getCharacterEntity().hasComponent(PhysicalStatsComponent.class)) {
-            PhysicalStatsComponent p = CoreRegistry.get(LocalPlayer.class).getCharacterEntity().
-                    getComponent(PhysicalStatsComponent.class);
-
-            logger.info("STR: " + p.strength + " DEX: " + p.dexterity + " END: " + p.endurance + " CON: "
-                    + p.constitution + " AGI: " + p.agility + " CHA: " + p.charisma + " LUK: " + p.luck);
+        PhysicalStatsComponent p = CoreRegistry.get(LocalPlayer.class).getCharacterEntity().
+                getComponent(PhysicalStatsComponent.class);
+        if (p != null) {
+            int[] values = PhysicalStatArrays.read(p, PhysicalStatArrays.create());
+            StringBuilder builder = new StringBuilder();
+            for (int i = 0; i < PhysicalStat.COUNT; i++) {
+                if (i > 0) {
+                    builder.append(' ');
+                }
+                builder.append(PhysicalStat.byIndex(i).getAbbreviation()).append(": ").append(values[i]);
+            }
+            logger.info(builder.toString());
         }
     }
 
@@ -56,24 +92,7 @@ public class PhysicalStatsSystemCommands extends BaseComponentSystem {
      */
     @Command(shortDescription = "Set physical STR stat.", requiredPermission = PermissionManager.CHEAT_PERMISSION)
     public void setSTR(@CommandParam("amount") int amount) {
-        // Get the local player's character entity, and check to see whether it has physical stats. If so, continue in
-        // this if-block.
-        if (CoreRegistry.get(LocalPlayer.class).getCharacterEntity().hasComponent(PhysicalStatsComponent.class)) {
-            EntityRef player = CoreRegistry.get(LocalPlayer.class).getCharacterEntity();
-
-            // Store the old strength value, and replace it with the new one.
-            int oldValue = player.getComponent(PhysicalStatsComponent.class).strength;
-            PhysicalStatsComponent physicalStatsComponent = player.getComponent(PhysicalStatsComponent.class);
-            physicalStatsComponent.strength = amount;
-            player.saveComponent(physicalStatsComponent);
-            // Print the change to the console.
-            logger.info("STR changed from " + oldValue + " to " + amount);
-
-            // Send two events to the player entity. The first for indicating that the strength has been changed.
-            // The second for indicating that a physical stat has been changed.
-            player.send(new OnStrengthChangedEvent(player, player, oldValue, amount));
-            player.send(new OnPhysicalStatChangedEvent(player, player));
-        }
+        setStat(PhysicalStat.STRENGTH, amount);
     }
 
     /**
@@ -83,23 +102,7 @@ public class PhysicalStatsSystemCommands extends BaseComponentSystem {
      */
     @Command(shortDescription = "Set physical DEX stat.", requiredPermission = PermissionManager.CHEAT_PERMISSION)
     public void setDEX(@CommandParam("amount") int amount) {
-        // Get the local player's character entity, and check to see whether it has physical stats. If so, continue in
-        // this if-block.
-        if (CoreRegistry.get(LocalPlayer.class).getCharacterEntity().hasComponent(PhysicalStatsComponent.class)) {
-            EntityRef player = CoreRegistry.get(LocalPlayer.class).getCharacterEntity();
-
-            // Store the old dexterity value, and replace it with the new one.
-            int oldValue = player.getComponent(PhysicalStatsComponent.class).constitution;
-            PhysicalStatsComponent physicalStatsComponent = player.getComponent(PhysicalStatsComponent.class);
-            physicalStatsComponent.dexterity = amount;
-            player.saveComponent(physicalStatsComponent);
-
-            // Print the change to the console.
-            logger.info("DEX changed from " + oldValue + " to " + amount);
-
-            // Send an event to the player entity indicating that a physical stat has been changed.
-            player.send(new OnPhysicalStatChangedEvent(player, player));
-        }
+        setStat(PhysicalStat.DEXTERITY, amount);
     }
 
     /**
@@ -109,25 +112,7 @@ public class PhysicalStatsSystemCommands extends BaseComponentSystem {
      */
     @Command(shortDescription = "Set physical CON stat.", requiredPermission = PermissionManager.CHEAT_PERMISSION)
     public void setCON(@CommandParam("amount") int amount) {
-        // Get the local player's character entity, and check to see whether it has physical stats. If so, continue in
-        // this if-block.
-        if (CoreRegistry.get(LocalPlayer.class).getCharacterEntity().hasComponent(PhysicalStatsComponent.class)) {
-            EntityRef player = CoreRegistry.get(LocalPlayer.class).getCharacterEntity();
-
-            // Store the old constitution value, and replace it with the new one.
-            int oldValue = player.getComponent(PhysicalStatsComponent.class).constitution;
-            PhysicalStatsComponent physicalStatsComponent = player.getComponent(PhysicalStatsComponent.class);
-            physicalStatsComponent.constitution = amount;
-            player.saveComponent(physicalStatsComponent);
-
-            // Print the change to the console.
-            logger.info("CON changed from " + oldValue + " to " + amount);
-
-            // Send two events to the player entity. The first for indicating that the constitution has been changed.
-            // The second for indicating that a physical stat has been changed.
-            player.send(new OnConstitutionChangedEvent(player, player, oldValue, amount));
-            player.send(new OnPhysicalStatChangedEvent(player, player));
-        }
+        setStat(PhysicalStat.CONSTITUTION, amount);
     }
 
     /**
@@ -137,25 +122,7 @@ public class PhysicalStatsSystemCommands extends BaseComponentSystem {
      */
     @Command(shortDescription = "Set physical AGI stat.", requiredPermission = PermissionManager.CHEAT_PERMISSION)
     public void setAGI(@CommandParam("amount") int amount) {
-        // Get the local player's character entity, and check to see whether it has physical stats. If so, continue in
-        // this if-block.
-        if (CoreRegistry.get(LocalPlayer.class).getCharacterEntity().hasComponent(PhysicalStatsComponent.class)) {
-            EntityRef player = CoreRegistry.get(LocalPlayer.class).getCharacterEntity();
-
-            // Store the old agility value, and replace it with the new one.
-            int oldValue = player.getComponent(PhysicalStatsComponent.class).agility;
-            PhysicalStatsComponent physicalStatsComponent = player.getComponent(PhysicalStatsComponent.class);
-            physicalStatsComponent.agility = amount;
-            player.saveComponent(physicalStatsComponent);
-
-            // Print the change to the console.
-            logger.info("AGI changed from " + oldValue + " to " + amount);
-
-            // Send two events to the player entity. The first for indicating that the agility has been changed.
-            // The second for indicating that a physical stat has been changed.
-            player.send(new OnAgilityChangedEvent(player, player, oldValue, amount));
-            player.send(new OnPhysicalStatChangedEvent(player, player));
-        }
+        setStat(PhysicalStat.AGILITY, amount);
     }
 
     /**
@@ -165,23 +132,7 @@ public class PhysicalStatsSystemCommands extends BaseComponentSystem {
      */
     @Command(shortDescription = "Set physical END stat.", requiredPermission = PermissionManager.CHEAT_PERMISSION)
     public void setEND(@CommandParam("amount") int amount) {
-        // Get the local player's character entity, and check to see whether it has physical stats. If so, continue in
-        // this if-block.
-        if (CoreRegistry.get(LocalPlayer.class).getCharacterEntity().hasComponent(PhysicalStatsComponent.class)) {
-            EntityRef player = CoreRegistry.get(LocalPlayer.class).getCharacterEntity();
-
-            // Store the old endurance value, and replace it with the new one.
-            int oldValue = player.getComponent(PhysicalStatsComponent.class).endurance;
-            PhysicalStatsComponent physicalStatsComponent = player.getComponent(PhysicalStatsComponent.class);
-            physicalStatsComponent.endurance = amount;
-            player.saveComponent(physicalStatsComponent);
-
-            // Print the change to the console.
-            logger.info("END changed from " + oldValue + " to " + amount);
-
-            // Send an event to the player entity indicating that a physical stat has been changed.
-            player.send(new OnPhysicalStatChangedEvent(player, player));
-        }
+        setStat(PhysicalStat.ENDURANCE, amount);
     }
 
     /**
@@ -191,23 +142,7 @@ public class PhysicalStatsSystemCommands extends BaseComponentSystem {
      */
     @Command(shortDescription = "Set physical CHA stat.", requiredPermission = PermissionManager.CHEAT_PERMISSION)
     public void setCHA(@CommandParam("amount") int amount) {
-        // Get the local player's character entity, and check to see whether it has physical stats. If so, continue in
-        // this if-block.
-        if (CoreRegistry.get(LocalPlayer.class).getCharacterEntity().hasComponent(PhysicalStatsComponent.class)) {
-            EntityRef player = CoreRegistry.get(LocalPlayer.class).getCharacterEntity();
-
-            // Store the old charisma value, and replace it with the new one.
-            int oldValue = player.getComponent(PhysicalStatsComponent.class).charisma;
-            PhysicalStatsComponent physicalStatsComponent = player.getComponent(PhysicalStatsComponent.class);
-            physicalStatsComponent.charisma = amount;
-            player.saveComponent(physicalStatsComponent);
-
-            // Print the change to the console.
-            logger.info("CHA changed from " + oldValue + " to " + amount);
-
-            // Send an event to the player entity indicating that a physical stat has been changed.
-            player.send(new OnPhysicalStatChangedEvent(player, player));
-        }
+        setStat(PhysicalStat.CHARISMA, amount);
     }
 
     /**
@@ -217,22 +152,320 @@ public class PhysicalStatsSystemCommands extends BaseComponentSystem {
      */
     @Command(shortDescription = "Set physical LUK stat.", requiredPermission = PermissionManager.CHEAT_PERMISSION)
     public void setLUK(@CommandParam("amount") int amount) {
-        // Get the local player's character entity, and check to see whether it has physical stats. If so, continue in
-        // this if-block.
-        if (CoreRegistry.get(LocalPlayer.class).getCharacterEntity().hasComponent(PhysicalStatsComponent.class)) {
-            EntityRef player = CoreRegistry.get(LocalPlayer.class).getCharacterEntity();
+        setStat(PhysicalStat.LUCK, amount);
+    }
 
-            // Store the old luck value, and replace it with the new one.
-            int oldValue = player.getComponent(PhysicalStatsComponent.class).luck;
-            PhysicalStatsComponent physicalStatsComponent = player.getComponent(PhysicalStatsComponent.class);
-            physicalStatsComponent.luck = amount;
-            player.saveComponent(physicalStatsComponent);
+    /**
+     * Set how many entities per tick may have their health reconciled with their physical stats.
+     *
+     * @param budget    The new per-tick budget.
+     * @return          A message describing the new budget.
+     */
+    @Command(shortDescription = "Set the number of health resyncs per tick.",
+            requiredPermission = PermissionManager.CHEAT_PERMISSION)
+    public String setHealthResyncBudget(@CommandParam("budget") int budget) {
+        if (budget <= 0) {
+            return "The budget must be greater than 0.";
+        }
+        physicalStatsSystem.setHealthResyncBudget(budget);
+        return "Health resync budget set to " + budget + " per tick, " + physicalStatsSystem.getPendingHealthResyncs()
+                + " entities pending.";
+    }
 
-            // Print the change to the console.
-            logger.info("LUK changed from " + oldValue + " to " + amount);
+    /**
+     * Control the instrumentation of the physical stats handlers on the server, or show what it has recorded.
+     *
+     * @param action    on, off or reset, or nothing to show the report.
+     * @return          The report, or a message describing the result.
+     */
+    @Command(shortDescription = "Show or control physical stats metrics.",
+            helpText = "Without an argument, shows call counts, rates and latencies of the stat handlers. Use on, off "
+                    + "or reset to control the recording.",
+            runOnServer = true, requiredPermission = PermissionManager.CHEAT_PERMISSION)
+    public String statsMetrics(@CommandParam(value = "action", required = false) String action) {
+        if (action == null) {
+            return PhysicalStatsMetrics.report();
+        }
+        switch (action.toLowerCase(Locale.ROOT)) {
+            case "on":
+                PhysicalStatsMetrics.setEnabled(true);
+                return "Physical stats metrics recording started.";
+            case "off":
+                PhysicalStatsMetrics.setEnabled(false);
+                return "Physical stats metrics recording stopped.";
+            case "reset":
+                PhysicalStatsMetrics.reset();
+                return "Physical stats metrics reset.";
+            default:
+                return "Unknown action '" + action + "', expected on, off or reset";
+        }
+    }
 
-            // Send an event to the player entity indicating that a physical stat has been changed.
-            player.send(new OnPhysicalStatChangedEvent(player, player));
+    /**
+     * Set several base stats on one or more entities at once. Each affected entity has its physical stats fetched and
+     * saved once, and receives a single OnPhysicalStatChangedEvent at the end of the tick. The events for the specific
+     * stats, like OnStrengthChangedEvent, are sent right away for every stat that was set.
+     *
+     * @param client        The client entity of the player who sent the command.
+     * @param assignments   Comma separated stat=value pairs, e.g. STR=20,AGI=15.
+     * @param target        Which entities to change: self (the default), players, or radius:N for every entity with
+     *                      physical stats within N blocks of the sender's character.
+     * @return              A message describing the result.
+     */
+    @Command(shortDescription = "Set several physical stats on one or more entities.",
+            helpText = "Takes comma separated stat=value pairs, e.g. STR=20,AGI=15, and an optional target: self "
+                    + "(default), players, or radius:<blocks> around your character.",
+            runOnServer = true, requiredPermission = PermissionManager.CHEAT_PERMISSION)
+    public String setStats(@Sender EntityRef client, @CommandParam("assignments") String assignments,
+                           @CommandParam(value = "target", required = false) String target) {
+        // Parse the assignments into a stat vector, and a bitmask of the stats that should be set.
+        int[] values = PhysicalStatArrays.create();
+        int mask = 0;
+        for (String assignment : assignments.split(",")) {
+            String[] parts = assignment.split("=");
+            PhysicalStat stat = parts.length == 2 ? PhysicalStat.find(parts[0]) : null;
+            if (stat == null) {
+                return "Invalid assignment '" + assignment + "', expected e.g. STR=20";
+            }
+            try {
+                values[stat.index()] = Integer.parseInt(parts[1].trim());
+            } catch (NumberFormatException e) {
+                return "Invalid value in '" + assignment + "'";
+            }
+            mask |= 1 << stat.index();
         }
+
+        ClientComponent clientComp = client.getComponent(ClientComponent.class);
+        EntityRef character = clientComp != null ? clientComp.character : EntityRef.NULL;
+        List<EntityRef> targets = selectTargets(character, target);
+        if (targets == null) {
+            return "Invalid target '" + target + "', expected self, players or radius:<blocks>";
+        }
+
+        int count = 0;
+        for (EntityRef entity : targets) {
+            if (applyStats(character, entity, mask, values) != null) {
+                count++;
+            }
+        }
+        return "Set stats on " + count + " entities.";
+    }
+
+    /**
+     * Multiply a base stat of many entities by a factor. The entities are updated over several ticks.
+     *
+     * @param client    The client entity of the player who sent the command.
+     * @param statName  The name or abbreviation of the stat to scale.
+     * @param factor    The factor to multiply the stat by.
+     * @param target    Which entities to change: all (the default), npcs, or players.
+     * @return          A message describing the result.
+     */
+    @Command(shortDescription = "Scale a physical stat on many entities at once.",
+            helpText = "Multiplies the stat by the factor on all entities, or only on npcs or players, spreading the "
+                    + "work over several ticks.",
+            runOnServer = true, requiredPermission = PermissionManager.CHEAT_PERMISSION)
+    public String rebalanceStat(@Sender EntityRef client, @CommandParam("stat") String statName,
+                                @CommandParam("factor") float factor,
+                                @CommandParam(value = "target", required = false) String target) {
+        PhysicalStat stat = PhysicalStat.find(statName);
+        if (stat == null) {
+            return "Unknown stat '" + statName + "'";
+        }
+        Predicate<EntityRef> filter = selectRebalanceTargets(target);
+        if (filter == null && target != null && !target.equalsIgnoreCase("all")) {
+            return "Invalid target '" + target + "', expected all, npcs or players";
+        }
+        if (!rebalanceSystem.rebalance(getCharacter(client), filter, StatRebalance.scale(stat, factor), null)) {
+            return "Another rebalance is still running.";
+        }
+        return "Rebalancing " + stat.getAbbreviation() + " by a factor of " + factor + ".";
+    }
+
+    /**
+     * Replace the max health formula, and bring the max health of every entity in line with it over several ticks.
+     *
+     * @param client    The client entity of the player who sent the command.
+     * @param formula   The new max health formula, e.g. CON * 12.
+     * @return          A message describing the result.
+     */
+    @Command(shortDescription = "Change the max health formula on all entities.",
+            runOnServer = true, requiredPermission = PermissionManager.CHEAT_PERMISSION)
+    public String rebalanceMaxHealth(@Sender EntityRef client, @CommandParam("formula") String formula) {
+        StatFormula maxHealth;
+        try {
+            maxHealth = StatFormulaCompiler.compile(formula);
+        } catch (IllegalArgumentException e) {
+            return "Invalid formula: " + e.getMessage();
+        }
+        if (!rebalanceSystem.rebalance(getCharacter(client), null, StatRebalance.none(),
+                physicalStatsSystem.getFormulas().withMaxHealth(maxHealth))) {
+            return "Another rebalance is still running.";
+        }
+        return "Rebalancing max health to " + formula + ".";
+    }
+
+    /**
+     * Get the filter for a target of the rebalanceStat command.
+     *
+     * @param target    The target, or null for the default.
+     * @return          The filter, or null for all entities or an invalid target.
+     */
+    private Predicate<EntityRef> selectRebalanceTargets(String target) {
+        if (target == null) {
+            return null;
+        }
+        boolean players = target.equalsIgnoreCase("players");
+        if (!players && !target.equalsIgnoreCase("npcs")) {
+            return null;
+        }
+        Set<EntityRef> characters = new HashSet<>();
+        for (EntityRef clientEntity : entityManager.getEntitiesWith(ClientComponent.class)) {
+            characters.add(clientEntity.getComponent(ClientComponent.class).character);
+        }
+        return entity -> characters.contains(entity) == players;
+    }
+
+    private EntityRef getCharacter(EntityRef client) {
+        ClientComponent clientComp = client.getComponent(ClientComponent.class);
+        return clientComp != null ? clientComp.character : EntityRef.NULL;
+    }
+
+    /**
+     * Find the entities selected by a target of the setStats command.
+     *
+     * @param character     The character entity of the player who sent the command.
+     * @param target        The target, or null for the default.
+     * @return              The selected entities, or null if the target is invalid.
+     */
+    private List<EntityRef> selectTargets(EntityRef character, String target) {
+        List<EntityRef> targets = new ArrayList<>();
+        if (target == null || target.equalsIgnoreCase("self")) {
+            targets.add(character);
+        } else if (target.equalsIgnoreCase("players")) {
+            for (EntityRef clientEntity : entityManager.getEntitiesWith(ClientComponent.class)) {
+                targets.add(clientEntity.getComponent(ClientComponent.class).character);
+            }
+        } else if (target.toLowerCase(Locale.ROOT).startsWith("radius:")) {
+            LocationComponent origin = character.getComponent(LocationComponent.class);
+            float radius;
+            try {
+                radius = Float.parseFloat(target.substring("radius:".length()));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            if (origin == null) {
+                return targets;
+            }
+            Vector3f center = origin.getWorldPosition(new Vector3f());
+            Vector3f position = new Vector3f();
+            float radiusSquared = radius * radius;
+            // Select on the effective stats, so that entities using a stat archetype are included, and on the columnar
+            // marker, as columnar entities keep their effective stats in the ColumnarStatStore instead.
+            for (EntityRef entity : entityManager.getEntitiesWith(EffectivePhysicalStatsComponent.class,
+                    LocationComponent.class)) {
+                entity.getComponent(LocationComponent.class).getWorldPosition(position);
+                if (position.distanceSquared(center) <= radiusSquared) {
+                    targets.add(entity);
+                }
+            }
+            for (EntityRef entity : entityManager.getEntitiesWith(ColumnarStatsComponent.class,
+                    LocationComponent.class)) {
+                entity.getComponent(LocationComponent.class).getWorldPosition(position);
+                if (!entity.hasComponent(EffectivePhysicalStatsComponent.class)
+                        && position.distanceSquared(center) <= radiusSquared) {
+                    targets.add(entity);
+                }
+            }
+        } else {
+            return null;
+        }
+        return targets;
+    }
+
+    /**
+     * Set the masked base stats of the given entity to the given values. The physical stats are fetched and saved once,
+     * and the instigator is recorded for the OnPhysicalStatChangedEvent sent at the end of the tick. The events for the
+     * specific stats are sent for every masked stat. Entities using a stat archetype get their own copy of its stats
+     * first.
+     *
+     * @param instigator    The entity who is changing the stats.
+     * @param entity        The entity whose stats are changed.
+     * @param mask          A bitmask with bit {@code 1 << stat.index()} set for every stat to change.
+     * @param values        The new stat values. Only the masked values are used.
+     * @return              The entity's stats before the change, or null if it has no physical stats.
+     */
+    private int[] applyStats(EntityRef instigator, EntityRef entity, int mask, int[] values) {
+        PhysicalStatsComponent physicalStatsComponent = archetypeSystem.materialize(entity);
+        if (physicalStatsComponent == null) {
+            return null;
+        }
+
+        int[] oldValues = PhysicalStatArrays.read(physicalStatsComponent, PhysicalStatArrays.create());
+        int[] newValues = oldValues.clone();
+        for (int i = 0; i < PhysicalStat.COUNT; i++) {
+            if ((mask & (1 << i)) != 0) {
+                newValues[i] = values[i];
+            }
+        }
+        PhysicalStatArrays.write(newValues, physicalStatsComponent);
+        entity.saveComponent(physicalStatsComponent);
+
+        physicalStatsChangeSystem.recordInstigator(entity, instigator);
+
+        // Send an event for each of the specific stats that were set, if there is one.
+        for (int i = 0; i < PhysicalStat.COUNT; i++) {
+            if ((mask & (1 << i)) != 0) {
+                sendStatChangedEvent(instigator, entity, PhysicalStat.byIndex(i), oldValues[i], newValues[i]);
+            }
+        }
+        return oldValues;
+    }
+
+    /**
+     * Send the change event for a specific stat, if there is one.
+     *
+     * @param instigator    The entity who changed the stat.
+     * @param entity        The entity whose stat changed.
+     * @param stat          The stat that changed.
+     * @param oldValue      The value of the stat before the change.
+     * @param newValue      The value of the stat after the change.
+     */
+    private void sendStatChangedEvent(EntityRef instigator, EntityRef entity, PhysicalStat stat, int oldValue,
+                                      int newValue) {
+        switch (stat) {
+            case STRENGTH:
+                entity.send(new OnStrengthChangedEvent(instigator, entity, oldValue, newValue));
+                break;
+            case CONSTITUTION:
+                entity.send(new OnConstitutionChangedEvent(instigator, entity, oldValue, newValue));
+                break;
+            case AGILITY:
+                entity.send(new OnAgilityChangedEvent(instigator, entity, oldValue, newValue));
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Set one of the local player's base stats to the given amount. The related change events are sent by
+     * {@link #applyStats}.
+     *
+     * @param stat      The stat to set.
+     * @param amount    The new value of the stat.
+     */
+    private void setStat(PhysicalStat stat, int amount) {
+        // Get the local player's character entity, and set the stat if it has physical stats.
+        EntityRef player = CoreRegistry.get(LocalPlayer.class).getCharacterEntity();
+        int[] values = PhysicalStatArrays.create();
+        values[stat.index()] = amount;
+        int[] oldValues = applyStats(player, player, 1 << stat.index(), values);
+        if (oldValues == null) {
+            return;
+        }
+        int oldValue = oldValues[stat.index()];
+
+        // Print the change to the console.
+        logger.info(stat.getAbbreviation() + " changed from " + oldValue + " to " + amount);
     }
 }
@@ -0,0 +1,68 @@
+// Copyright 2021 The Terasology Foundation
+// SPDX-License-Identifier: Apache-2.0
+package org.terasology.physicalstats.system;
+
+import org.terasology.physicalstats.component.PhysicalStat;
+
+/**
+ * A change to the base stats of an entity, used for rebalancing many entities at once. Rebalances run on worker
+ * threads, so they must only depend on the stats they're given.
+ */
+@FunctionalInterface
+public interface StatRebalance {
+    /**
+     * Change the base stats of one entity in place.
+     *
+     * @param stats     A flat array holding the stats of many entities, {@link PhysicalStat#COUNT} values each, indexed
+     *                  by {@link PhysicalStat#index()}.
+     * @param offset    The index in the array of the first stat of the entity.
+     */
+    void rebalance(int[] stats, int offset);
+
+    /**
+     * Apply another rebalance after this one.
+     *
+     * @param next  The rebalance to apply afterwards.
+     * @return      The combined rebalance.
+     */
+    default StatRebalance andThen(StatRebalance next) {
+        return (stats, offset) -> {
+            rebalance(stats, offset);
+            next.rebalance(stats, offset);
+        };
+    }
+
+    /**
+     * Get a rebalance that doesn't change any stats, for when only the formulas of the derived stats change.
+     *
+     * @return  The rebalance.
+     */
+    static StatRebalance none() {
+        return (stats, offset) -> {
+        };
+    }
+
+    /**
+     * Get a rebalance that multiplies a stat by a factor, rounding to the nearest integer.
+     *
+     * @param stat      The stat to scale.
+     * @param factor    The factor to multiply the stat by.
+     * @return          The rebalance.
+     */
+    static StatRebalance scale(PhysicalStat stat, float factor) {
+        int index = stat.index();
+        return (stats, offset) -> stats[offset + index] = Math.round(stats[offset + index] * factor);
+    }
+
+    /**
+     * Get a rebalance that adds an amount to a stat.
+     *
+     * @param stat      The stat to change.
+     * @param amount    The amount to add.
+     * @return          The rebalance.
+     */
+    static StatRebalance add(PhysicalStat stat, int amount) {
+        int index = stat.index();
+        return (stats, offset) -> stats[offset + index] += amount;
+    }
+}